@@ -48,7 +48,12 @@ public enum ResultCode implements IResultCode {
     /**
      * 系统错误
      */
-    SYSTEM_ERROR(500, "系统错误");
+    SYSTEM_ERROR(500, "系统错误"),
+
+    /**
+     * 服务繁忙
+     */
+    SERVICE_UNAVAILABLE(503, "服务繁忙，请稍后重试");
 
     /**
      * 状态码
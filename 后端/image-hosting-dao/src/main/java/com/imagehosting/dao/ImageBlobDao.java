@@ -0,0 +1,94 @@
+package com.imagehosting.dao;
+
+import com.imagehosting.model.entity.ImageBlob;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 图片内容数据访问接口
+ */
+public interface ImageBlobDao {
+
+    /**
+     * 插入图片内容
+     *
+     * @param blob 图片内容
+     * @return 影响行数
+     */
+    int insert(ImageBlob blob);
+
+    /**
+     * 根据ID查询图片内容
+     *
+     * @param id 内容ID
+     * @return 图片内容
+     */
+    ImageBlob findById(Long id);
+
+    /**
+     * 根据ID查询图片内容并加排他锁，事务提交前其他事务不能修改
+     *
+     * @param id 内容ID
+     * @return 图片内容
+     */
+    ImageBlob findByIdForUpdate(Long id);
+
+    /**
+     * 根据内容哈希查询图片内容
+     *
+     * @param hash 内容哈希
+     * @return 图片内容
+     */
+    ImageBlob findByHash(String hash);
+
+    /**
+     * 根据存储路径查询图片内容
+     *
+     * @param path 存储路径
+     * @return 图片内容
+     */
+    ImageBlob findByPath(String path);
+
+    /**
+     * 按ID顺序分批查询图片内容
+     *
+     * @param lastId 上一批最后一条的ID
+     * @param limit  数量
+     * @return 图片内容列表
+     */
+    List<ImageBlob> findBatchAfterId(@Param("lastId") Long lastId, @Param("limit") Integer limit);
+
+    /**
+     * 更新文件路径
+     *
+     * @param id   内容ID
+     * @param path 文件路径
+     * @return 影响行数
+     */
+    int updatePath(@Param("id") Long id, @Param("path") String path);
+
+    /**
+     * 增加引用计数（引用计数已归零的内容不再增加）
+     *
+     * @param id 内容ID
+     * @return 影响行数
+     */
+    int incrementRefCount(Long id);
+
+    /**
+     * 减少引用计数
+     *
+     * @param id 内容ID
+     * @return 影响行数
+     */
+    int decrementRefCount(Long id);
+
+    /**
+     * 删除无引用的图片内容
+     *
+     * @param id 内容ID
+     * @return 影响行数
+     */
+    int deleteUnreferenced(Long id);
+}
@@ -19,6 +19,14 @@ public interface ImageDao {
      */
     int insert(Image image);
 
+    /**
+     * 批量插入图片（单条多行INSERT，回填自增ID）
+     *
+     * @param images 图片列表
+     * @return 影响行数
+     */
+    int insertBatch(List<Image> images);
+
     /**
      * 更新图片
      *
@@ -52,6 +60,109 @@ public interface ImageDao {
      */
     Image findByUserIdAndMd5(@Param("userId") Long userId, @Param("md5") String md5);
 
+    /**
+     * 根据ID批量查询未删除的图片
+     *
+     * @param ids 图片ID列表
+     * @return 图片列表
+     */
+    List<Image> findByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 按ID顺序分批查询已计算感知哈希的图片（只包含ID、用户ID和感知哈希）
+     *
+     * @param lastId 上一批最后一条的ID
+     * @param limit  数量
+     * @return 图片列表
+     */
+    List<Image> findHashedAfterId(@Param("lastId") Long lastId, @Param("limit") Integer limit);
+
+    /**
+     * 查询引用指定内容的任意一条图片记录
+     *
+     * @param blobId 内容ID
+     * @return 图片
+     */
+    Image findFirstByBlobId(Long blobId);
+
+    /**
+     * 统计引用指定内容的未删除图片数
+     *
+     * @param blobId 内容ID
+     * @return 数量
+     */
+    long countByBlobId(Long blobId);
+
+    /**
+     * 查询使用指定存储路径的任意一条图片记录
+     *
+     * @param path 存储路径
+     * @return 图片
+     */
+    Image findFirstByPath(String path);
+
+    /**
+     * 按ID顺序分批查询未关联内容记录的图片（早期上传）
+     *
+     * @param lastId 上一批最后一条的ID
+     * @param limit  数量
+     * @return 图片列表
+     */
+    List<Image> findWithoutBlobAfterId(@Param("lastId") Long lastId, @Param("limit") Integer limit);
+
+    /**
+     * 更新引用指定内容的所有图片的路径
+     *
+     * @param blobId 内容ID
+     * @param path   文件路径
+     * @param url    访问URL
+     * @return 影响行数
+     */
+    int updatePathByBlobId(@Param("blobId") Long blobId, @Param("path") String path, @Param("url") String url);
+
+    /**
+     * 按上传顺序查询待复制的图片
+     *
+     * @param limit 数量
+     * @return 图片列表
+     */
+    List<Image> findPendingReplication(@Param("limit") Integer limit);
+
+    /**
+     * 统计指定文件已复制的图片数量
+     *
+     * @param path 文件路径
+     * @return 数量
+     */
+    Long countReplicatedByPath(@Param("path") String path);
+
+    /**
+     * 将指定文件的图片标记为已复制
+     *
+     * @param path 文件路径
+     * @return 影响行数
+     */
+    int markReplicatedByPath(@Param("path") String path);
+
+    /**
+     * 根据ID查询图片并加锁（需在事务中调用）
+     *
+     * @param id 图片ID
+     * @return 图片
+     */
+    Image findByIdForUpdate(Long id);
+
+    /**
+     * 记录一次复制失败
+     *
+     * @param id          图片ID
+     * @param maxAttempts 最大尝试次数
+     * @param retryDelay  距下次重试的秒数
+     * @return 影响行数
+     */
+    int recordReplicationFailure(@Param("id") Long id, @Param("maxAttempts") Integer maxAttempts,
+                                 @Param("retryDelay") Long retryDelay);
+
     /**
      * 根据用户ID查询图片列表
      *
@@ -0,0 +1,80 @@
+package com.imagehosting.dao;
+
+import com.imagehosting.model.entity.ImageDerivative;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 图片衍生图数据访问接口
+ */
+public interface ImageDerivativeDao {
+
+    /**
+     * 插入衍生图，相同图片和处理参数已存在时抛出DuplicateKeyException
+     *
+     * @param derivative 衍生图
+     * @return 影响行数
+     */
+    int insert(ImageDerivative derivative);
+
+    /**
+     * 根据图片ID和处理参数查询衍生图
+     *
+     * @param imageId   图片ID
+     * @param operation 规范化的处理参数
+     * @return 衍生图
+     */
+    ImageDerivative findByImageIdAndOperation(@Param("imageId") Long imageId, @Param("operation") String operation);
+
+    /**
+     * 查询图片的所有衍生图
+     *
+     * @param imageId 图片ID
+     * @return 衍生图列表
+     */
+    List<ImageDerivative> findByImageId(Long imageId);
+
+    /**
+     * 批量查询多张图片的衍生图
+     *
+     * @param imageIds 图片ID列表（不能为空）
+     * @return 衍生图列表
+     */
+    List<ImageDerivative> findByImageIds(@Param("imageIds") List<Long> imageIds);
+
+    /**
+     * 按生成顺序查询待复制的衍生图
+     *
+     * @param limit 数量
+     * @return 衍生图列表
+     */
+    List<ImageDerivative> findPendingReplication(@Param("limit") Integer limit);
+
+    /**
+     * 标记为已复制（更新时锁定记录，与删除互斥）
+     *
+     * @param id 衍生图ID
+     * @return 影响行数，记录已删除时为0
+     */
+    int markReplicated(Long id);
+
+    /**
+     * 记录一次复制失败
+     *
+     * @param id          衍生图ID
+     * @param maxAttempts 最大尝试次数
+     * @param retryDelay  距下次重试的秒数
+     * @return 影响行数
+     */
+    int recordReplicationFailure(@Param("id") Long id, @Param("maxAttempts") Integer maxAttempts,
+                                 @Param("retryDelay") Long retryDelay);
+
+    /**
+     * 删除图片的所有衍生图
+     *
+     * @param imageId 图片ID
+     * @return 影响行数
+     */
+    int deleteByImageId(Long imageId);
+}
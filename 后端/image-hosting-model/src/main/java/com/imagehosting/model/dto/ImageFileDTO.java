@@ -0,0 +1,60 @@
+package com.imagehosting.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * 待输出的图片文件DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageFileDTO {
+
+    /**
+     * 本地文件
+     */
+    private File file;
+
+    /**
+     * 内存中的文件数据（如卷文件的映射），不为null时输出该数据而不是本地文件
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * 文件大小
+     */
+    private Long length;
+
+    /**
+     * 最后修改时间（毫秒），未知时为-1
+     */
+    private Long lastModified;
+
+    /**
+     * 文件类型
+     */
+    private String contentType;
+
+    /**
+     * 是否作为附件下载（不是允许的位图格式的文件）
+     */
+    private boolean attachment;
+
+    /**
+     * 实体标签（不含引号），内容不会变化的文件才有，其他文件（如旧的处理结果）为null
+     */
+    private String etag;
+
+    /**
+     * 文件占用（如缓存文件），输出完毕后关闭；为null时文件始终存在，可由容器在响应提交后输出
+     */
+    private Closeable lease;
+}
@@ -0,0 +1,46 @@
+package com.imagehosting.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 图片元数据DTO（仅由文件头解析得到）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageMetadataDTO {
+
+    /**
+     * 图片宽度
+     */
+    private Integer width;
+
+    /**
+     * 图片高度
+     */
+    private Integer height;
+
+    /**
+     * 图片格式（jpeg、png、gif等）
+     */
+    private String format;
+
+    /**
+     * 帧数（未知时为null）
+     */
+    private Integer frameCount;
+
+    /**
+     * EXIF方向（1-8，无EXIF时为1）
+     */
+    private Integer orientation;
+
+    /**
+     * 颜色配置（ICC配置名称或色彩空间）
+     */
+    private String colorProfile;
+}
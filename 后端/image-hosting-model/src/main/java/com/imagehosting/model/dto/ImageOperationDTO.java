@@ -0,0 +1,66 @@
+package com.imagehosting.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 图片处理步骤DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageOperationDTO {
+
+    /**
+     * 处理类型：resize、crop、watermark、compress、format
+     */
+    private String type;
+
+    /**
+     * 宽度
+     */
+    private Integer width;
+
+    /**
+     * 高度
+     */
+    private Integer height;
+
+    /**
+     * 水印文字
+     */
+    private String watermarkText;
+
+    /**
+     * 水印位置：topLeft, topRight, bottomLeft, bottomRight, center, tile（平铺）
+     */
+    private String watermarkPosition;
+
+    /**
+     * 水印图片ID，指定后使用图片水印
+     */
+    private Long watermarkImageId;
+
+    /**
+     * 水印字号（8-200），默认36
+     */
+    private Integer watermarkFontSize;
+
+    /**
+     * 水印不透明度（1-100），默认24
+     */
+    private Integer watermarkOpacity;
+
+    /**
+     * 压缩质量（1-100）
+     */
+    private Integer quality;
+
+    /**
+     * 输出格式：jpg, png, webp, gif
+     */
+    private String format;
+}
@@ -2,6 +2,8 @@ package com.imagehosting.model.dto;
 
 import lombok.Data;
 
+import java.util.List;
+
 /**
  * 图片处理DTO
  */
@@ -47,4 +49,9 @@ public class ImageProcessDTO {
      * 输出格式：jpg, png, webp, gif
      */
     private String format;
+    
+    /**
+     * 处理步骤（按顺序在一次解码中完成），指定后忽略processType及单项参数
+     */
+    private List<ImageOperationDTO> operations;
 } 
\ No newline at end of file
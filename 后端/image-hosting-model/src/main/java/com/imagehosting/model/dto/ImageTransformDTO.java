@@ -0,0 +1,41 @@
+package com.imagehosting.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 图片变换参数DTO（按URL参数即时生成）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageTransformDTO {
+
+    /**
+     * 目标宽度，为空时按高度等比缩放
+     */
+    private Integer width;
+
+    /**
+     * 目标高度，为空时按宽度等比缩放
+     */
+    private Integer height;
+
+    /**
+     * 适应方式：contain（等比缩放到框内，默认）、cover（等比填满后居中裁剪）、fill（拉伸到指定尺寸）
+     */
+    private String fit;
+
+    /**
+     * 输出质量（1-100）
+     */
+    private Integer quality;
+
+    /**
+     * 输出格式：jpg、png、webp等，auto按Accept请求头选择，为空时保持原格式
+     */
+    private String format;
+}
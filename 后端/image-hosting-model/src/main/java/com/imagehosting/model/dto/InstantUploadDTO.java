@@ -0,0 +1,41 @@
+package com.imagehosting.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 秒传预检DTO（客户端本地计算的文件指纹）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InstantUploadDTO {
+
+    /**
+     * 文件名
+     */
+    private String fileName;
+
+    /**
+     * 媒体类型
+     */
+    private String contentType;
+
+    /**
+     * 文件大小（字节）
+     */
+    private Long size;
+
+    /**
+     * MD5值
+     */
+    private String md5;
+
+    /**
+     * SHA-256值（匹配其他用户上传的内容时必填）
+     */
+    private String sha256;
+}
@@ -0,0 +1,31 @@
+package com.imagehosting.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 分片上传初始化DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadInitDTO {
+
+    /**
+     * 文件名
+     */
+    private String fileName;
+
+    /**
+     * 媒体类型
+     */
+    private String contentType;
+
+    /**
+     * 文件大小（字节）
+     */
+    private Long size;
+}
@@ -41,6 +41,11 @@ public class Image {
      */
     private String path;
     
+    /**
+     * 图片内容ID
+     */
+    private Long blobId;
+    
     /**
      * 访问URL
      */
@@ -66,6 +71,36 @@ public class Image {
      */
     private Integer height;
     
+    /**
+     * 图片格式
+     */
+    private String format;
+    
+    /**
+     * 帧数
+     */
+    private Integer frameCount;
+    
+    /**
+     * EXIF方向（1-8）
+     */
+    private Integer orientation;
+    
+    /**
+     * 颜色配置
+     */
+    private String colorProfile;
+    
+    /**
+     * 感知哈希（64位dHash），用于查找相似图片
+     */
+    private Long phash;
+    
+    /**
+     * 占位图（BlurHash）
+     */
+    private String blurhash;
+    
     /**
      * 媒体类型
      */
@@ -76,6 +111,21 @@ public class Image {
      */
     private Long accessCount;
     
+    /**
+     * 复制状态（null无需复制，0待复制，1已复制，2复制失败）
+     */
+    private Integer replicationState;
+    
+    /**
+     * 复制尝试次数
+     */
+    private Integer replicationAttempts;
+    
+    /**
+     * 下次复制时间（复制失败后按尝试次数退避）
+     */
+    private LocalDateTime nextReplicationTime;
+    
     /**
      * 删除标志（0未删除，1已删除）
      */
@@ -0,0 +1,58 @@
+package com.imagehosting.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 图片内容实体类（按内容哈希全局去重的物理文件）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageBlob {
+    
+    /**
+     * 内容ID
+     */
+    private Long id;
+    
+    /**
+     * 内容哈希（SHA-256）
+     */
+    private String hash;
+    
+    /**
+     * MD5值
+     */
+    private String md5;
+    
+    /**
+     * 存储路径
+     */
+    private String path;
+    
+    /**
+     * 文件大小（字节）
+     */
+    private Long size;
+    
+    /**
+     * 引用计数
+     */
+    private Integer refCount;
+    
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+    
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,78 @@
+package com.imagehosting.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 图片衍生图实体类（处理结果，按图片和规范化的处理参数唯一）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageDerivative {
+    
+    /**
+     * 衍生图ID
+     */
+    private Long id;
+    
+    /**
+     * 原图ID
+     */
+    private Long imageId;
+    
+    /**
+     * 规范化的处理参数，如 resize:w=100,h=auto
+     */
+    private String operation;
+    
+    /**
+     * 存储路径
+     */
+    private String path;
+    
+    /**
+     * 图片格式
+     */
+    private String format;
+    
+    /**
+     * 文件大小（字节）
+     */
+    private Long size;
+    
+    /**
+     * 图片宽度
+     */
+    private Integer width;
+    
+    /**
+     * 图片高度
+     */
+    private Integer height;
+    
+    /**
+     * 复制状态（null无需复制，0待复制，1已复制，2复制失败）
+     */
+    private Integer replicationState;
+    
+    /**
+     * 复制尝试次数
+     */
+    private Integer replicationAttempts;
+    
+    /**
+     * 下次复制时间（复制失败后按尝试次数退避）
+     */
+    private LocalDateTime nextReplicationTime;
+    
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+}
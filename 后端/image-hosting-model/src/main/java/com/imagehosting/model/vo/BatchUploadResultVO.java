@@ -0,0 +1,36 @@
+package com.imagehosting.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量上传单个文件结果VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchUploadResultVO {
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 是否上传成功
+     */
+    private Boolean success;
+
+    /**
+     * 失败原因
+     */
+    private String message;
+
+    /**
+     * 上传结果（成功时返回）
+     */
+    private ImageUploadVO image;
+}
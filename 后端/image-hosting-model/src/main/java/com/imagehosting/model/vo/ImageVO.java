@@ -51,6 +51,16 @@ public class ImageVO {
      */
     private Integer height;
     
+    /**
+     * 响应式图片地址（img标签的srcset属性值），未生成多尺寸时为null
+     */
+    private String srcset;
+
+    /**
+     * 占位图（BlurHash），图片加载前由前端解码绘制，旧图片可能为null
+     */
+    private String blurhash;
+
     /**
      * 媒体类型
      */
@@ -0,0 +1,48 @@
+package com.imagehosting.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 存储目录迁移进度VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageMigrationVO {
+
+    /**
+     * 是否正在执行
+     */
+    private Boolean running;
+
+    /**
+     * 已扫描文件数
+     */
+    private Long scanned;
+
+    /**
+     * 已迁移文件数
+     */
+    private Long migrated;
+
+    /**
+     * 迁移失败文件数
+     */
+    private Long failed;
+
+    /**
+     * 开始时间
+     */
+    private LocalDateTime startTime;
+
+    /**
+     * 结束时间
+     */
+    private LocalDateTime finishTime;
+}
@@ -0,0 +1,38 @@
+package com.imagehosting.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 分片上传会话VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionVO {
+
+    /**
+     * 上传会话ID
+     */
+    private String uploadId;
+
+    /**
+     * 分片大小（字节）
+     */
+    private Integer chunkSize;
+
+    /**
+     * 分片总数
+     */
+    private Integer totalChunks;
+
+    /**
+     * 已接收的分片序号
+     */
+    private List<Integer> receivedChunks;
+}
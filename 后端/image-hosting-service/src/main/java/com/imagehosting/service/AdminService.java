@@ -5,8 +5,11 @@ import com.imagehosting.model.dto.UserQueryDTO;
 import com.imagehosting.model.vo.AdminStatsVO;
 import com.imagehosting.model.vo.ImageVO;
 import com.imagehosting.model.vo.PageVO;
+import com.imagehosting.model.vo.SimilarImageVO;
 import com.imagehosting.model.vo.UserVO;
 
+import java.util.List;
+
 /**
  * 管理员服务接口
  */
@@ -65,4 +68,24 @@ public interface AdminService {
      * @param id 图片ID
      */
     void deleteImage(Long id);
+
+    /**
+     * 查找与指定图片相似的图片
+     *
+     * @param id       图片ID
+     * @param distance 最大汉明距离（可选）
+     * @param global   是否在所有用户中查找，否则只查找同一用户的图片
+     * @return 相似图片
+     */
+    List<SimilarImageVO> findSimilarImages(Long id, Integer distance, Boolean global);
+
+    /**
+     * 查找近似重复的图片分组
+     *
+     * @param userId   用户ID（可选）
+     * @param distance 最大汉明距离（可选）
+     * @param limit    最多返回的分组数（可选）
+     * @return 分组列表
+     */
+    List<List<SimilarImageVO>> findDuplicateImages(Long userId, Integer distance, Integer limit);
 } 
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.imagehosting.service;
+
+/**
+ * 准入控制服务接口
+ * <p>
+ * 限制上传与图片处理请求的全局并发、单用户并发以及在途字节数，
+ * 超出限制时立即拒绝，避免请求堆积在容器线程上耗尽内存。
+ */
+public interface AdmissionService {
+
+    /**
+     * 尝试获取准入许可
+     *
+     * @param key   限流主体（用户或客户端地址）
+     * @param bytes 请求体字节数，未知时传入负数
+     * @return 许可，超出限制时返回null
+     */
+    Permit tryAcquire(String key, long bytes);
+
+    /**
+     * 准入许可，请求处理完毕后必须关闭
+     */
+    interface Permit extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
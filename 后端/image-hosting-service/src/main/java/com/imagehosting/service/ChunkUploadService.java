@@ -0,0 +1,56 @@
+package com.imagehosting.service;
+
+import com.imagehosting.model.dto.UploadInitDTO;
+import com.imagehosting.model.vo.ImageUploadVO;
+import com.imagehosting.model.vo.UploadSessionVO;
+
+import java.io.InputStream;
+
+/**
+ * 分片上传服务接口
+ * <p>
+ * 客户端按固定大小切分文件逐片上传，连接中断后可查询已接收分片并续传。
+ */
+public interface ChunkUploadService {
+
+    /**
+     * 创建上传会话
+     *
+     * @param initDTO 初始化参数
+     * @return 上传会话
+     */
+    UploadSessionVO initUpload(UploadInitDTO initDTO);
+
+    /**
+     * 上传分片（重复上传已接收的分片将被忽略）
+     *
+     * @param uploadId    上传会话ID
+     * @param index       分片序号（从0开始）
+     * @param inputStream 分片数据
+     * @return 上传会话
+     */
+    UploadSessionVO uploadChunk(String uploadId, int index, InputStream inputStream);
+
+    /**
+     * 查询上传会话
+     *
+     * @param uploadId 上传会话ID
+     * @return 上传会话
+     */
+    UploadSessionVO getStatus(String uploadId);
+
+    /**
+     * 完成上传，合并分片并保存图片
+     *
+     * @param uploadId 上传会话ID
+     * @return 上传结果
+     */
+    ImageUploadVO completeUpload(String uploadId);
+
+    /**
+     * 取消上传
+     *
+     * @param uploadId 上传会话ID
+     */
+    void abortUpload(String uploadId);
+}
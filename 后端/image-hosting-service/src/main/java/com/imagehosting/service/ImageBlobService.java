@@ -0,0 +1,45 @@
+package com.imagehosting.service;
+
+import com.imagehosting.model.entity.Image;
+import com.imagehosting.model.entity.ImageBlob;
+
+/**
+ * 图片内容服务接口
+ * <p>
+ * 按内容哈希全局去重，多条图片记录共享同一个物理文件，并通过引用计数管理其生命周期。
+ */
+public interface ImageBlobService {
+
+    /**
+     * 登记一份已写入存储的内容并增加引用
+     * <p>
+     * 调用方应先通过{@link #reference}确认内容不存在再写入存储；若期间并发上传的相同内容已先登记，
+     * 则删除刚写入的文件并返回已有内容。
+     *
+     * @param hash         内容哈希（SHA-256）
+     * @param md5          MD5值
+     * @param size         文件大小（字节）
+     * @param uploadedPath 刚写入存储的文件路径
+     * @return 实际引用的图片内容
+     */
+    ImageBlob acquire(String hash, String md5, long size, String uploadedPath);
+
+    /**
+     * 为已存在的内容增加引用（内容已知时无需再写入存储）
+     * <p>
+     * 哈希、MD5和大小须全部一致才视为同一内容。
+     *
+     * @param hash 内容哈希（SHA-256）
+     * @param md5  MD5值
+     * @param size 文件大小（字节）
+     * @return 图片内容，不存在时返回null
+     */
+    ImageBlob reference(String hash, String md5, long size);
+
+    /**
+     * 释放图片记录对内容的引用，最后一个引用释放时删除物理文件
+     *
+     * @param image 图片记录
+     */
+    void release(Image image);
+}
@@ -0,0 +1,165 @@
+package com.imagehosting.service;
+
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 图片编解码服务接口
+ * <p>
+ * 按文件头识别格式，复用按格式缓存的ImageReader/ImageWriter，避免每次调用都经过SPI查找；
+ * 编码时按格式使用配置的编码参数（质量、渐进式、色度抽样等）。
+ */
+public interface ImageCodecService {
+
+    /**
+     * 使用缓存的解码器读取图片流，调用结束后解码器归还
+     *
+     * @param input    图片输入流，由调用方关闭
+     * @param callback 读取操作，需自行调用reader.setInput
+     * @param <T>      结果类型
+     * @return 读取结果，无法识别格式时返回null
+     * @throws IOException IO异常
+     */
+    <T> T read(ImageInputStream input, ReaderCallback<T> callback) throws IOException;
+
+    /**
+     * 解码图片第一帧（不按EXIF方向校正）
+     *
+     * @param file        图片文件
+     * @param region      解码区域，为null时解码整幅图片
+     * @param subsampling 降采样倍数
+     * @return 图片
+     * @throws IOException IO异常
+     */
+    BufferedImage decode(File file, Rectangle region, int subsampling) throws IOException;
+
+    /**
+     * 从输入流解码图片第一帧（不按EXIF方向校正）
+     *
+     * @param inputStream 图片输入流
+     * @param subsampling 降采样倍数
+     * @return 图片
+     * @throws IOException IO异常
+     */
+    BufferedImage decode(InputStream inputStream, int subsampling) throws IOException;
+
+    /**
+     * 按EXIF方向校正图片
+     *
+     * @param image       图片
+     * @param orientation EXIF方向（1-8），为null或1时原样返回
+     * @return 校正后的图片
+     */
+    BufferedImage orient(BufferedImage image, Integer orientation);
+
+    /**
+     * 按格式的编码参数编码图片
+     *
+     * @param image   图片
+     * @param format  输出格式（文件扩展名）
+     * @param quality 压缩质量（0-1），为null时使用配置值，仅对有损格式生效
+     * @param target  目标文件
+     * @throws IOException IO异常
+     */
+    void encode(BufferedImage image, String format, Float quality, File target) throws IOException;
+
+    /**
+     * 是否支持编码为指定格式
+     *
+     * @param format 格式（文件扩展名）
+     * @return 是否支持
+     */
+    boolean canEncode(String format);
+
+    /**
+     * 逐帧转换GIF动图，依次读取、转换、写出每一帧，内存中只保留当前帧
+     * <p>
+     * 保留每帧的延迟时间、处置方式以及循环次数。
+     *
+     * @param source    原图文件
+     * @param target    目标文件
+     * @param canvas    转换后的画布尺寸
+     * @param transform 帧转换
+     * @throws IOException IO异常
+     */
+    void transformAnimation(File source, File target, Dimension canvas, FrameTransform transform) throws IOException;
+
+    /**
+     * 帧转换
+     */
+    @FunctionalInterface
+    interface FrameTransform {
+
+        /**
+         * 转换一帧
+         *
+         * @param frame  原帧图像（只包含该帧覆盖的区域）
+         * @param bounds 原帧在画布中的位置
+         * @return 转换后的帧
+         * @throws IOException IO异常
+         */
+        AnimationFrame apply(BufferedImage frame, Rectangle bounds) throws IOException;
+    }
+
+    /**
+     * 动图帧
+     */
+    final class AnimationFrame {
+
+        /**
+         * 帧图像
+         */
+        private final BufferedImage image;
+
+        /**
+         * 帧在画布中的横坐标
+         */
+        private final int x;
+
+        /**
+         * 帧在画布中的纵坐标
+         */
+        private final int y;
+
+        public AnimationFrame(BufferedImage image, int x, int y) {
+            this.image = image;
+            this.x = x;
+            this.y = y;
+        }
+
+        public BufferedImage getImage() {
+            return image;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+    }
+
+    /**
+     * 读取操作
+     *
+     * @param <T> 结果类型
+     */
+    @FunctionalInterface
+    interface ReaderCallback<T> {
+
+        /**
+         * 使用解码器读取
+         *
+         * @param reader 解码器
+         * @return 读取结果
+         * @throws IOException IO异常
+         */
+        T read(ImageReader reader) throws IOException;
+    }
+}
@@ -0,0 +1,53 @@
+package com.imagehosting.service;
+
+import com.imagehosting.model.entity.ImageDerivative;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 图片衍生图服务接口
+ * <p>
+ * 按（图片ID，规范化的处理参数）登记处理结果，相同处理请求直接返回已生成的文件。
+ */
+public interface ImageDerivativeService {
+
+    /**
+     * 查询已生成的衍生图
+     *
+     * @param imageId   图片ID
+     * @param operation 规范化的处理参数
+     * @return 衍生图，未生成时返回null
+     */
+    ImageDerivative find(Long imageId, String operation);
+
+    /**
+     * 批量查询多张图片的衍生图
+     *
+     * @param imageIds 图片ID列表
+     * @return 衍生图列表
+     */
+    List<ImageDerivative> findByImageIds(List<Long> imageIds);
+
+    /**
+     * 保存并登记衍生图
+     * <p>
+     * 并发生成相同衍生图时以先登记的为准，后写入的文件会被删除。
+     *
+     * @param imageId   图片ID
+     * @param operation 规范化的处理参数
+     * @param file      处理结果临时文件
+     * @param format    图片格式
+     * @return 登记的衍生图
+     * @throws IOException IO异常
+     */
+    ImageDerivative register(Long imageId, String operation, File file, String format) throws IOException;
+
+    /**
+     * 删除图片的所有衍生图（事务提交后删除文件）
+     *
+     * @param imageId 图片ID
+     */
+    void deleteByImageId(Long imageId);
+}
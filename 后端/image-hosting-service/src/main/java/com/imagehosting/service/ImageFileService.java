@@ -0,0 +1,34 @@
+package com.imagehosting.service;
+
+import com.imagehosting.model.dto.ImageFileDTO;
+import com.imagehosting.model.dto.ImageTransformDTO;
+
+import java.io.IOException;
+
+/**
+ * 图片文件访问服务接口
+ * <p>
+ * 将存储路径解析为本地文件或卷文件中的映射数据，供文件访问接口直接输出。
+ */
+public interface ImageFileService {
+
+    /**
+     * 解析存储路径对应的文件
+     *
+     * @param path 存储路径（相对于存储根目录），只能是原图和衍生图目录中的文件
+     * @return 文件信息
+     * @throws IOException 文件不存在、不在公开目录中或读取失败
+     */
+    ImageFileDTO getFile(String path) throws IOException;
+
+    /**
+     * 获取按参数变换后的图片文件，未生成时即时生成
+     *
+     * @param imageId   图片ID
+     * @param transform 变换参数
+     * @param accept    Accept请求头
+     * @return 文件信息
+     * @throws IOException 文件不存在或读取失败
+     */
+    ImageFileDTO getTransformedFile(Long imageId, ImageTransformDTO transform, String accept) throws IOException;
+}
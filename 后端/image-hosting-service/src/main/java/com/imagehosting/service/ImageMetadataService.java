@@ -0,0 +1,57 @@
+package com.imagehosting.service;
+
+import com.imagehosting.model.dto.ImageMetadataDTO;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+/**
+ * 图片元数据探测服务接口
+ * <p>
+ * 只读取图片文件头（尺寸、格式、帧数、EXIF方向、颜色配置），不解码像素。
+ */
+public interface ImageMetadataService {
+
+    /**
+     * 允许上传并直接输出的位图格式（探测得到的格式名），SVG、HTML等可执行脚本的内容一律拒绝
+     */
+    Set<String> RASTER_FORMATS = Set.of("jpeg", "png", "gif", "webp", "bmp");
+
+    /**
+     * 位图格式对应的媒体类型
+     *
+     * @param format 探测得到的格式名
+     * @return 媒体类型，不是允许的位图格式时返回null
+     */
+    static String mimeType(String format) {
+        return format != null && RASTER_FORMATS.contains(format) ? "image/" + format : null;
+    }
+
+    /**
+     * 从截取的文件头中探测元数据
+     *
+     * @param header 文件头字节
+     * @return 元数据，文件头不完整或无法识别时返回null
+     */
+    ImageMetadataDTO probe(byte[] header);
+
+    /**
+     * 从输入流中探测元数据（动图会扫描数据块统计帧数）
+     *
+     * @param inputStream 输入流
+     * @return 元数据，无法识别时返回null
+     * @throws IOException IO异常
+     */
+    ImageMetadataDTO probe(InputStream inputStream) throws IOException;
+
+    /**
+     * 从文件中探测元数据
+     *
+     * @param file 文件
+     * @return 元数据，无法识别时返回null
+     * @throws IOException IO异常
+     */
+    ImageMetadataDTO probe(File file) throws IOException;
+}
@@ -0,0 +1,51 @@
+package com.imagehosting.service;
+
+import com.imagehosting.model.dto.ImageMetadataDTO;
+
+import java.io.IOException;
+
+/**
+ * 图片处理调度服务接口
+ * <p>
+ * 按文件头中的尺寸和处理结果的尺寸估算内存占用，在内存预算内并发执行处理任务；
+ * 原图或处理结果像素数超过限制时（解压缩炸弹、超大放大）在解码前直接拒绝。
+ */
+public interface ImageProcessScheduler {
+
+    /**
+     * 检查图片像素数是否超过限制
+     *
+     * @param metadata 图片元数据，为null时不检查
+     */
+    void checkPixels(ImageMetadataDTO metadata);
+
+    /**
+     * 在处理线程池中执行任务，内存预算不足时等待
+     *
+     * @param metadata     原图元数据，用于检查像素数限制
+     * @param decodePixels 解码得到的像素数（按解码区域和降采样计算），未知时传0按原图估算
+     * @param outputPixels 处理过程中最大的图像像素数，未知时传0按解码结果估算
+     * @param task         处理任务
+     * @param <T>          结果类型
+     * @return 处理结果
+     * @throws IOException IO异常
+     */
+    <T> T execute(ImageMetadataDTO metadata, long decodePixels, long outputPixels, Task<T> task) throws IOException;
+
+    /**
+     * 处理任务
+     *
+     * @param <T> 结果类型
+     */
+    @FunctionalInterface
+    interface Task<T> {
+
+        /**
+         * 执行处理
+         *
+         * @return 处理结果
+         * @throws IOException IO异常
+         */
+        T run() throws IOException;
+    }
+}
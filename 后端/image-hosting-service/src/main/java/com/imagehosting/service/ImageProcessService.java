@@ -1,6 +1,13 @@
 package com.imagehosting.service;
 
+import com.imagehosting.model.dto.ImageOperationDTO;
 import com.imagehosting.model.dto.ImageProcessDTO;
+import com.imagehosting.model.dto.ImageTransformDTO;
+import com.imagehosting.model.entity.Image;
+import com.imagehosting.model.entity.ImageDerivative;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * 图片处理服务接口
@@ -14,6 +21,17 @@ public interface ImageProcessService {
      * @return 处理后的图片URL
      */
     String processImage(ImageProcessDTO processDTO);
+
+    /**
+     * 按顺序执行多个处理步骤
+     * <p>
+     * 原图只解码一次，所有步骤在内存中依次作用于同一图像，最后只编码一次。
+     *
+     * @param imageId    图片ID
+     * @param operations 处理步骤
+     * @return 处理后的图片URL
+     */
+    String processPipeline(Long imageId, List<ImageOperationDTO> operations);
     
     /**
      * 调整图片大小
@@ -62,4 +80,34 @@ public interface ImageProcessService {
      * @return 处理后的图片URL
      */
     String convertFormat(Long imageId, String format);
+
+    /**
+     * 按变换参数获取衍生图，未生成时即时生成
+     * <p>
+     * 与原图URL一样公开访问，不校验图片所有权。
+     *
+     * @param imageId   图片ID
+     * @param transform 变换参数
+     * @param accept    Accept请求头，输出格式为auto时据此选择
+     * @return 衍生图
+     */
+    ImageDerivative transformImage(Long imageId, ImageTransformDTO transform, String accept);
+
+    /**
+     * 生成响应式多尺寸图片
+     * <p>
+     * 只解码一次原图，从大到小逐级缩小，每个尺寸由上一尺寸缩小得到，结果登记为衍生图。
+     *
+     * @param imageId 图片ID
+     * @return srcset属性值
+     */
+    String generateSrcset(Long imageId);
+
+    /**
+     * 根据已生成的衍生图组装srcset，不生成缺少的尺寸
+     *
+     * @param images 图片列表
+     * @return srcset属性值，key为图片ID，未生成多尺寸的图片不包含在内
+     */
+    Map<Long, String> getSrcsets(List<Image> images);
 } 
\ No newline at end of file
@@ -1,11 +1,16 @@
 package com.imagehosting.service;
 
 import com.imagehosting.model.dto.ImageQueryDTO;
+import com.imagehosting.model.dto.InstantUploadDTO;
+import com.imagehosting.model.vo.BatchUploadResultVO;
 import com.imagehosting.model.vo.ImageUploadVO;
 import com.imagehosting.model.vo.ImageVO;
 import com.imagehosting.model.vo.PageVO;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
+import java.util.List;
+
 /**
  * 图片服务接口
  */
@@ -19,6 +24,36 @@ public interface ImageService {
      */
     ImageUploadVO uploadImage(MultipartFile file);
 
+    /**
+     * 保存已在服务端接收完毕的图片文件（摘要已在接收过程中计算）
+     *
+     * @param userId           用户ID
+     * @param file             本地文件
+     * @param originalFilename 原始文件名
+     * @param contentType      媒体类型
+     * @param md5              MD5值
+     * @param sha256           SHA-256值
+     * @return 上传结果
+     */
+    ImageUploadVO uploadImage(Long userId, File file, String originalFilename, String contentType,
+                              String md5, String sha256);
+
+    /**
+     * 秒传预检：内容已存在时直接创建图片记录，无需上传文件
+     *
+     * @param instantDTO 文件指纹
+     * @return 上传结果，内容不存在时返回null（客户端需正常上传）
+     */
+    ImageUploadVO instantUpload(InstantUploadDTO instantDTO);
+
+    /**
+     * 批量上传图片（并行写入存储，图片记录一次性批量插入）
+     *
+     * @param files 图片文件列表
+     * @return 各文件上传结果，顺序与请求一致
+     */
+    List<BatchUploadResultVO> uploadImages(List<MultipartFile> files);
+
     /**
      * 分页查询图片列表
      *
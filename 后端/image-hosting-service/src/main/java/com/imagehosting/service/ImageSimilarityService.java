@@ -0,0 +1,59 @@
+package com.imagehosting.service;
+
+import com.imagehosting.model.entity.Image;
+import com.imagehosting.model.vo.SimilarImageVO;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * 相似图片服务接口
+ * <p>
+ * 按感知哈希查找重新编码、缩放后的近似重复图片，索引常驻内存。
+ */
+public interface ImageSimilarityService {
+
+    /**
+     * 计算感知哈希
+     *
+     * @param sample 降采样解码并已按EXIF方向校正的图片
+     * @return 感知哈希，计算失败时返回null
+     */
+    Long computeHash(BufferedImage sample);
+
+    /**
+     * 将已入库的图片加入索引，事务中调用时在提交后加入
+     *
+     * @param image 图片
+     */
+    void index(Image image);
+
+    /**
+     * 从索引中移除图片，事务中调用时在提交后移除
+     *
+     * @param image 图片
+     */
+    void remove(Image image);
+
+    /**
+     * 查找与指定图片相似的图片
+     *
+     * @param imageId  图片ID
+     * @param distance 最大汉明距离，为null时使用默认值
+     * @param global   是否在所有用户中查找，否则只查找同一用户的图片
+     * @return 相似图片，按距离升序
+     */
+    List<SimilarImageVO> findSimilar(Long imageId, Integer distance, boolean global);
+
+    /**
+     * 查找近似重复的图片分组
+     * <p>
+     * 只以最近上传的若干张图片为基准查找，每张基准图片仍在全部图片中匹配。
+     *
+     * @param userId   用户ID，为null时在所有用户中查找
+     * @param distance 最大汉明距离，为null时使用默认值
+     * @param limit    最多返回的分组数
+     * @return 分组列表，每组第一张为基准图片，其余按与其距离升序
+     */
+    List<List<SimilarImageVO>> findDuplicates(Long userId, Integer distance, Integer limit);
+}
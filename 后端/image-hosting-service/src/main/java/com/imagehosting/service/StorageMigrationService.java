@@ -0,0 +1,25 @@
+package com.imagehosting.service;
+
+import com.imagehosting.model.vo.StorageMigrationVO;
+
+/**
+ * 存储目录迁移服务接口
+ * <p>
+ * 在线将本地存储中不符合当前路径布局的文件迁移到新路径，并分批更新数据库中的路径。
+ */
+public interface StorageMigrationService {
+
+    /**
+     * 启动迁移任务（后台执行）
+     *
+     * @return 迁移进度
+     */
+    StorageMigrationVO startMigration();
+
+    /**
+     * 查询迁移进度
+     *
+     * @return 迁移进度
+     */
+    StorageMigrationVO getProgress();
+}
@@ -0,0 +1,17 @@
+package com.imagehosting.service;
+
+/**
+ * 存储复制服务接口
+ * <p>
+ * 将本地新写入的原图和衍生图按写入顺序复制到OSS，复制状态记录在图片表和衍生图表中，重启后继续；
+ * 复制失败的记录按尝试次数指数退避后重试。
+ */
+public interface StorageReplicationService {
+
+    /**
+     * 复制一批待复制的原图和衍生图文件
+     *
+     * @return 本批成功复制的文件数
+     */
+    int replicatePending();
+}
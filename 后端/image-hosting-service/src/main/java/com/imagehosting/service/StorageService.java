@@ -2,7 +2,12 @@ package com.imagehosting.service;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 存储服务接口
@@ -19,6 +24,49 @@ public interface StorageService {
      */
     String uploadFile(MultipartFile file, String directory) throws IOException;
 
+    /**
+     * 上传文件流（流只会被顺序读取一次）
+     *
+     * @param inputStream      文件输入流
+     * @param size             文件大小（字节）
+     * @param originalFilename 原始文件名
+     * @param directory        目录
+     * @return 文件路径
+     * @throws IOException IO异常
+     */
+    String uploadFile(InputStream inputStream, long size, String originalFilename, String directory) throws IOException;
+
+    /**
+     * 读取文件
+     *
+     * @param filePath 文件路径
+     * @return 文件输入流，由调用方关闭
+     * @throws IOException IO异常，文件不存在时为FileNotFoundException
+     */
+    InputStream getInputStream(String filePath) throws IOException;
+
+    /**
+     * 获取可直接读取的本地文件（只读，调用方不得修改或删除）
+     * <p>
+     * 远程存储的文件通过本地缓存或临时文件访问，使用完毕后必须关闭，关闭前文件不会被淘汰或删除。
+     *
+     * @param filePath 文件路径
+     * @return 本地文件
+     * @throws IOException IO异常，文件不存在时为FileNotFoundException
+     */
+    LocalFile getLocalFile(String filePath) throws IOException;
+
+    /**
+     * 获取文件在内存映射中的只读数据，可直接写入响应，不必提取为本地文件
+     *
+     * @param filePath 文件路径
+     * @return 文件数据，不在内存映射中时返回null
+     * @throws IOException IO异常，文件不存在时为FileNotFoundException
+     */
+    default ByteBuffer getMappedBuffer(String filePath) throws IOException {
+        return null;
+    }
+
     /**
      * 删除文件
      *
@@ -35,6 +83,13 @@ public interface StorageService {
      */
     String getFileUrl(String filePath);
 
+    /**
+     * 新写入的文件是否需要后台复制到远程存储
+     *
+     * @return 是否需要复制
+     */
+    boolean requiresReplication();
+
     /**
      * 生成文件名
      *
@@ -42,4 +97,60 @@ public interface StorageService {
      * @return 新文件名
      */
     String generateFileName(String originalFilename);
+
+    /**
+     * 本地文件，关闭时释放对缓存文件的占用或删除临时文件
+     */
+    final class LocalFile implements Closeable {
+
+        private final File file;
+        private final Runnable release;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private LocalFile(File file, Runnable release) {
+            this.file = file;
+            this.release = release;
+        }
+
+        /**
+         * 不需要释放的文件（如本地存储中的文件）
+         *
+         * @param file 文件
+         * @return 本地文件
+         */
+        public static LocalFile of(File file) {
+            return new LocalFile(file, null);
+        }
+
+        /**
+         * 关闭时需要释放的文件
+         *
+         * @param file    文件
+         * @param release 释放操作，只执行一次
+         * @return 本地文件
+         */
+        public static LocalFile leased(File file, Runnable release) {
+            return new LocalFile(file, release);
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * 是否需要关闭，不需要关闭的文件在使用期间始终存在
+         *
+         * @return 是否需要关闭
+         */
+        public boolean isLeased() {
+            return release != null;
+        }
+
+        @Override
+        public void close() {
+            if (release != null && closed.compareAndSet(false, true)) {
+                release.run();
+            }
+        }
+    }
 } 
\ No newline at end of file
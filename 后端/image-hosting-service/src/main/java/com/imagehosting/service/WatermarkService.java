@@ -0,0 +1,43 @@
+package com.imagehosting.service;
+
+import com.imagehosting.model.entity.Image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * 水印服务接口
+ * <p>
+ * 文字和图片水印预先渲染为带透明通道的图层并缓存，处理时只做透明度合成。
+ */
+public interface WatermarkService {
+
+    /**
+     * 平铺位置，水印按交错网格铺满整张图片
+     */
+    String POSITION_TILE = "tile";
+
+    /**
+     * 添加文字水印
+     *
+     * @param image    图片，可直接绘制时在原图上绘制
+     * @param text     水印文字
+     * @param fontSize 字号
+     * @param position 水印位置（已规范化的小写值）
+     * @param opacity  不透明度（0-1）
+     * @return 添加水印后的图片
+     */
+    BufferedImage drawText(BufferedImage image, String text, int fontSize, String position, float opacity);
+
+    /**
+     * 添加图片水印，水印宽度超过图片的四分之一时等比缩小
+     *
+     * @param image    图片，可直接绘制时在原图上绘制
+     * @param logo     水印图片
+     * @param position 水印位置（已规范化的小写值）
+     * @param opacity  不透明度（0-1）
+     * @return 添加水印后的图片
+     * @throws IOException IO异常
+     */
+    BufferedImage drawLogo(BufferedImage image, Image logo, String position, float opacity) throws IOException;
+}
@@ -0,0 +1,67 @@
+package com.imagehosting.service.config;
+
+import com.aliyun.oss.ClientBuilderConfiguration;
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.OSSClientBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 阿里云OSS客户端配置
+ * <p>
+ * 全局共享一个长连接客户端，避免每次请求重新建立连接池和TLS握手。
+ */
+@Configuration
+public class OssConfig {
+
+    @Value("${aliyun.oss.endpoint}")
+    private String endpoint;
+
+    @Value("${aliyun.oss.accessKeyId}")
+    private String accessKeyId;
+
+    @Value("${aliyun.oss.accessKeySecret}")
+    private String accessKeySecret;
+
+    /**
+     * 最大连接数
+     */
+    @Value("${aliyun.oss.client.max-connections:128}")
+    private int maxConnections;
+
+    /**
+     * 建立连接超时时间（毫秒）
+     */
+    @Value("${aliyun.oss.client.connection-timeout:5000}")
+    private int connectionTimeout;
+
+    /**
+     * 读写超时时间（毫秒）
+     */
+    @Value("${aliyun.oss.client.socket-timeout:30000}")
+    private int socketTimeout;
+
+    /**
+     * 空闲连接回收时间（毫秒）
+     */
+    @Value("${aliyun.oss.client.idle-connection-time:60000}")
+    private long idleConnectionTime;
+
+    /**
+     * 失败重试次数
+     */
+    @Value("${aliyun.oss.client.max-error-retry:3}")
+    private int maxErrorRetry;
+
+    @Bean(destroyMethod = "shutdown")
+    public OSS ossClient() {
+        ClientBuilderConfiguration configuration = new ClientBuilderConfiguration();
+        configuration.setMaxConnections(maxConnections);
+        configuration.setConnectionTimeout(connectionTimeout);
+        configuration.setSocketTimeout(socketTimeout);
+        configuration.setIdleConnectionTime(idleConnectionTime);
+        configuration.setMaxErrorRetry(maxErrorRetry);
+        return new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret, configuration);
+    }
+}
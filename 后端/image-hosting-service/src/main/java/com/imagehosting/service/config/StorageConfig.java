@@ -0,0 +1,138 @@
+package com.imagehosting.service.config;
+
+import com.imagehosting.service.StorageService;
+import com.imagehosting.service.impl.AliyunOssStorageServiceImpl;
+import com.imagehosting.service.impl.CachingStorageServiceImpl;
+import com.imagehosting.service.impl.LocalStorageServiceImpl;
+import com.imagehosting.service.impl.PackStorageServiceImpl;
+import com.imagehosting.service.impl.ReplicatedStorageServiceImpl;
+import com.imagehosting.service.util.DatePathLayout;
+import com.imagehosting.service.util.HashPathLayout;
+import com.imagehosting.service.util.PathLayout;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * 存储配置
+ * <p>
+ * 根据storage.type选择主存储，远程存储外层包装本地磁盘缓存。
+ */
+@Slf4j
+@Configuration
+public class StorageConfig {
+
+    /**
+     * 存储类型（oss/local/replicated/pack）
+     */
+    @Value("${storage.type:oss}")
+    private String storageType;
+
+    /**
+     * 本地存储路径布局（date/hash）
+     */
+    @Value("${storage.local.layout:date}")
+    private String localLayout;
+
+    @Value("${storage.cache.path}")
+    private String cachePath;
+
+    @Value("${storage.pack.path:${storage.local.path}/pack}")
+    private String packPath;
+
+    /**
+     * 写入卷的最大文件大小，更大的文件写入本地存储
+     */
+    @Value("${storage.pack.max-blob-size:102400}")
+    private long packMaxBlobSize;
+
+    /**
+     * 单个卷的最大字节数
+     */
+    @Value("${storage.pack.volume-size:1073741824}")
+    private long packVolumeSize;
+
+    /**
+     * 垃圾比例达到该值的卷会被压缩
+     */
+    @Value("${storage.pack.compaction-threshold:0.3}")
+    private double packCompactionThreshold;
+
+    /**
+     * 从卷中提取的本地文件缓存最大字节数
+     */
+    @Value("${storage.pack.extract-max-size:268435456}")
+    private long packExtractMaxSize;
+
+    /**
+     * 读取卷文件时每次映射的窗口字节数
+     */
+    @Value("${storage.pack.map-window-size:67108864}")
+    private long packMapWindowSize;
+
+    /**
+     * 本地缓存最大字节数
+     */
+    @Value("${storage.cache.max-size:1073741824}")
+    private long cacheMaxSize;
+
+    @Bean
+    public PathLayout localPathLayout() {
+        if ("hash".equalsIgnoreCase(localLayout)) {
+            return new HashPathLayout();
+        }
+        return new DatePathLayout();
+    }
+
+    @Bean
+    @Primary
+    public StorageService storageService(AliyunOssStorageServiceImpl ossStorageService,
+                                         LocalStorageServiceImpl localStorageService,
+                                         ObjectProvider<MeterRegistry> meterRegistry) throws IOException {
+        if ("local".equalsIgnoreCase(storageType)) {
+            log.info("使用本地存储");
+            return localStorageService;
+        }
+        if ("replicated".equalsIgnoreCase(storageType)) {
+            log.info("使用本地存储，后台复制到OSS");
+            return new ReplicatedStorageServiceImpl(localStorageService, ossStorageService);
+        }
+        if ("pack".equalsIgnoreCase(storageType)) {
+            log.info("使用卷文件存储: {}", packPath);
+            return new PackStorageServiceImpl(localStorageService, Paths.get(packPath), packMaxBlobSize,
+                    packVolumeSize, packCompactionThreshold, packExtractMaxSize, packMapWindowSize);
+        }
+
+        CachingStorageServiceImpl cachingStorageService =
+                new CachingStorageServiceImpl(ossStorageService, Paths.get(cachePath), cacheMaxSize);
+        meterRegistry.ifAvailable(registry -> bindMetrics(cachingStorageService, registry));
+        log.info("使用OSS存储，本地缓存: {}", cachePath);
+        return cachingStorageService;
+    }
+
+    /**
+     * 注册缓存命中率等指标
+     */
+    private void bindMetrics(CachingStorageServiceImpl cache, MeterRegistry registry) {
+        FunctionCounter.builder("storage.cache.requests", cache, CachingStorageServiceImpl::getHitCount)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("storage.cache.requests", cache, CachingStorageServiceImpl::getMissCount)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("storage.cache.evictions", cache, CachingStorageServiceImpl::getEvictionCount)
+                .register(registry);
+        Gauge.builder("storage.cache.size", cache, CachingStorageServiceImpl::getCachedBytes)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
@@ -13,9 +13,12 @@ import com.imagehosting.model.entity.User;
 import com.imagehosting.model.vo.AdminStatsVO;
 import com.imagehosting.model.vo.ImageVO;
 import com.imagehosting.model.vo.PageVO;
+import com.imagehosting.model.vo.SimilarImageVO;
 import com.imagehosting.model.vo.UserVO;
 import com.imagehosting.service.AdminService;
-import com.imagehosting.service.StorageService;
+import com.imagehosting.service.ImageBlobService;
+import com.imagehosting.service.ImageDerivativeService;
+import com.imagehosting.service.ImageSimilarityService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
@@ -35,7 +38,9 @@ public class AdminServiceImpl implements AdminService {
 
     private final UserDao userDao;
     private final ImageDao imageDao;
-    private final StorageService storageService;
+    private final ImageBlobService imageBlobService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ImageSimilarityService imageSimilarityService;
 
     @Override
     public AdminStatsVO getAdminStats() {
@@ -189,9 +194,29 @@ public class AdminServiceImpl implements AdminService {
 
         // 逻辑删除图片记录
         imageDao.delete(id);
+        imageSimilarityService.remove(image);
 
-        // 尝试从存储中删除文件
-        storageService.deleteFile(image.getPath());
+        // 释放内容引用，最后一个引用释放时删除物理文件
+        imageBlobService.release(image);
+
+        // 删除处理结果
+        imageDerivativeService.deleteByImageId(id);
+    }
+
+    @Override
+    public List<SimilarImageVO> findSimilarImages(Long id, Integer distance, Boolean global) {
+        // 验证管理员权限
+        validateAdminRole();
+
+        return imageSimilarityService.findSimilar(id, distance, Boolean.TRUE.equals(global));
+    }
+
+    @Override
+    public List<List<SimilarImageVO>> findDuplicateImages(Long userId, Integer distance, Integer limit) {
+        // 验证管理员权限
+        validateAdminRole();
+
+        return imageSimilarityService.findDuplicates(userId, distance, limit);
     }
 
     /**
@@ -0,0 +1,75 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.service.AdmissionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 准入控制服务实现
+ */
+@Slf4j
+@Service
+public class AdmissionServiceImpl implements AdmissionService {
+
+    /**
+     * 全局最大并发请求数
+     */
+    @Value("${admission.max-concurrent:16}")
+    private int maxConcurrent;
+
+    /**
+     * 单用户最大并发请求数
+     */
+    @Value("${admission.max-concurrent-per-user:4}")
+    private int maxConcurrentPerUser;
+
+    /**
+     * 最大在途字节数
+     */
+    @Value("${admission.max-in-flight-bytes:268435456}")
+    private long maxInFlightBytes;
+
+    /**
+     * 请求体长度未知时预估的字节数
+     */
+    @Value("${admission.unknown-length-bytes:10485760}")
+    private long unknownLengthBytes;
+
+    private int active;
+    private long inFlightBytes;
+    private final Map<String, Integer> activeByKey = new HashMap<>();
+
+    @Override
+    public synchronized Permit tryAcquire(String key, long bytes) {
+        // 单个请求最多占满全部额度，保证超大请求在空闲时仍可进入
+        long weight = Math.min(bytes < 0 ? unknownLengthBytes : bytes, maxInFlightBytes);
+        int userActive = activeByKey.getOrDefault(key, 0);
+        if (active >= maxConcurrent || userActive >= maxConcurrentPerUser || inFlightBytes + weight > maxInFlightBytes) {
+            log.warn("请求被准入控制拒绝: key={}, bytes={}, active={}, userActive={}, inFlightBytes={}",
+                    key, bytes, active, userActive, inFlightBytes);
+            return null;
+        }
+
+        active++;
+        inFlightBytes += weight;
+        activeByKey.put(key, userActive + 1);
+
+        AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (closed.compareAndSet(false, true)) {
+                release(key, weight);
+            }
+        };
+    }
+
+    private synchronized void release(String key, long weight) {
+        active--;
+        inFlightBytes -= weight;
+        activeByKey.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+    }
+}
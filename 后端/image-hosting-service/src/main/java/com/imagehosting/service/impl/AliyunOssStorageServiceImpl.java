@@ -1,39 +1,57 @@
 package com.imagehosting.service.impl;
 
+import com.aliyun.oss.ClientException;
 import com.aliyun.oss.OSS;
-import com.aliyun.oss.OSSClientBuilder;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PartETag;
 import com.aliyun.oss.model.PutObjectRequest;
+import com.aliyun.oss.model.UploadPartRequest;
 import com.imagehosting.common.exception.BusinessException;
 import com.imagehosting.common.result.ResultCode;
 import com.imagehosting.service.StorageService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.DigestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 阿里云OSS存储服务实现类
  */
 @Slf4j
 @Service
-@Primary
+@RequiredArgsConstructor
 public class AliyunOssStorageServiceImpl implements StorageService {
 
-    @Value("${aliyun.oss.endpoint}")
-    private String endpoint;
-
-    @Value("${aliyun.oss.accessKeyId}")
-    private String accessKeyId;
-
-    @Value("${aliyun.oss.accessKeySecret}")
-    private String accessKeySecret;
+    private final OSS ossClient;
 
     @Value("${aliyun.oss.bucketName}")
     private String bucketName;
@@ -41,6 +59,48 @@ public class AliyunOssStorageServiceImpl implements StorageService {
     @Value("${aliyun.oss.domain}")
     private String domain;
 
+    /**
+     * 超过该大小的文件使用分片并行上传
+     */
+    @Value("${aliyun.oss.multipart.threshold:5242880}")
+    private long multipartThreshold;
+
+    /**
+     * 分片大小（OSS要求除最后一片外不小于100KB）
+     */
+    @Value("${aliyun.oss.multipart.part-size:1048576}")
+    private int partSize;
+
+    /**
+     * 单个文件同时上传的分片数
+     */
+    @Value("${aliyun.oss.multipart.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * 所有文件共用的分片上传线程数，超出的分片排队等待（排队的分片同样占用所属文件的并行名额）
+     */
+    @Value("${aliyun.oss.multipart.threads:16}")
+    private int partThreads;
+
+    /**
+     * 分片上传线程池
+     */
+    private ThreadPoolExecutor partExecutor;
+
+    @PostConstruct
+    public void init() {
+        partExecutor = new ThreadPoolExecutor(partThreads, partThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("oss-part-upload-"));
+        // 空闲时回收线程
+        partExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        partExecutor.shutdown();
+    }
+
     @Override
     public String uploadFile(MultipartFile file, String directory) throws IOException {
         // 检查文件是否为空
@@ -48,48 +108,96 @@ public class AliyunOssStorageServiceImpl implements StorageService {
             throw new BusinessException(ResultCode.PARAM_ERROR, "上传文件不能为空");
         }
 
+        try (InputStream inputStream = file.getInputStream()) {
+            return uploadFile(inputStream, file.getSize(), file.getOriginalFilename(), directory);
+        }
+    }
+
+    @Override
+    public String uploadFile(InputStream inputStream, long size, String originalFilename, String directory) throws IOException {
+        // 检查文件是否为空
+        if (size <= 0) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "上传文件不能为空");
+        }
+
         // 生成日期目录
         String datePath = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
-        
-        // 生成新文件名
-        String newFileName = generateFileName(file.getOriginalFilename());
-        
+
         // 完整OSS路径
-        String ossPath = directory + "/" + datePath + "/" + newFileName;
-        
-        // 创建OSSClient实例
-        OSS ossClient = null;
+        String ossPath = directory + "/" + datePath + "/" + generateFileName(originalFilename);
+
+        // 上传文件并返回文件路径
+        putObject(ossPath, inputStream, size);
+        return ossPath;
+    }
+
+    /**
+     * 上传文件到指定路径（大文件自动使用分片并行上传）
+     *
+     * @param ossPath     OSS路径
+     * @param inputStream 文件输入流
+     * @param size        文件大小（字节）
+     * @throws IOException IO异常
+     */
+    public void putObject(String ossPath, InputStream inputStream, long size) throws IOException {
         try {
-            ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
-            
-            // 创建PutObjectRequest对象
-            PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, ossPath, file.getInputStream());
-            
-            // 上传文件
-            ossClient.putObject(putObjectRequest);
-            
+            if (size > multipartThreshold) {
+                multipartUpload(inputStream, size, ossPath);
+            } else {
+                // 指定内容长度，SDK可直接流式发送而无需缓冲
+                ObjectMetadata metadata = new ObjectMetadata();
+                metadata.setContentLength(size);
+                ossClient.putObject(new PutObjectRequest(bucketName, ossPath, inputStream, metadata));
+            }
+
             log.info("文件上传成功: {}", ossPath);
-            
-            // 返回文件路径
-            return ossPath;
+        } catch (IOException e) {
+            throw e;
         } catch (Exception e) {
             log.error("文件上传失败", e);
             throw new BusinessException(ResultCode.SYSTEM_ERROR, "文件上传失败: " + e.getMessage());
-        } finally {
-            // 关闭OSSClient
-            if (ossClient != null) {
-                ossClient.shutdown();
+        }
+    }
+
+    @Override
+    public InputStream getInputStream(String filePath) throws IOException {
+        try {
+            // 关闭对象内容流时释放连接
+            return ossClient.getObject(bucketName, filePath).getObjectContent();
+        } catch (OSSException e) {
+            if (OSSErrorCode.NO_SUCH_KEY.equals(e.getErrorCode())) {
+                throw new FileNotFoundException(filePath);
             }
+            throw new IOException("读取文件失败: " + e.getErrorMessage(), e);
+        } catch (ClientException e) {
+            throw new IOException("读取文件失败: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * 下载到临时文件，关闭时删除；需要反复读取的场景应通过本地缓存访问
+     */
+    @Override
+    public LocalFile getLocalFile(String filePath) throws IOException {
+        Path temp = Files.createTempFile("oss-", null);
+        try (InputStream in = getInputStream(filePath)) {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return LocalFile.leased(temp.toFile(), () -> {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                log.warn("删除临时文件失败: {}", temp, e);
+            }
+        });
+    }
+
     @Override
     public boolean deleteFile(String filePath) {
-        // 创建OSSClient实例
-        OSS ossClient = null;
         try {
-            ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
-            
             // 删除文件
             ossClient.deleteObject(bucketName, filePath);
             log.info("文件删除成功: {}", filePath);
@@ -97,11 +205,60 @@ public class AliyunOssStorageServiceImpl implements StorageService {
         } catch (Exception e) {
             log.error("文件删除失败: {}", filePath, e);
             return false;
-        } finally {
-            // 关闭OSSClient
-            if (ossClient != null) {
-                ossClient.shutdown();
+        }
+    }
+
+    /**
+     * 分片并行上传
+     * <p>
+     * 顺序读取输入流切分分片，同时最多有parallelism个分片在上传，内存占用不超过parallelism个分片大小。
+     *
+     * @param inputStream 输入流
+     * @param size        文件大小
+     * @param ossPath     OSS路径
+     * @throws IOException IO异常
+     */
+    private void multipartUpload(InputStream inputStream, long size, String ossPath) throws IOException {
+        String uploadId = ossClient.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(bucketName, ossPath)).getUploadId();
+        Semaphore permits = new Semaphore(parallelism);
+        List<Future<PartETag>> futures = new ArrayList<>();
+        try {
+            long remaining = size;
+            for (int partNumber = 1; remaining > 0; partNumber++) {
+                byte[] part = inputStream.readNBytes((int) Math.min(partSize, remaining));
+                if (part.length == 0) {
+                    throw new IOException("文件内容不完整，期望" + size + "字节");
+                }
+                remaining -= part.length;
+
+                permits.acquire();
+                UploadPartRequest request = new UploadPartRequest(bucketName, ossPath, uploadId, partNumber,
+                        new ByteArrayInputStream(part), part.length);
+                futures.add(partExecutor.submit(() -> {
+                    try {
+                        return ossClient.uploadPart(request).getPartETag();
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            List<PartETag> partETags = new ArrayList<>(futures.size());
+            for (Future<PartETag> future : futures) {
+                partETags.add(future.get());
             }
+            ossClient.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, ossPath, uploadId, partETags));
+        } catch (Exception e) {
+            futures.forEach(future -> future.cancel(true));
+            ossClient.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, ossPath, uploadId));
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            throw new IOException("分片上传失败: " + e.getMessage(), e instanceof ExecutionException ? e.getCause() : e);
         }
     }
 
@@ -110,6 +267,11 @@ public class AliyunOssStorageServiceImpl implements StorageService {
         return domain + "/" + filePath;
     }
 
+    @Override
+    public boolean requiresReplication() {
+        return false;
+    }
+
     @Override
     public String generateFileName(String originalFilename) {
         // 获取文件扩展名
@@ -0,0 +1,333 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.service.StorageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 本地磁盘缓存存储服务（装饰远程存储）
+ * <p>
+ * 读取时先查本地缓存，未命中再从远程存储下载到临时文件并原子重命名，
+ * 缓存按总字节数限制容量，超出时淘汰最久未访问的文件。写入和删除直接委托给远程存储。
+ * 返回的文件在关闭前被淘汰或失效时，推迟到所有使用方关闭后再删除。
+ */
+@Slf4j
+public class CachingStorageServiceImpl implements StorageService {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final StorageService delegate;
+    private final Path cacheDir;
+    private final long maxBytes;
+
+    /**
+     * 缓存索引（按访问顺序），key为缓存文件名，value为文件大小
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    /**
+     * 缓存文件总大小
+     */
+    private long totalBytes;
+
+    /**
+     * 正在使用的缓存文件及使用方数量，key为缓存文件名，与索引一起由this保护
+     */
+    private final Map<String, Integer> pins = new HashMap<>();
+
+    /**
+     * 正在回源的文件，相同文件的并发未命中只下载一次
+     */
+    private final Map<String, CompletableFuture<Path>> loading = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * 构造方法
+     *
+     * @param delegate 远程存储
+     * @param cacheDir 缓存目录
+     * @param maxBytes 缓存最大字节数
+     * @throws IOException IO异常
+     */
+    public CachingStorageServiceImpl(StorageService delegate, Path cacheDir, long maxBytes) throws IOException {
+        this.delegate = delegate;
+        this.cacheDir = cacheDir;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(cacheDir);
+        loadIndex();
+    }
+
+    @Override
+    public String uploadFile(MultipartFile file, String directory) throws IOException {
+        return delegate.uploadFile(file, directory);
+    }
+
+    @Override
+    public String uploadFile(InputStream inputStream, long size, String originalFilename, String directory) throws IOException {
+        return delegate.uploadFile(inputStream, size, originalFilename, directory);
+    }
+
+    @Override
+    public InputStream getInputStream(String filePath) throws IOException {
+        try (LocalFile file = getLocalFile(filePath)) {
+            return Files.newInputStream(file.getFile().toPath());
+        }
+    }
+
+    @Override
+    public LocalFile getLocalFile(String filePath) throws IOException {
+        String key = cacheKey(filePath);
+        LocalFile cached = lookup(key);
+        if (cached != null) {
+            hitCount.incrementAndGet();
+            return cached;
+        }
+        missCount.incrementAndGet();
+
+        while (true) {
+            CompletableFuture<Path> future = new CompletableFuture<>();
+            CompletableFuture<Path> existing = loading.putIfAbsent(key, future);
+            if (existing == null) {
+                try {
+                    LocalFile file = fill(key, filePath);
+                    future.complete(file.getFile().toPath());
+                    return file;
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    loading.remove(key, future);
+                }
+            }
+            await(existing);
+            // 等待期间文件可能已被淘汰，重新查询并占用
+            cached = lookup(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+    }
+
+    @Override
+    public boolean deleteFile(String filePath) {
+        invalidate(cacheKey(filePath));
+        return delegate.deleteFile(filePath);
+    }
+
+    @Override
+    public String getFileUrl(String filePath) {
+        return delegate.getFileUrl(filePath);
+    }
+
+    @Override
+    public boolean requiresReplication() {
+        return delegate.requiresReplication();
+    }
+
+    @Override
+    public String generateFileName(String originalFilename) {
+        return delegate.generateFileName(originalFilename);
+    }
+
+    /**
+     * 获取命中次数
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * 获取未命中次数
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 获取淘汰次数
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * 获取当前缓存字节数
+     */
+    public synchronized long getCachedBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * 从远程存储下载到临时文件，完整写入后原子重命名，读取方不会看到写了一半的文件
+     */
+    private LocalFile fill(String key, String filePath) throws IOException {
+        Path temp = Files.createTempFile(cacheDir, key, TEMP_SUFFIX);
+        try {
+            try (InputStream in = delegate.getInputStream(filePath)) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return commit(key, temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 将下载完成的临时文件放入缓存并占用，重命名与登记在同一临界区内，不会与淘汰删除交错
+     */
+    private synchronized LocalFile commit(String key, Path temp) throws IOException {
+        Path target = cacheDir.resolve(key);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        pins.merge(key, 1, Integer::sum);
+        record(key, Files.size(target));
+        return lease(key, target);
+    }
+
+    /**
+     * 查询缓存并占用，索引存在但文件已丢失时移除索引
+     */
+    private synchronized LocalFile lookup(String key) {
+        Long size = entries.get(key);
+        if (size == null) {
+            return null;
+        }
+        Path path = cacheDir.resolve(key);
+        try {
+            // 更新修改时间，重启后按此恢复访问顺序
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            entries.remove(key);
+            totalBytes -= size;
+            return null;
+        } catch (IOException e) {
+            // 修改时间只影响重启后的淘汰顺序
+        }
+        pins.merge(key, 1, Integer::sum);
+        return lease(key, path);
+    }
+
+    private LocalFile lease(String key, Path path) {
+        return LocalFile.leased(path.toFile(), () -> release(key));
+    }
+
+    /**
+     * 使用方关闭文件，最后一个使用方关闭时删除已被淘汰或失效的文件
+     */
+    private synchronized void release(String key) {
+        Integer count = pins.get(key);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            pins.put(key, count - 1);
+            return;
+        }
+        pins.remove(key);
+        if (!entries.containsKey(key)) {
+            deleteQuietly(cacheDir.resolve(key));
+        }
+    }
+
+    private synchronized void record(String key, long size) {
+        Long previous = entries.put(key, size);
+        totalBytes += size - (previous != null ? previous : 0);
+
+        // 淘汰最久未访问的文件，至少保留刚写入的文件；正在使用的文件移出索引，关闭后再删除
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && entries.size() > 1) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+            if (!pins.containsKey(eldest.getKey())) {
+                deleteQuietly(cacheDir.resolve(eldest.getKey()));
+            }
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    private synchronized void invalidate(String key) {
+        Long size = entries.remove(key);
+        if (size == null) {
+            return;
+        }
+        totalBytes -= size;
+        if (!pins.containsKey(key)) {
+            deleteQuietly(cacheDir.resolve(key));
+        }
+    }
+
+    /**
+     * 启动时从缓存目录恢复索引，并清理上次未完成的临时文件
+     */
+    private void loadIndex() throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(cacheDir)) {
+            files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        files.sort(Comparator.comparingLong(path -> path.toFile().lastModified()));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                deleteQuietly(file);
+            } else {
+                record(name, Files.size(file));
+            }
+        }
+        log.info("本地缓存已加载: path={}, files={}, bytes={}", cacheDir, entries.size(), totalBytes);
+    }
+
+    private Path await(CompletableFuture<Path> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待缓存加载被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static String cacheKey(String filePath) {
+        return DigestUtils.md5DigestAsHex(filePath.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除缓存文件失败: {}", path, e);
+        }
+    }
+}
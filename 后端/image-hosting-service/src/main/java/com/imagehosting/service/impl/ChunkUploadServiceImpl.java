@@ -0,0 +1,417 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.common.exception.BusinessException;
+import com.imagehosting.common.result.ResultCode;
+import com.imagehosting.common.util.SecurityUtil;
+import com.imagehosting.model.dto.UploadInitDTO;
+import com.imagehosting.model.vo.ImageUploadVO;
+import com.imagehosting.model.vo.UploadSessionVO;
+import com.imagehosting.service.ChunkUploadService;
+import com.imagehosting.service.ImageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * 分片上传服务实现
+ * <p>
+ * 按序到达的分片直接追加到数据文件并增量计算摘要；乱序到达的分片先暂存，
+ * 待前序分片到齐后再依次合并。完成上传时摘要已就绪，无需再次读取整个文件。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChunkUploadServiceImpl implements ChunkUploadService {
+
+    private static final String DATA_FILE = "data";
+    private static final String CHUNK_FILE_PREFIX = "chunk-";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ImageService imageService;
+
+    /**
+     * 上传会话，key为上传会话ID
+     */
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${upload.chunk.temp-path}")
+    private String tempPath;
+
+    @Value("${upload.chunk.chunk-size:1048576}")
+    private int chunkSize;
+
+    @Value("${upload.chunk.max-file-size:10485760}")
+    private long maxFileSize;
+
+    @Value("${upload.chunk.session-timeout:86400000}")
+    private long sessionTimeout;
+
+    @Override
+    public UploadSessionVO initUpload(UploadInitDTO initDTO) {
+        Long userId = SecurityUtil.getCurrentUserId();
+
+        // 验证文件信息
+        if (initDTO.getFileName() == null || initDTO.getFileName().isBlank()) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "文件名不能为空");
+        }
+        if (initDTO.getContentType() == null || !initDTO.getContentType().startsWith("image/")) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "只能上传图片文件");
+        }
+        if (initDTO.getSize() == null || initDTO.getSize() <= 0) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "文件大小无效");
+        }
+        if (initDTO.getSize() > maxFileSize) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "图片大小不能超过" + maxFileSize / 1024 / 1024 + "MB");
+        }
+
+        String uploadId = UUID.randomUUID().toString().replace("-", "");
+        Path directory = Paths.get(tempPath, uploadId);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            log.error("创建上传会话目录失败: {}", directory, e);
+            throw new BusinessException(ResultCode.SYSTEM_ERROR, "创建上传会话失败");
+        }
+
+        UploadSession session = new UploadSession(uploadId, userId, initDTO, chunkSize, directory);
+        sessions.put(uploadId, session);
+        log.info("创建上传会话: uploadId={}, userId={}, size={}, totalChunks={}",
+                uploadId, userId, initDTO.getSize(), session.totalChunks);
+        return toVO(session);
+    }
+
+    @Override
+    public UploadSessionVO uploadChunk(String uploadId, int index, InputStream inputStream) {
+        UploadSession session = getSession(uploadId);
+        if (index < 0 || index >= session.totalChunks) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "分片序号无效");
+        }
+
+        try {
+            session.lock.lock();
+            try {
+                checkActive(session);
+                if (session.isReceived(index)) {
+                    // 重复上传的分片直接忽略，保证重试幂等
+                    return toVO(session);
+                }
+                if (index == session.nextIndex) {
+                    // 按序到达，直接追加到数据文件
+                    appendChunk(session, inputStream);
+                    mergeParkedChunks(session);
+                    return toVO(session);
+                }
+            } finally {
+                session.lock.unlock();
+            }
+
+            // 乱序到达，在锁外写入暂存文件，避免阻塞其他分片
+            Path part = session.directory.resolve(CHUNK_FILE_PREFIX + index + "." + UUID.randomUUID() + ".part");
+            try {
+                try (OutputStream out = Files.newOutputStream(part)) {
+                    checkLength(copy(inputStream, out, session.chunkLength(index)), session.chunkLength(index));
+                }
+                session.lock.lock();
+                try {
+                    checkActive(session);
+                    if (!session.isReceived(index)) {
+                        Files.move(part, session.chunkFile(index), StandardCopyOption.REPLACE_EXISTING);
+                        session.parked.add(index);
+                        mergeParkedChunks(session);
+                    }
+                    return toVO(session);
+                } finally {
+                    session.lock.unlock();
+                }
+            } finally {
+                Files.deleteIfExists(part);
+            }
+        } catch (IOException e) {
+            log.error("上传分片失败: uploadId={}, index={}", uploadId, index, e);
+            throw new BusinessException(ResultCode.SYSTEM_ERROR, "上传分片失败: " + e.getMessage());
+        } finally {
+            session.touch();
+        }
+    }
+
+    @Override
+    public UploadSessionVO getStatus(String uploadId) {
+        UploadSession session = getSession(uploadId);
+        session.lock.lock();
+        try {
+            return toVO(session);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    @Override
+    public ImageUploadVO completeUpload(String uploadId) {
+        UploadSession session = getSession(uploadId);
+        session.lock.lock();
+        try {
+            checkActive(session);
+            if (session.nextIndex < session.totalChunks) {
+                throw new BusinessException(ResultCode.PARAM_ERROR, "分片尚未全部上传");
+            }
+
+            ImageUploadVO result = imageService.uploadImage(session.userId, session.directory.resolve(DATA_FILE).toFile(),
+                    session.fileName, session.contentType, hex(session.md5), hex(session.sha256));
+            removeSession(session);
+            log.info("分片上传完成: uploadId={}, imageId={}", uploadId, result.getId());
+            return result;
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    @Override
+    public void abortUpload(String uploadId) {
+        UploadSession session = getSession(uploadId);
+        session.lock.lock();
+        try {
+            removeSession(session);
+            log.info("取消上传会话: uploadId={}", uploadId);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * 定时清理过期的上传会话
+     */
+    @Scheduled(fixedDelayString = "${upload.chunk.cleanup-interval:600000}")
+    public void cleanExpiredSessions() {
+        long deadline = System.currentTimeMillis() - sessionTimeout;
+        for (UploadSession session : sessions.values()) {
+            if (session.lastAccessTime < deadline && session.lock.tryLock()) {
+                try {
+                    removeSession(session);
+                    log.info("清理过期上传会话: uploadId={}", session.uploadId);
+                } finally {
+                    session.lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取当前用户的上传会话
+     */
+    private UploadSession getSession(String uploadId) {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null) {
+            throw new BusinessException(ResultCode.DATA_NOT_FOUND, "上传会话不存在或已过期");
+        }
+        if (!session.userId.equals(SecurityUtil.getCurrentUserId())) {
+            throw new BusinessException(ResultCode.FORBIDDEN, "无权访问该上传会话");
+        }
+        return session;
+    }
+
+    /**
+     * 检查会话在等待锁期间未被完成或取消
+     */
+    private void checkActive(UploadSession session) {
+        if (sessions.get(session.uploadId) != session) {
+            throw new BusinessException(ResultCode.DATA_NOT_FOUND, "上传会话不存在或已过期");
+        }
+    }
+
+    /**
+     * 将下一个分片追加到数据文件，失败时截断回追加前的位置
+     */
+    private void appendChunk(UploadSession session, InputStream in) throws IOException {
+        long expected = session.chunkLength(session.nextIndex);
+        MessageDigest md5 = cloneDigest(session.md5);
+        MessageDigest sha256 = cloneDigest(session.sha256);
+        try (FileChannel channel = FileChannel.open(session.directory.resolve(DATA_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long position = session.receivedBytes;
+            channel.position(position);
+            try {
+                checkLength(copy(in, Channels.newOutputStream(channel), expected, md5, sha256), expected);
+            } catch (IOException | RuntimeException e) {
+                channel.truncate(position);
+                throw e;
+            }
+        }
+        session.md5 = md5;
+        session.sha256 = sha256;
+        session.receivedBytes += expected;
+        session.nextIndex++;
+    }
+
+    /**
+     * 依次合并已暂存且与数据文件连续的分片
+     */
+    private void mergeParkedChunks(UploadSession session) throws IOException {
+        while (session.parked.remove(session.nextIndex)) {
+            Path chunk = session.chunkFile(session.nextIndex);
+            try (InputStream in = Files.newInputStream(chunk)) {
+                appendChunk(session, in);
+            }
+            Files.deleteIfExists(chunk);
+        }
+    }
+
+    /**
+     * 复制分片数据，最多读取期望长度+1字节以识别超长分片
+     *
+     * @return 实际读取的字节数
+     */
+    private long copy(InputStream in, OutputStream out, long expected, MessageDigest... digests) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int n;
+        while (total <= expected
+                && (n = in.read(buffer, 0, (int) Math.min(buffer.length, expected + 1 - total))) != -1) {
+            for (MessageDigest digest : digests) {
+                digest.update(buffer, 0, n);
+            }
+            out.write(buffer, 0, n);
+            total += n;
+        }
+        out.flush();
+        return total;
+    }
+
+    private void checkLength(long actual, long expected) {
+        if (actual != expected) {
+            throw new BusinessException(ResultCode.PARAM_ERROR,
+                    "分片大小不正确，期望" + expected + "字节，实际" + (actual > expected ? "超出" : actual + "字节"));
+        }
+    }
+
+    /**
+     * 移除会话并删除临时文件
+     */
+    private void removeSession(UploadSession session) {
+        sessions.remove(session.uploadId, session);
+        try (Stream<Path> paths = Files.walk(session.directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            log.warn("删除上传临时文件失败: {}", session.directory, e);
+        }
+    }
+
+    private UploadSessionVO toVO(UploadSession session) {
+        List<Integer> received = new ArrayList<>(session.nextIndex + session.parked.size());
+        for (int i = 0; i < session.nextIndex; i++) {
+            received.add(i);
+        }
+        received.addAll(session.parked);
+        return UploadSessionVO.builder()
+                .uploadId(session.uploadId)
+                .chunkSize(session.chunkSize)
+                .totalChunks(session.totalChunks)
+                .receivedChunks(received)
+                .build();
+    }
+
+    private static String hex(MessageDigest digest) {
+        // 使用副本计算，保存失败时会话摘要仍可继续使用
+        return HexFormat.of().formatHex(cloneDigest(digest).digest());
+    }
+
+    private static MessageDigest cloneDigest(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Digest clone not supported", e);
+        }
+    }
+
+    /**
+     * 上传会话
+     */
+    private static class UploadSession {
+
+        private final String uploadId;
+        private final Long userId;
+        private final String fileName;
+        private final String contentType;
+        private final long size;
+        private final int chunkSize;
+        private final int totalChunks;
+        private final Path directory;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * 已暂存、尚未合并的分片序号
+         */
+        private final TreeSet<Integer> parked = new TreeSet<>();
+
+        /**
+         * 下一个待追加的分片序号
+         */
+        private int nextIndex;
+
+        /**
+         * 数据文件已写入的字节数
+         */
+        private long receivedBytes;
+
+        private MessageDigest md5;
+        private MessageDigest sha256;
+        private volatile long lastAccessTime = System.currentTimeMillis();
+
+        UploadSession(String uploadId, Long userId, UploadInitDTO initDTO, int chunkSize, Path directory) {
+            this.uploadId = uploadId;
+            this.userId = userId;
+            this.fileName = initDTO.getFileName();
+            this.contentType = initDTO.getContentType();
+            this.size = initDTO.getSize();
+            this.chunkSize = chunkSize;
+            this.totalChunks = (int) ((size + chunkSize - 1) / chunkSize);
+            this.directory = directory;
+            try {
+                this.md5 = MessageDigest.getInstance("MD5");
+                this.sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("Digest algorithm not available", e);
+            }
+        }
+
+        boolean isReceived(int index) {
+            return index < nextIndex || parked.contains(index);
+        }
+
+        long chunkLength(int index) {
+            return index < totalChunks - 1 ? chunkSize : size - (long) chunkSize * (totalChunks - 1);
+        }
+
+        Path chunkFile(int index) {
+            return directory.resolve(CHUNK_FILE_PREFIX + index);
+        }
+
+        void touch() {
+            lastAccessTime = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.common.exception.BusinessException;
+import com.imagehosting.common.result.ResultCode;
+import com.imagehosting.dao.ImageBlobDao;
+import com.imagehosting.model.entity.Image;
+import com.imagehosting.model.entity.ImageBlob;
+import com.imagehosting.service.ImageBlobService;
+import com.imagehosting.service.StorageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * 图片内容服务实现类
+ */
+@Slf4j
+@Service
+public class ImageBlobServiceImpl implements ImageBlobService {
+
+    /**
+     * 并发登记相同内容时的最大重试次数
+     */
+    private static final int MAX_ACQUIRE_ATTEMPTS = 3;
+
+    private final ImageBlobDao imageBlobDao;
+    private final StorageService storageService;
+
+    /**
+     * 独立事务模板，使引用登记立即提交，避免长事务持有内容行锁
+     */
+    private final TransactionTemplate requiresNewTemplate;
+
+    public ImageBlobServiceImpl(ImageBlobDao imageBlobDao, StorageService storageService,
+                                PlatformTransactionManager transactionManager) {
+        this.imageBlobDao = imageBlobDao;
+        this.storageService = storageService;
+        this.requiresNewTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNewTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public ImageBlob acquire(String hash, String md5, long size, String uploadedPath) {
+        for (int attempt = 1; attempt <= MAX_ACQUIRE_ATTEMPTS; attempt++) {
+            try {
+                ImageBlob blob = requiresNewTemplate.execute(status -> tryAcquire(hash, md5, size, uploadedPath));
+                if (blob != null) {
+                    if (!blob.getPath().equals(uploadedPath)) {
+                        // 并发上传的相同内容已先登记，丢弃刚写入的副本
+                        storageService.deleteFile(uploadedPath);
+                        log.info("图片内容已存在，复用: hash={}, path={}", hash, blob.getPath());
+                    }
+                    releaseOnRollback(blob.getId());
+                    return blob;
+                }
+            } catch (DuplicateKeyException e) {
+                log.debug("并发登记相同内容，重试: hash={}, attempt={}", hash, attempt);
+            }
+        }
+        storageService.deleteFile(uploadedPath);
+        throw new BusinessException(ResultCode.SYSTEM_ERROR, "登记图片内容失败");
+    }
+
+    @Override
+    public ImageBlob reference(String hash, String md5, long size) {
+        ImageBlob blob = requiresNewTemplate.execute(status -> tryReference(hash, md5, size));
+        if (blob != null) {
+            releaseOnRollback(blob.getId());
+        }
+        return blob;
+    }
+
+    @Override
+    public void release(Image image) {
+        // 早期图片未关联内容记录，直接删除文件
+        if (image.getBlobId() == null) {
+            deleteAfterCommit(image.getPath());
+            return;
+        }
+
+        // 先减少引用计数锁定记录，再读取路径，存储迁移修改路径时等待其提交，删除的总是最新路径
+        imageBlobDao.decrementRefCount(image.getBlobId());
+        ImageBlob blob = imageBlobDao.findById(image.getBlobId());
+        if (blob == null) {
+            log.warn("图片内容记录不存在: imageId={}, blobId={}", image.getId(), image.getBlobId());
+            return;
+        }
+
+        if (imageBlobDao.deleteUnreferenced(blob.getId()) > 0) {
+            deleteAfterCommit(blob.getPath());
+        }
+    }
+
+    /**
+     * 在独立事务中登记内容
+     *
+     * @return 实际引用的内容，增加引用失败时返回null以便重试
+     */
+    private ImageBlob tryAcquire(String hash, String md5, long size, String uploadedPath) {
+        ImageBlob existing = imageBlobDao.findByHash(hash);
+        if (existing != null) {
+            // 引用计数已归零的内容正在被删除，返回null重新登记
+            return imageBlobDao.incrementRefCount(existing.getId()) > 0 ? imageBlobDao.findById(existing.getId()) : null;
+        }
+
+        ImageBlob blob = ImageBlob.builder()
+                .hash(hash)
+                .md5(md5)
+                .path(uploadedPath)
+                .size(size)
+                .refCount(1)
+                .createTime(LocalDateTime.now())
+                .updateTime(LocalDateTime.now())
+                .build();
+        imageBlobDao.insert(blob);
+        return blob;
+    }
+
+    /**
+     * 为已存在的内容增加引用
+     *
+     * @return 图片内容，不存在或正在被删除时返回null
+     */
+    private ImageBlob tryReference(String hash, String md5, long size) {
+        ImageBlob existing = imageBlobDao.findByHash(hash);
+        if (existing == null || !existing.getMd5().equalsIgnoreCase(md5) || existing.getSize() != size
+                || imageBlobDao.incrementRefCount(existing.getId()) == 0) {
+            return null;
+        }
+        // 增加引用后重新读取路径，存储迁移据引用计数判断是否还有未提交的图片记录使用旧路径
+        return imageBlobDao.findById(existing.getId());
+    }
+
+    /**
+     * 外层事务回滚时撤销已登记的引用
+     *
+     * @param blobId 内容ID
+     */
+    private void releaseOnRollback(Long blobId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    requiresNewTemplate.executeWithoutResult(s ->
+                            release(Image.builder().blobId(blobId).build()));
+                }
+            }
+        });
+    }
+
+    /**
+     * 事务提交后删除物理文件，避免回滚后记录仍在而文件已丢失
+     *
+     * @param path 文件路径
+     */
+    private void deleteAfterCommit(String path) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            storageService.deleteFile(path);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                storageService.deleteFile(path);
+            }
+        });
+    }
+}
@@ -0,0 +1,634 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.common.exception.BusinessException;
+import com.imagehosting.common.result.ResultCode;
+import com.imagehosting.service.ImageCodecService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.NodeList;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.spi.ImageWriterSpi;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 图片编解码服务实现
+ */
+@Slf4j
+@Service
+public class ImageCodecServiceImpl implements ImageCodecService {
+
+    private static final String JPEG = "jpeg";
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+    private static final String GIF = "gif";
+    private static final String GIF_IMAGE_METADATA_FORMAT = "javax_imageio_gif_image_1.0";
+    private static final String GIF_STREAM_METADATA_FORMAT = "javax_imageio_gif_stream_1.0";
+
+    /**
+     * 有损格式，压缩质量只对这些格式生效
+     */
+    private static final Set<String> LOSSY_FORMATS = Set.of(JPEG, "webp");
+
+    /**
+     * 不支持透明通道的格式，编码前合成到白色背景
+     */
+    private static final Set<String> OPAQUE_FORMATS = Set.of(JPEG, "bmp");
+
+    /**
+     * 识别格式需要读取的文件头长度
+     */
+    private static final int SIGNATURE_LENGTH = 12;
+
+    /**
+     * 每种格式缓存的编解码器数量，0表示CPU核数
+     */
+    @Value("${image.codec.pool-size:0}")
+    private int poolSize;
+
+    /**
+     * JPEG压缩质量（0-1）
+     */
+    @Value("${image.codec.jpeg.quality:0.85}")
+    private float jpegQuality;
+
+    /**
+     * 是否输出渐进式JPEG
+     */
+    @Value("${image.codec.jpeg.progressive:true}")
+    private boolean jpegProgressive;
+
+    /**
+     * JPEG色度抽样：420、422、444
+     */
+    @Value("${image.codec.jpeg.chroma-subsampling:420}")
+    private String jpegChromaSubsampling;
+
+    /**
+     * PNG压缩级别（0-9）
+     */
+    @Value("${image.codec.png.compression-level:6}")
+    private int pngCompressionLevel;
+
+    /**
+     * WebP压缩质量（0-1），需安装WebP编码器
+     */
+    @Value("${image.codec.webp.quality:0.8}")
+    private float webpQuality;
+
+    private final Map<String, Optional<ImageReaderSpi>> readerProviders = new ConcurrentHashMap<>();
+    private final Map<String, Optional<ImageWriterSpi>> writerProviders = new ConcurrentHashMap<>();
+    private final Map<String, BlockingQueue<ImageReader>> readerPool = new ConcurrentHashMap<>();
+    private final Map<String, BlockingQueue<ImageWriter>> writerPool = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (poolSize <= 0) {
+            poolSize = Runtime.getRuntime().availableProcessors();
+        }
+        // 包装普通流时使用内存缓存，不创建临时文件
+        ImageIO.setUseCache(false);
+    }
+
+    @Override
+    public <T> T read(ImageInputStream input, ReaderCallback<T> callback) throws IOException {
+        String format = detectFormat(input);
+        ImageReader reader = format != null ? borrowReader(format) : null;
+        if (reader != null) {
+            try {
+                return callback.read(reader);
+            } finally {
+                releaseReader(format, reader);
+            }
+        }
+
+        // 未识别的格式回退到SPI查找（如安装了插件的其他格式）
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        reader = readers.next();
+        try {
+            return callback.read(reader);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    @Override
+    public BufferedImage decode(File file, Rectangle region, int subsampling) throws IOException {
+        try (ImageInputStream input = new FileImageInputStream(file)) {
+            return decode(input, region, subsampling);
+        }
+    }
+
+    @Override
+    public BufferedImage decode(InputStream inputStream, int subsampling) throws IOException {
+        try (ImageInputStream input = new MemoryCacheImageInputStream(inputStream)) {
+            return decode(input, null, subsampling);
+        }
+    }
+
+    private BufferedImage decode(ImageInputStream input, Rectangle region, int subsampling) throws IOException {
+        BufferedImage image = read(input, reader -> {
+            reader.setInput(input, true, true);
+            ImageReadParam param = reader.getDefaultReadParam();
+            if (region != null) {
+                param.setSourceRegion(region);
+            }
+            if (subsampling > 1) {
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            }
+            return reader.read(0, param);
+        });
+        if (image == null) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "无法识别的图片格式");
+        }
+        return image;
+    }
+
+    @Override
+    public BufferedImage orient(BufferedImage image, Integer orientation) {
+        if (orientation == null || orientation <= 1 || orientation > 8) {
+            return image;
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform transform;
+        switch (orientation) {
+            case 2:
+                transform = new AffineTransform(-1, 0, 0, 1, w, 0);
+                break;
+            case 3:
+                transform = new AffineTransform(-1, 0, 0, -1, w, h);
+                break;
+            case 4:
+                transform = new AffineTransform(1, 0, 0, -1, 0, h);
+                break;
+            case 5:
+                transform = new AffineTransform(0, 1, 1, 0, 0, 0);
+                break;
+            case 6:
+                transform = new AffineTransform(0, 1, -1, 0, h, 0);
+                break;
+            case 7:
+                transform = new AffineTransform(0, -1, -1, 0, h, w);
+                break;
+            default:
+                transform = new AffineTransform(0, -1, 1, 0, 0, w);
+                break;
+        }
+
+        // 方向5-8需要旋转90度，宽高互换
+        boolean swap = orientation >= 5;
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage oriented = new BufferedImage(swap ? h : w, swap ? w : h, type);
+        Graphics2D g2d = oriented.createGraphics();
+        try {
+            g2d.drawImage(image, transform, null);
+        } finally {
+            g2d.dispose();
+        }
+        return oriented;
+    }
+
+    @Override
+    public void encode(BufferedImage image, String format, Float quality, File target) throws IOException {
+        String formatName = formatName(format);
+        ImageWriter writer = borrowWriter(formatName);
+        if (writer == null) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "不支持的输出格式: " + format);
+        }
+
+        BufferedImage encodable = OPAQUE_FORMATS.contains(formatName) ? toOpaque(image) : image;
+        // FileImageOutputStream不会截断已有内容
+        Files.deleteIfExists(target.toPath());
+        try (ImageOutputStream output = new FileImageOutputStream(target)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            IIOMetadata metadata = applyProfile(writer, param, encodable, formatName, quality);
+            writer.write(null, new IIOImage(encodable, null, metadata), param);
+        } finally {
+            releaseWriter(formatName, writer);
+        }
+    }
+
+    @Override
+    public boolean canEncode(String format) {
+        return writerProvider(formatName(format)).isPresent();
+    }
+
+    @Override
+    public void transformAnimation(File source, File target, Dimension canvas, FrameTransform transform)
+            throws IOException {
+        ImageWriter writer = borrowWriter(GIF);
+        if (writer == null) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "不支持的输出格式: " + GIF);
+        }
+
+        Files.deleteIfExists(target.toPath());
+        try (ImageInputStream input = new FileImageInputStream(source);
+             ImageOutputStream output = new FileImageOutputStream(target)) {
+            Integer frames = read(input, reader -> {
+                if (!GIF.equalsIgnoreCase(reader.getFormatName())) {
+                    throw new BusinessException(ResultCode.PARAM_ERROR, "仅支持GIF动图");
+                }
+                // 只向前读取，已读过的帧不再缓存
+                reader.setInput(input, true, false);
+                writer.setOutput(output);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                writer.prepareWriteSequence(gifStreamMetadata(writer, param, canvas));
+
+                int index = 0;
+                while (true) {
+                    IIOMetadataNode frameTree;
+                    BufferedImage frame;
+                    try {
+                        frameTree = (IIOMetadataNode) reader.getImageMetadata(index).getAsTree(GIF_IMAGE_METADATA_FORMAT);
+                        frame = reader.read(index);
+                    } catch (IndexOutOfBoundsException e) {
+                        break;
+                    }
+                    IIOMetadataNode descriptor = child(frameTree, "ImageDescriptor");
+                    Rectangle bounds = new Rectangle(
+                            Integer.parseInt(descriptor.getAttribute("imageLeftPosition")),
+                            Integer.parseInt(descriptor.getAttribute("imageTopPosition")),
+                            frame.getWidth(), frame.getHeight());
+
+                    AnimationFrame result = transform.apply(frame, bounds);
+                    BufferedImage image = result.getImage();
+                    if (!(image.getColorModel() instanceof IndexColorModel)
+                            && frame.getColorModel() instanceof IndexColorModel) {
+                        // 缩放后的ARGB帧按原帧调色板转回索引色，保留透明色
+                        image = toIndexed(image, (IndexColorModel) frame.getColorModel());
+                    }
+                    writer.writeToSequence(new IIOImage(image, null,
+                            gifFrameMetadata(writer, param, image, result, frameTree)), param);
+                    index++;
+                }
+                writer.endWriteSequence();
+                return index;
+            });
+            if (frames == null) {
+                throw new BusinessException(ResultCode.PARAM_ERROR, "无法识别的图片格式");
+            }
+        } finally {
+            releaseWriter(GIF, writer);
+        }
+    }
+
+    /**
+     * 生成GIF文件头元数据（画布尺寸）
+     */
+    private IIOMetadata gifStreamMetadata(ImageWriter writer, ImageWriteParam param, Dimension canvas)
+            throws IOException {
+        IIOMetadata metadata = writer.getDefaultStreamMetadata(param);
+        IIOMetadataNode root = new IIOMetadataNode(GIF_STREAM_METADATA_FORMAT);
+        IIOMetadataNode screen = new IIOMetadataNode("LogicalScreenDescriptor");
+        screen.setAttribute("logicalScreenWidth", String.valueOf(canvas.width));
+        screen.setAttribute("logicalScreenHeight", String.valueOf(canvas.height));
+        screen.setAttribute("colorResolution", "8");
+        screen.setAttribute("pixelAspectRatio", "0");
+        root.appendChild(screen);
+        metadata.mergeTree(GIF_STREAM_METADATA_FORMAT, root);
+        return metadata;
+    }
+
+    /**
+     * 生成帧元数据：沿用原帧的延迟、处置方式和循环设置，颜色表和透明色取自新帧的调色板
+     */
+    private IIOMetadata gifFrameMetadata(ImageWriter writer, ImageWriteParam param, BufferedImage image,
+                                         AnimationFrame frame, IIOMetadataNode source) throws IOException {
+        IIOMetadata metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(image), param);
+        IIOMetadataNode root = new IIOMetadataNode(GIF_IMAGE_METADATA_FORMAT);
+
+        IIOMetadataNode descriptor = new IIOMetadataNode("ImageDescriptor");
+        descriptor.setAttribute("imageLeftPosition", String.valueOf(frame.getX()));
+        descriptor.setAttribute("imageTopPosition", String.valueOf(frame.getY()));
+        descriptor.setAttribute("imageWidth", String.valueOf(image.getWidth()));
+        descriptor.setAttribute("imageHeight", String.valueOf(image.getHeight()));
+        descriptor.setAttribute("interlaceFlag", "FALSE");
+        root.appendChild(descriptor);
+
+        // 合并图形控制扩展时必须给出全部属性，透明色沿用默认元数据按调色板设置的值
+        int transparentIndex = image.getColorModel() instanceof IndexColorModel
+                ? ((IndexColorModel) image.getColorModel()).getTransparentPixel() : -1;
+        IIOMetadataNode control = child(source, "GraphicControlExtension");
+        IIOMetadataNode copy = new IIOMetadataNode("GraphicControlExtension");
+        copy.setAttribute("disposalMethod", control != null ? control.getAttribute("disposalMethod") : "none");
+        copy.setAttribute("userInputFlag", control != null ? control.getAttribute("userInputFlag") : "FALSE");
+        copy.setAttribute("delayTime", control != null ? control.getAttribute("delayTime") : "0");
+        copy.setAttribute("transparentColorFlag", transparentIndex != -1 ? "TRUE" : "FALSE");
+        copy.setAttribute("transparentColorIndex", String.valueOf(Math.max(transparentIndex, 0)));
+        root.appendChild(copy);
+        IIOMetadataNode applications = child(source, "ApplicationExtensions");
+        if (applications != null) {
+            // IIOMetadataNode.cloneNode不复制属性，直接移入新树（原帧的元数据树不再使用）
+            root.appendChild(applications);
+        }
+
+        metadata.mergeTree(GIF_IMAGE_METADATA_FORMAT, root);
+        return metadata;
+    }
+
+    /**
+     * 按调色板将帧转为索引色图像，半透明以下的像素映射到透明色
+     * <p>
+     * 调色板没有透明色而帧中有透明像素时，追加一个透明色；调色板已满时占用最后一个位置。
+     *
+     * @param image   帧图像
+     * @param palette 原帧调色板
+     * @return 索引色图像
+     */
+    private BufferedImage toIndexed(BufferedImage image, IndexColorModel palette) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        int size = palette.getMapSize();
+        int transparentIndex = palette.getTransparentPixel();
+        if (transparentIndex == -1 && hasTransparentPixel(pixels)) {
+            transparentIndex = size < 256 ? size++ : size - 1;
+        }
+        byte[] reds = new byte[size];
+        byte[] greens = new byte[size];
+        byte[] blues = new byte[size];
+        int colors = Math.min(size, palette.getMapSize());
+        palette.getReds(reds);
+        palette.getGreens(greens);
+        palette.getBlues(blues);
+        IndexColorModel colorModel = new IndexColorModel(8, size, reds, greens, blues, transparentIndex);
+
+        BufferedImage indexed = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+        WritableRaster raster = indexed.getRaster();
+        Map<Integer, Integer> nearest = new HashMap<>();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int argb = pixels[y * width + x];
+                int index;
+                if ((argb >>> 24) < 128 && transparentIndex != -1) {
+                    index = transparentIndex;
+                } else {
+                    int excluded = transparentIndex;
+                    index = nearest.computeIfAbsent(argb & 0xFFFFFF,
+                            rgb -> nearestColor(rgb, reds, greens, blues, colors, excluded));
+                }
+                raster.setSample(x, y, 0, index);
+            }
+        }
+        return indexed;
+    }
+
+    private boolean hasTransparentPixel(int[] pixels) {
+        for (int argb : pixels) {
+            if ((argb >>> 24) < 128) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 查找调色板中最接近的颜色，跳过透明色
+     */
+    private int nearestColor(int rgb, byte[] reds, byte[] greens, byte[] blues, int colors, int excluded) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        int best = excluded == 0 && colors > 1 ? 1 : 0;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < colors; i++) {
+            if (i == excluded) {
+                continue;
+            }
+            int dr = r - (reds[i] & 0xFF);
+            int dg = g - (greens[i] & 0xFF);
+            int db = b - (blues[i] & 0xFF);
+            int distance = dr * dr + dg * dg + db * db;
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private IIOMetadataNode child(IIOMetadataNode parent, String name) {
+        NodeList nodes = parent.getElementsByTagName(name);
+        return nodes.getLength() > 0 ? (IIOMetadataNode) nodes.item(0) : null;
+    }
+
+    /**
+     * 按格式设置编码参数
+     *
+     * @return 需要写入的图片元数据，使用默认值时返回null
+     */
+    private IIOMetadata applyProfile(ImageWriter writer, ImageWriteParam param, BufferedImage image,
+                                     String formatName, Float quality) throws IOException {
+        if (param.canWriteCompressed()) {
+            if (LOSSY_FORMATS.contains(formatName)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionType() == null && param.getCompressionTypes().length > 0) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                float defaultQuality = JPEG.equals(formatName) ? jpegQuality : webpQuality;
+                param.setCompressionQuality(quality != null ? quality : defaultQuality);
+            } else if ("png".equals(formatName)) {
+                // PNG编码器按 9 - round(9 * quality) 换算deflate级别
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(1 - Math.max(0, Math.min(9, pngCompressionLevel)) / 9f);
+            }
+        }
+        if (!JPEG.equals(formatName)) {
+            return null;
+        }
+
+        if (jpegProgressive && param.canWriteProgressive()) {
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        }
+        return chromaSubsampling(writer, param, image);
+    }
+
+    /**
+     * 设置JPEG亮度分量的抽样因子（色度分量固定为1）
+     */
+    private IIOMetadata chromaSubsampling(ImageWriter writer, ImageWriteParam param, BufferedImage image)
+            throws IOException {
+        int horizontal;
+        int vertical;
+        switch (jpegChromaSubsampling) {
+            case "444":
+                horizontal = 1;
+                vertical = 1;
+                break;
+            case "422":
+                horizontal = 2;
+                vertical = 1;
+                break;
+            default:
+                return null;
+        }
+
+        IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), param);
+        IIOMetadataNode tree = (IIOMetadataNode) metadata.getAsTree(JPEG_METADATA_FORMAT);
+        NodeList components = tree.getElementsByTagName("componentSpec");
+        if (components.getLength() == 0) {
+            return null;
+        }
+        IIOMetadataNode luma = (IIOMetadataNode) components.item(0);
+        luma.setAttribute("HsamplingFactor", String.valueOf(horizontal));
+        luma.setAttribute("VsamplingFactor", String.valueOf(vertical));
+        metadata.setFromTree(JPEG_METADATA_FORMAT, tree);
+        return metadata;
+    }
+
+    /**
+     * 合成到白色背景，去除透明通道并将调色板等类型转换为RGB
+     */
+    private BufferedImage toOpaque(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            return image;
+        }
+        BufferedImage opaque = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = opaque.createGraphics();
+        try {
+            g2d.setColor(Color.WHITE);
+            g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g2d.drawImage(image, 0, 0, null);
+        } finally {
+            g2d.dispose();
+        }
+        return opaque;
+    }
+
+    /**
+     * 按文件头识别格式，读取后恢复流位置
+     *
+     * @return ImageIO格式名，无法识别时返回null
+     */
+    private String detectFormat(ImageInputStream input) throws IOException {
+        byte[] header = new byte[SIGNATURE_LENGTH];
+        input.mark();
+        int length;
+        try {
+            length = input.read(header);
+            while (length > 0 && length < SIGNATURE_LENGTH) {
+                int n = input.read(header, length, SIGNATURE_LENGTH - length);
+                if (n < 0) {
+                    break;
+                }
+                length += n;
+            }
+        } finally {
+            input.reset();
+        }
+
+        if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return JPEG;
+        }
+        if (length >= 8 && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G') {
+            return "png";
+        }
+        if (length >= 6 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F' && header[3] == '8') {
+            return "gif";
+        }
+        if (length >= 2 && header[0] == 'B' && header[1] == 'M') {
+            return "bmp";
+        }
+        if (length >= 12 && "RIFF".equals(new String(header, 0, 4, StandardCharsets.US_ASCII))
+                && "WEBP".equals(new String(header, 8, 4, StandardCharsets.US_ASCII))) {
+            return "webp";
+        }
+        if (length >= 4 && ((header[0] == 'I' && header[1] == 'I' && header[2] == 42 && header[3] == 0)
+                || (header[0] == 'M' && header[1] == 'M' && header[2] == 0 && header[3] == 42))) {
+            return "tiff";
+        }
+        return null;
+    }
+
+    private ImageReader borrowReader(String format) throws IOException {
+        ImageReader reader = pool(readerPool, format).poll();
+        if (reader != null) {
+            return reader;
+        }
+        Optional<ImageReaderSpi> provider = readerProviders.computeIfAbsent(format, name -> {
+            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName(name);
+            return readers.hasNext() ? Optional.of(readers.next().getOriginatingProvider()) : Optional.empty();
+        });
+        return provider.isPresent() ? provider.get().createReaderInstance() : null;
+    }
+
+    private void releaseReader(String format, ImageReader reader) {
+        reader.reset();
+        if (!pool(readerPool, format).offer(reader)) {
+            reader.dispose();
+        }
+    }
+
+    private ImageWriter borrowWriter(String format) throws IOException {
+        ImageWriter writer = pool(writerPool, format).poll();
+        if (writer != null) {
+            return writer;
+        }
+        Optional<ImageWriterSpi> provider = writerProvider(format);
+        return provider.isPresent() ? provider.get().createWriterInstance() : null;
+    }
+
+    private void releaseWriter(String format, ImageWriter writer) {
+        writer.reset();
+        if (!pool(writerPool, format).offer(writer)) {
+            writer.dispose();
+        }
+    }
+
+    private Optional<ImageWriterSpi> writerProvider(String format) {
+        return writerProviders.computeIfAbsent(format, name -> {
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(name);
+            return writers.hasNext() ? Optional.of(writers.next().getOriginatingProvider()) : Optional.empty();
+        });
+    }
+
+    private <T> BlockingQueue<T> pool(Map<String, BlockingQueue<T>> pools, String format) {
+        return pools.computeIfAbsent(format, name -> new ArrayBlockingQueue<>(poolSize));
+    }
+
+    /**
+     * 文件扩展名转换为ImageIO格式名
+     */
+    private String formatName(String format) {
+        String lower = format.toLowerCase();
+        return "jpg".equals(lower) ? JPEG : lower;
+    }
+}
@@ -0,0 +1,110 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.dao.ImageDerivativeDao;
+import com.imagehosting.model.dto.ImageMetadataDTO;
+import com.imagehosting.model.entity.ImageDerivative;
+import com.imagehosting.service.ImageDerivativeService;
+import com.imagehosting.service.ImageMetadataService;
+import com.imagehosting.service.StorageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 图片衍生图服务实现类
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageDerivativeServiceImpl implements ImageDerivativeService {
+
+    /**
+     * 衍生图存储目录
+     */
+    private static final String DIRECTORY = "processed";
+
+    private final ImageDerivativeDao imageDerivativeDao;
+    private final StorageService storageService;
+    private final ImageMetadataService imageMetadataService;
+
+    @Override
+    public ImageDerivative find(Long imageId, String operation) {
+        return imageDerivativeDao.findByImageIdAndOperation(imageId, operation);
+    }
+
+    @Override
+    public List<ImageDerivative> findByImageIds(List<Long> imageIds) {
+        if (imageIds == null || imageIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return imageDerivativeDao.findByImageIds(imageIds);
+    }
+
+    @Override
+    public ImageDerivative register(Long imageId, String operation, File file, String format) throws IOException {
+        ImageMetadataDTO metadata = imageMetadataService.probe(file);
+
+        String path;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            path = storageService.uploadFile(in, file.length(), "derivative." + format, DIRECTORY);
+        }
+
+        ImageDerivative derivative = ImageDerivative.builder()
+                .imageId(imageId)
+                .operation(operation)
+                .path(path)
+                .format(format)
+                .size(file.length())
+                .width(metadata != null ? metadata.getWidth() : null)
+                .height(metadata != null ? metadata.getHeight() : null)
+                .replicationState(storageService.requiresReplication() ? 0 : null)
+                .createTime(LocalDateTime.now())
+                .build();
+        try {
+            imageDerivativeDao.insert(derivative);
+            return derivative;
+        } catch (DuplicateKeyException e) {
+            // 其他请求或节点已生成相同的衍生图
+            storageService.deleteFile(path);
+            log.debug("衍生图已存在，复用: imageId={}, operation={}", imageId, operation);
+            return imageDerivativeDao.findByImageIdAndOperation(imageId, operation);
+        }
+    }
+
+    @Override
+    public void deleteByImageId(Long imageId) {
+        List<ImageDerivative> derivatives = imageDerivativeDao.findByImageId(imageId);
+        if (derivatives.isEmpty()) {
+            return;
+        }
+        imageDerivativeDao.deleteByImageId(imageId);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleteFiles(derivatives);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteFiles(derivatives);
+            }
+        });
+    }
+
+    private void deleteFiles(List<ImageDerivative> derivatives) {
+        for (ImageDerivative derivative : derivatives) {
+            storageService.deleteFile(derivative.getPath());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.dao.ImageDao;
+import com.imagehosting.model.dto.ImageFileDTO;
+import com.imagehosting.model.dto.ImageTransformDTO;
+import com.imagehosting.model.entity.Image;
+import com.imagehosting.model.entity.ImageDerivative;
+import com.imagehosting.service.ImageFileService;
+import com.imagehosting.service.ImageMetadataService;
+import com.imagehosting.service.ImageProcessService;
+import com.imagehosting.service.StorageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 图片文件访问服务实现
+ */
+@Service
+@RequiredArgsConstructor
+public class ImageFileServiceImpl implements ImageFileService {
+
+    /**
+     * 可通过文件访问接口读取的存储目录（原图和衍生图），存储根目录下的其他文件（如卷文件、缓存）不对外提供
+     */
+    private static final List<String> PUBLIC_DIRECTORIES = List.of("images/", "processed/",
+            PackStorageServiceImpl.PATH_PREFIX + "images/", PackStorageServiceImpl.PATH_PREFIX + "processed/");
+
+    private final StorageService storageService;
+    private final ImageDao imageDao;
+    private final ImageProcessService imageProcessService;
+
+    @Override
+    public ImageFileDTO getFile(String path) throws IOException {
+        if (!isPublic(path)) {
+            throw new FileNotFoundException(path);
+        }
+        Image image = imageDao.findFirstByPath(path);
+        // 按探测得到的格式输出，不使用上传时客户端声明的媒体类型
+        String contentType = image != null ? ImageMetadataService.mimeType(image.getFormat()) : null;
+        return toFileDTO(path, contentType, image != null ? image.getMd5() : null);
+    }
+
+    @Override
+    public ImageFileDTO getTransformedFile(Long imageId, ImageTransformDTO transform, String accept) throws IOException {
+        ImageDerivative derivative = imageProcessService.transformImage(imageId, transform, accept);
+        // 衍生图生成后内容不再变化，以ID作为实体标签
+        return toFileDTO(derivative.getPath(), null, "d" + derivative.getId());
+    }
+
+    /**
+     * 路径是否位于公开目录中，包含..等需要规范化的路径一律拒绝
+     */
+    private boolean isPublic(String path) {
+        return StringUtils.cleanPath(path).equals(path)
+                && PUBLIC_DIRECTORIES.stream().anyMatch(path::startsWith);
+    }
+
+    private ImageFileDTO toFileDTO(String path, String contentType, String etag) throws IOException {
+        if (contentType == null) {
+            // 缓存文件和临时文件没有扩展名，按存储路径判断类型
+            contentType = MediaTypeFactory.getMediaType(path)
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                    .toString();
+        }
+        // 不是允许的位图格式时作为附件下载，避免浏览器按页面渲染
+        boolean attachment = ImageMetadataService.RASTER_FORMATS.stream()
+                .map(ImageMetadataService::mimeType)
+                .noneMatch(contentType::equals);
+
+        // 卷中的文件直接输出映射数据，不提取到本地缓存
+        ByteBuffer buffer = storageService.getMappedBuffer(path);
+        if (buffer != null) {
+            return ImageFileDTO.builder()
+                    .buffer(buffer)
+                    .length((long) buffer.remaining())
+                    // 卷中的文件没有修改时间
+                    .lastModified(-1L)
+                    .contentType(contentType)
+                    .attachment(attachment)
+                    .etag(etag)
+                    .build();
+        }
+
+        StorageService.LocalFile localFile = storageService.getLocalFile(path);
+        File file = localFile.getFile();
+        return ImageFileDTO.builder()
+                .file(file)
+                .length(file.length())
+                .lastModified(file.lastModified())
+                .contentType(contentType)
+                .attachment(attachment)
+                .etag(etag)
+                .lease(localFile.isLeased() ? localFile : null)
+                .build();
+    }
+}
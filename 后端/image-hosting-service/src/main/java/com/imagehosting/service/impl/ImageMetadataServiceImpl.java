@@ -0,0 +1,308 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.model.dto.ImageMetadataDTO;
+import com.imagehosting.service.ImageCodecService;
+import com.imagehosting.service.ImageMetadataService;
+import com.imagehosting.service.util.GifFrameCounter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_Profile;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 图片元数据探测服务实现
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageMetadataServiceImpl implements ImageMetadataService {
+
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+    private static final String PNG_METADATA_FORMAT = "javax_imageio_png_1.0";
+
+    /**
+     * 可能包含多帧的格式，统计帧数时需要扫描数据块
+     */
+    private static final Set<String> MULTI_FRAME_FORMATS = Set.of("gif", "tif", "tiff", "webp");
+
+    private static final String APP1_MARKER = "225";
+    private static final String APP2_MARKER = "226";
+    private static final int EXIF_ORIENTATION_TAG = 0x0112;
+    private static final int ICC_TYPE_DESC = 0x64657363;
+    private static final int ICC_TYPE_MLUC = 0x6D6C7563;
+
+    private final ImageCodecService imageCodecService;
+
+    @Override
+    public ImageMetadataDTO probe(byte[] header) {
+        if (header == null || header.length == 0) {
+            return null;
+        }
+        try (ImageInputStream iis = new MemoryCacheImageInputStream(new ByteArrayInputStream(header))) {
+            return probe(iis, false);
+        } catch (IOException | RuntimeException e) {
+            log.debug("文件头不足以解析图片元数据: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public ImageMetadataDTO probe(InputStream inputStream) throws IOException {
+        try (ImageInputStream iis = new MemoryCacheImageInputStream(inputStream)) {
+            return probe(iis, true);
+        }
+    }
+
+    @Override
+    public ImageMetadataDTO probe(File file) throws IOException {
+        try (ImageInputStream iis = new FileImageInputStream(file)) {
+            return probe(iis, true);
+        }
+    }
+
+    /**
+     * 探测元数据
+     *
+     * @param iis         图片输入流
+     * @param allowSearch 是否允许扫描整个流统计帧数
+     * @return 元数据
+     * @throws IOException IO异常
+     */
+    private ImageMetadataDTO probe(ImageInputStream iis, boolean allowSearch) throws IOException {
+        return imageCodecService.read(iis, reader -> {
+            reader.setInput(iis, false, false);
+            String format = reader.getFormatName().toLowerCase();
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+
+            // 元数据只包含文件头中的标记段，不涉及像素数据
+            IIOMetadata metadata = reader.getImageMetadata(0);
+            Integer orientation = readOrientation(metadata);
+            String colorProfile = readColorProfile(metadata);
+            if (colorProfile == null) {
+                colorProfile = colorSpaceName(reader.getRawImageType(0));
+            }
+
+            return ImageMetadataDTO.builder()
+                    .width(width)
+                    .height(height)
+                    .format(format)
+                    .frameCount(countFrames(iis, reader, format, allowSearch))
+                    .orientation(orientation)
+                    .colorProfile(colorProfile)
+                    .build();
+        });
+    }
+
+    /**
+     * 统计帧数
+     */
+    private Integer countFrames(ImageInputStream iis, ImageReader reader, String format, boolean allowSearch)
+            throws IOException {
+        int count = reader.getNumImages(false);
+        if (count > 0) {
+            return count;
+        }
+        if (!MULTI_FRAME_FORMATS.contains(format)) {
+            return 1;
+        }
+        if (!allowSearch) {
+            return null;
+        }
+        if ("gif".equals(format)) {
+            return countGifFrames(iis);
+        }
+        // 仅跳过数据块定位各帧，不解码
+        return reader.getNumImages(true);
+    }
+
+    /**
+     * 顺序扫描GIF数据块统计帧数，已扫描的数据随即丢弃，不在内存中缓存整个文件
+     */
+    private Integer countGifFrames(ImageInputStream iis) throws IOException {
+        GifFrameCounter counter = new GifFrameCounter();
+        byte[] buffer = new byte[8192];
+        iis.seek(0);
+        int n;
+        while ((n = iis.read(buffer)) > 0) {
+            counter.update(buffer, 0, n);
+            iis.flushBefore(iis.getStreamPosition());
+        }
+        return counter.getFrameCount();
+    }
+
+    /**
+     * 读取EXIF方向
+     */
+    private Integer readOrientation(IIOMetadata metadata) {
+        for (IIOMetadataNode node : findNodes(metadata, JPEG_METADATA_FORMAT, "unknown")) {
+            if (APP1_MARKER.equals(node.getAttribute("MarkerTag")) && node.getUserObject() instanceof byte[]) {
+                Integer orientation = parseExifOrientation((byte[]) node.getUserObject());
+                if (orientation != null) {
+                    return orientation;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * 读取嵌入的颜色配置名称
+     */
+    private String readColorProfile(IIOMetadata metadata) {
+        // JPEG (JFIF APP2)
+        for (IIOMetadataNode node : findNodes(metadata, JPEG_METADATA_FORMAT, "app2ICC")) {
+            if (node.getUserObject() instanceof ICC_Profile) {
+                return parseIccDescription(((ICC_Profile) node.getUserObject()).getData());
+            }
+        }
+        // JPEG (无JFIF时ICC位于未识别的APP2段)
+        for (IIOMetadataNode node : findNodes(metadata, JPEG_METADATA_FORMAT, "unknown")) {
+            if (APP2_MARKER.equals(node.getAttribute("MarkerTag")) && node.getUserObject() instanceof byte[]) {
+                byte[] data = (byte[]) node.getUserObject();
+                if (data.length > 14 && new String(data, 0, 11, StandardCharsets.US_ASCII).equals("ICC_PROFILE")) {
+                    return parseIccDescription(Arrays.copyOfRange(data, 14, data.length));
+                }
+            }
+        }
+        // PNG
+        List<IIOMetadataNode> iccp = findNodes(metadata, PNG_METADATA_FORMAT, "iCCP");
+        if (!iccp.isEmpty()) {
+            return iccp.get(0).getAttribute("profileName");
+        }
+        if (!findNodes(metadata, PNG_METADATA_FORMAT, "sRGB").isEmpty()) {
+            return "sRGB";
+        }
+        return null;
+    }
+
+    /**
+     * 解析EXIF中的方向标签
+     *
+     * @param data APP1段数据
+     * @return 方向值，不存在时返回null
+     */
+    private Integer parseExifOrientation(byte[] data) {
+        if (data.length < 14 || !new String(data, 0, 4, StandardCharsets.US_ASCII).equals("Exif")) {
+            return null;
+        }
+        try {
+            // 跳过 "Exif\0\0"，其后为TIFF结构
+            ByteBuffer tiff = ByteBuffer.wrap(data, 6, data.length - 6).slice();
+            tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            int ifdOffset = tiff.getInt(4);
+            int entryCount = tiff.getShort(ifdOffset) & 0xFFFF;
+            for (int i = 0; i < entryCount; i++) {
+                int entry = ifdOffset + 2 + i * 12;
+                if ((tiff.getShort(entry) & 0xFFFF) == EXIF_ORIENTATION_TAG) {
+                    int value = tiff.getShort(entry + 8) & 0xFFFF;
+                    return value >= 1 && value <= 8 ? value : null;
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            log.debug("EXIF数据不完整");
+        }
+        return null;
+    }
+
+    /**
+     * 解析ICC配置中的描述文字
+     *
+     * @param icc ICC配置数据
+     * @return 描述文字，无法解析时返回"ICC"
+     */
+    private String parseIccDescription(byte[] icc) {
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(icc);
+            int tagCount = buf.getInt(128);
+            for (int i = 0; i < tagCount; i++) {
+                int entry = 132 + i * 12;
+                if (buf.getInt(entry) != ICC_Profile.icSigProfileDescriptionTag) {
+                    continue;
+                }
+                int offset = buf.getInt(entry + 4);
+                int type = buf.getInt(offset);
+                if (type == ICC_TYPE_DESC) {
+                    int length = buf.getInt(offset + 8);
+                    return new String(icc, offset + 12, Math.max(0, length - 1), StandardCharsets.US_ASCII).trim();
+                }
+                if (type == ICC_TYPE_MLUC && buf.getInt(offset + 8) > 0) {
+                    int length = buf.getInt(offset + 20);
+                    int textOffset = buf.getInt(offset + 24);
+                    return new String(icc, offset + textOffset, length, StandardCharsets.UTF_16BE).trim();
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            log.debug("ICC配置不完整");
+        }
+        return "ICC";
+    }
+
+    /**
+     * 获取色彩空间名称
+     */
+    private String colorSpaceName(ImageTypeSpecifier type) {
+        if (type == null) {
+            return null;
+        }
+        ColorSpace colorSpace = type.getColorModel().getColorSpace();
+        if (colorSpace.isCS_sRGB()) {
+            return "sRGB";
+        }
+        switch (colorSpace.getType()) {
+            case ColorSpace.TYPE_GRAY:
+                return "Gray";
+            case ColorSpace.TYPE_CMYK:
+                return "CMYK";
+            case ColorSpace.TYPE_YCbCr:
+                return "YCbCr";
+            case ColorSpace.TYPE_RGB:
+                return "RGB";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 在原生元数据树中查找指定名称的节点
+     */
+    private List<IIOMetadataNode> findNodes(IIOMetadata metadata, String formatName, String nodeName) {
+        List<IIOMetadataNode> nodes = new ArrayList<>();
+        if (metadata == null || metadata.getMetadataFormatNames() == null
+                || !Arrays.asList(metadata.getMetadataFormatNames()).contains(formatName)) {
+            return nodes;
+        }
+        collect(metadata.getAsTree(formatName), nodeName, nodes);
+        return nodes;
+    }
+
+    private void collect(Node node, String nodeName, List<IIOMetadataNode> nodes) {
+        if (nodeName.equals(node.getNodeName()) && node instanceof IIOMetadataNode) {
+            nodes.add((IIOMetadataNode) node);
+        }
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            collect(child, nodeName, nodes);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.common.exception.BusinessException;
+import com.imagehosting.common.result.ResultCode;
+import com.imagehosting.model.dto.ImageMetadataDTO;
+import com.imagehosting.service.ImageProcessScheduler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片处理调度服务实现
+ */
+@Slf4j
+@Service
+public class ImageProcessSchedulerImpl implements ImageProcessScheduler {
+
+    /**
+     * 每像素字节数（ARGB）
+     */
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /**
+     * 单张图片最大像素数
+     */
+    @Value("${image.process.max-pixels:200000000}")
+    private long maxPixels;
+
+    /**
+     * 处理线程数，0表示CPU核数
+     */
+    @Value("${image.process.threads:0}")
+    private int threads;
+
+    /**
+     * 解码内存预算（字节），0表示最大堆内存的四分之一
+     */
+    @Value("${image.process.memory-budget:0}")
+    private long memoryBudget;
+
+    /**
+     * 等待内存预算的最长时间（毫秒）
+     */
+    @Value("${image.process.queue-timeout:30000}")
+    private long queueTimeout;
+
+    private long reserved;
+    private int running;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        if (memoryBudget <= 0) {
+            memoryBudget = Runtime.getRuntime().maxMemory() / 4;
+        }
+        executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("image-process-"));
+        log.info("图片处理线程数: {}, 内存预算: {}MB", threads, memoryBudget >> 20);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void checkPixels(ImageMetadataDTO metadata) {
+        long pixels = pixels(metadata);
+        if (pixels > maxPixels) {
+            log.warn("图片像素数超过限制: {}x{}", metadata.getWidth(), metadata.getHeight());
+            throw new BusinessException(ResultCode.PARAM_ERROR, "图片像素数超过限制: " + maxPixels);
+        }
+    }
+
+    @Override
+    public <T> T execute(ImageMetadataDTO metadata, long decodePixels, long outputPixels, Task<T> task)
+            throws IOException {
+        checkPixels(metadata);
+        if (outputPixels > maxPixels) {
+            log.warn("处理结果像素数超过限制: {}", outputPixels);
+            throw new BusinessException(ResultCode.PARAM_ERROR, "处理结果像素数超过限制: " + maxPixels);
+        }
+        // 解码结果与处理结果同时存在；只解码部分区域或降采样时按实际解码的像素数估算，处理结果尺寸未知时与解码结果相同
+        long pixels = decodePixels > 0 ? decodePixels : pixels(metadata);
+        long cost = (pixels + (outputPixels > 0 ? outputPixels : pixels)) * BYTES_PER_PIXEL;
+        reserve(cost);
+        try {
+            Future<T> future = executor.submit(() -> {
+                try {
+                    return task.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return await(future);
+        } finally {
+            release(cost);
+        }
+    }
+
+    /**
+     * 等待任务结束，还原任务抛出的异常
+     */
+    private <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ResultCode.SYSTEM_ERROR, "图片处理被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * 预留内存预算，超出预算的单个任务在没有其他任务运行时执行
+     *
+     * @param cost 预计占用字节数
+     */
+    private synchronized void reserve(long cost) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+        try {
+            while (running > 0 && reserved + cost > memoryBudget) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    log.warn("等待图片处理内存预算超时: cost={}, reserved={}", cost, reserved);
+                    throw new BusinessException(ResultCode.SERVICE_UNAVAILABLE);
+                }
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ResultCode.SYSTEM_ERROR, "图片处理被中断");
+        }
+        running++;
+        reserved += cost;
+    }
+
+    private synchronized void release(long cost) {
+        running--;
+        reserved -= cost;
+        notifyAll();
+    }
+
+    /**
+     * 计算像素数，尺寸未知时返回0
+     */
+    private long pixels(ImageMetadataDTO metadata) {
+        if (metadata == null || metadata.getWidth() == null || metadata.getHeight() == null) {
+            return 0;
+        }
+        return (long) metadata.getWidth() * metadata.getHeight();
+    }
+}
@@ -4,32 +4,51 @@ import com.imagehosting.common.exception.BusinessException;
 import com.imagehosting.common.result.ResultCode;
 import com.imagehosting.common.util.SecurityUtil;
 import com.imagehosting.dao.ImageDao;
+import com.imagehosting.model.dto.ImageMetadataDTO;
+import com.imagehosting.model.dto.ImageOperationDTO;
 import com.imagehosting.model.dto.ImageProcessDTO;
+import com.imagehosting.model.dto.ImageTransformDTO;
 import com.imagehosting.model.entity.Image;
+import com.imagehosting.model.entity.ImageDerivative;
+import com.imagehosting.service.AdmissionService;
+import com.imagehosting.service.ImageCodecService;
+import com.imagehosting.service.ImageDerivativeService;
+import com.imagehosting.service.ImageMetadataService;
+import com.imagehosting.service.ImageProcessScheduler;
 import com.imagehosting.service.ImageProcessService;
 import com.imagehosting.service.StorageService;
+import com.imagehosting.service.WatermarkService;
+import com.imagehosting.service.util.SingleFlight;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.coobird.thumbnailator.Thumbnails;
 import net.coobird.thumbnailator.geometry.Positions;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 import org.springframework.util.StringUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 图片处理服务实现类
@@ -41,21 +60,105 @@ public class ImageProcessServiceImpl implements ImageProcessService {
 
     private final ImageDao imageDao;
     private final StorageService storageService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ImageMetadataService imageMetadataService;
+    private final ImageProcessScheduler imageProcessScheduler;
+    private final WatermarkService watermarkService;
+    private final ImageCodecService imageCodecService;
+    private final AdmissionService admissionService;
 
-    @Value("${storage.local.path}")
-    private String storagePath;
+    /**
+     * 合并相同图片、相同处理参数的并发生成
+     */
+    private final SingleFlight<String, ImageDerivative> derivativeFlight = new SingleFlight<>();
+
+    /**
+     * 合并同一图片的并发多尺寸生成
+     */
+    private final SingleFlight<Long, List<ImageDerivative>> srcsetFlight = new SingleFlight<>();
 
     private static final List<String> SUPPORTED_FORMATS = Arrays.asList("jpg", "jpeg", "png", "gif", "webp");
 
+    private static final List<String> WATERMARK_POSITIONS =
+            Arrays.asList("topleft", "topright", "bottomleft", "bottomright", "center", WatermarkService.POSITION_TILE);
+
+    private static final int DEFAULT_WATERMARK_FONT_SIZE = 36;
+    private static final int DEFAULT_WATERMARK_OPACITY = 24;
+
+    /**
+     * 水印文字最大长度
+     */
+    private static final int MAX_WATERMARK_TEXT_LENGTH = 100;
+
+    /**
+     * 水印图片最大边长
+     */
+    private static final int MAX_WATERMARK_IMAGE_DIMENSION = 2048;
+
+    /**
+     * 单次处理的最大步骤数
+     */
+    private static final int MAX_OPERATIONS = 10;
+
+    /**
+     * 规范化处理参数的最大长度，超出时以摘要代替
+     */
+    private static final int MAX_OPERATION_LENGTH = 255;
+
+    private static final Map<String, String> OPERATION_NAMES = Map.of(
+            "resize", "调整图片大小",
+            "crop", "裁剪图片",
+            "watermark", "添加水印",
+            "compress", "压缩图片",
+            "format", "转换格式");
+
+    private static final String FIT_CONTAIN = "contain";
+    private static final String FIT_COVER = "cover";
+    private static final String FIT_FILL = "fill";
+    private static final List<String> FITS = Arrays.asList(FIT_CONTAIN, FIT_COVER, FIT_FILL);
+
+    /**
+     * 即时变换允许的宽度和高度
+     * <p>
+     * 即时变换匿名可访问且每种参数组合都会生成衍生图，只允许有限的组合以限制存储和计算开销。
+     */
+    @Value("${image.transform.sizes:160,320,640,1280,2048}")
+    private List<Integer> transformSizes;
+
+    /**
+     * 即时变换允许的输出质量
+     */
+    @Value("${image.transform.qualities:50,75,90}")
+    private List<Integer> transformQualities;
+
+    /**
+     * 即时变换允许的输出格式
+     */
+    @Value("${image.transform.formats:auto,jpg,png,webp}")
+    private List<String> transformFormats;
+
+    /**
+     * 处理步骤和即时变换的最大边长，限制放大后的内存占用
+     */
+    @Value("${image.transform.max-dimension:4096}")
+    private int maxDimension;
+
+    /**
+     * 响应式图片的宽度列表
+     */
+    @Value("${image.srcset.widths:320,640,1280,2048}")
+    private List<Integer> srcsetWidths;
+
     @Override
-    @Cacheable(value = "processedImages", key = "#processDTO.toString()", unless = "#result == null")
     public String processImage(ImageProcessDTO processDTO) {
         if (processDTO == null || processDTO.getImageId() == null) {
             throw new BusinessException(ResultCode.PARAM_ERROR, "图片ID不能为空");
         }
 
-        // 查询图片
-        Image image = getAndVerifyImage(processDTO.getImageId());
+        // 指定了处理步骤时按步骤依次处理
+        if (processDTO.getOperations() != null && !processDTO.getOperations().isEmpty()) {
+            return processPipeline(processDTO.getImageId(), processDTO.getOperations());
+        }
 
         // 根据处理类型选择不同的处理方法
         String processType = processDTO.getProcessType();
@@ -80,323 +183,1051 @@ public class ImageProcessServiceImpl implements ImageProcessService {
     }
 
     @Override
-    @Cacheable(value = "resizedImages", key = "#imageId + '_' + #width + '_' + #height", unless = "#result == null")
-    public String resizeImage(Long imageId, Integer width, Integer height) {
+    public String processPipeline(Long imageId, List<ImageOperationDTO> operations) {
         // 参数校验
-        if (width == null && height == null) {
-            throw new BusinessException(ResultCode.PARAM_ERROR, "宽度和高度不能同时为空");
+        if (operations == null || operations.isEmpty()) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "处理步骤不能为空");
+        }
+        if (operations.size() > MAX_OPERATIONS) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "处理步骤不能超过" + MAX_OPERATIONS + "个");
+        }
+        List<String> steps = new ArrayList<>();
+        String format = null;
+        for (ImageOperationDTO operation : operations) {
+            steps.add(canonicalize(operation));
+            if ("format".equalsIgnoreCase(operation.getType())) {
+                format = operation.getFormat().toLowerCase();
+            }
         }
 
         // 查询图片
         Image image = getAndVerifyImage(imageId);
+        String outputFormat = format != null ? format : sourceFormat(image);
+        Map<Long, Image> logos = getWatermarkImages(operations);
 
-        try {
-            // 获取源文件
-            File sourceFile = new File(storagePath, image.getPath());
-            if (!sourceFile.exists()) {
-                throw new BusinessException(ResultCode.DATA_NOT_FOUND, "源文件不存在");
-            }
-
-            // 获取文件扩展名
-            String extension = getExtension(image.getName());
-
-            // 创建目标文件名
-            String targetFileName = generateProcessedFileName(image.getName(), "resize_" + width + "x" + height);
-            File targetFile = createTargetFile("resize", targetFileName);
-
-            // 调整大小
-            if (width != null && height != null) {
-                Thumbnails.of(sourceFile)
-                        .size(width, height)
-                        .toFile(targetFile);
-            } else if (width != null) {
-                BufferedImage bufferedImage = ImageIO.read(sourceFile);
-                double ratio = (double) width / bufferedImage.getWidth();
-                int calculatedHeight = (int) (bufferedImage.getHeight() * ratio);
-                Thumbnails.of(sourceFile)
-                        .size(width, calculatedHeight)
-                        .toFile(targetFile);
-            } else {
-                BufferedImage bufferedImage = ImageIO.read(sourceFile);
-                double ratio = (double) height / bufferedImage.getHeight();
-                int calculatedWidth = (int) (bufferedImage.getWidth() * ratio);
-                Thumbnails.of(sourceFile)
-                        .size(calculatedWidth, height)
-                        .toFile(targetFile);
-            }
+        // 单个步骤与对应的单项处理共用衍生图
+        String operation = steps.size() == 1 ? steps.get(0) : "pipeline:" + String.join("|", steps);
+        if (operation.length() > MAX_OPERATION_LENGTH) {
+            operation = "pipeline:md5=" + DigestUtils.md5DigestAsHex(operation.getBytes(StandardCharsets.UTF_8));
+        }
 
-            // 返回相对路径
-            return storageService.getFileUrl(getRelativePath(targetFile));
+        try {
+            return derive(image, operation, outputFormat,
+                    metadata -> pipelineEstimate(metadata, operations, outputFormat),
+                    (sourceFile, metadata, targetFile) ->
+                            render(sourceFile, metadata, targetFile, operations, logos, outputFormat));
         } catch (IOException e) {
-            log.error("调整图片大小失败", e);
-            throw new BusinessException(ResultCode.SYSTEM_ERROR, "调整图片大小失败: " + e.getMessage());
+            String name = steps.size() == 1 ? OPERATION_NAMES.get(operations.get(0).getType().toLowerCase()) : "处理图片";
+            log.error("{}失败", name, e);
+            throw new BusinessException(ResultCode.SYSTEM_ERROR, name + "失败: " + e.getMessage());
         }
     }
 
     @Override
-    @Cacheable(value = "croppedImages", key = "#imageId + '_' + #width + '_' + #height", unless = "#result == null")
+    public String resizeImage(Long imageId, Integer width, Integer height) {
+        return processPipeline(imageId, List.of(ImageOperationDTO.builder()
+                .type("resize")
+                .width(width)
+                .height(height)
+                .build()));
+    }
+
+    @Override
     public String cropImage(Long imageId, Integer width, Integer height) {
-        // 参数校验
-        if (width == null || height == null) {
-            throw new BusinessException(ResultCode.PARAM_ERROR, "宽度和高度不能为空");
-        }
+        return processPipeline(imageId, List.of(ImageOperationDTO.builder()
+                .type("crop")
+                .width(width)
+                .height(height)
+                .build()));
+    }
 
-        // 查询图片
-        Image image = getAndVerifyImage(imageId);
+    @Override
+    public String addWatermark(Long imageId, String text, String position) {
+        return processPipeline(imageId, List.of(ImageOperationDTO.builder()
+                .type("watermark")
+                .watermarkText(text)
+                .watermarkPosition(position)
+                .build()));
+    }
 
-        try {
-            // 获取源文件
-            File sourceFile = new File(storagePath, image.getPath());
-            if (!sourceFile.exists()) {
-                throw new BusinessException(ResultCode.DATA_NOT_FOUND, "源文件不存在");
-            }
+    @Override
+    public String compressImage(Long imageId, Integer quality) {
+        return processPipeline(imageId, List.of(ImageOperationDTO.builder()
+                .type("compress")
+                .quality(quality)
+                .build()));
+    }
+
+    @Override
+    public String convertFormat(Long imageId, String format) {
+        return processPipeline(imageId, List.of(ImageOperationDTO.builder()
+                .type("format")
+                .format(format)
+                .build()));
+    }
 
-            // 获取文件扩展名
-            String extension = getExtension(image.getName());
+    @Override
+    public ImageDerivative transformImage(Long imageId, ImageTransformDTO transform, String accept) {
+        // 参数校验
+        Integer width = transform.getWidth();
+        Integer height = transform.getHeight();
+        checkTransformDimension(width);
+        checkTransformDimension(height);
+        Integer quality = transform.getQuality();
+        if (quality != null && !transformQualities.contains(quality)) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "压缩质量只能是" + transformQualities + "之一");
+        }
+        if (StringUtils.hasText(transform.getFormat())
+                && !transformFormats.contains(normalizeFormat(transform.getFormat().toLowerCase()))) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "不支持的格式: " + transform.getFormat());
+        }
+        String fit = StringUtils.hasText(transform.getFit()) ? transform.getFit().toLowerCase() : FIT_CONTAIN;
+        if (!FITS.contains(fit)) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "不支持的适应方式: " + transform.getFit());
+        }
+        // 只指定一边时按比例缩放，适应方式不影响结果
+        String canonicalFit = width != null && height != null ? fit : FIT_CONTAIN;
 
-            // 创建目标文件名
-            String targetFileName = generateProcessedFileName(image.getName(), "crop_" + width + "x" + height);
-            File targetFile = createTargetFile("crop", targetFileName);
+        // 与原图URL一样公开访问，只检查图片是否存在
+        Image image = imageDao.findById(imageId);
+        if (image == null || image.getDeleted() == 1) {
+            throw new BusinessException(ResultCode.DATA_NOT_FOUND, "图片不存在");
+        }
 
-            // 裁剪图片（从中心裁剪）
-            Thumbnails.of(sourceFile)
-                    .sourceRegion(Positions.CENTER, width, height)
-                    .size(width, height)
-                    .toFile(targetFile);
+        String format = resolveTransformFormat(image, transform.getFormat(), accept);
+        String operation = "transform:w=" + dimension(width) + ",h=" + dimension(height) + ",fit=" + canonicalFit
+                + ",q=" + (quality != null ? quality : "auto") + ",f=" + format;
 
-            // 返回相对路径
-            return storageService.getFileUrl(getRelativePath(targetFile));
+        try {
+            return deriveRecord(image, operation, format, true,
+                    metadata -> transformEstimate(metadata, width, height, canonicalFit),
+                    (sourceFile, metadata, targetFile) -> {
+                // 大幅缩小时按比例降采样解码
+                BufferedImage source = decodeForResize(sourceFile, metadata, width, height, !FIT_CONTAIN.equals(canonicalFit));
+                Thumbnails.Builder<BufferedImage> builder = Thumbnails.of(source);
+                if (width == null && height == null) {
+                    builder.scale(1.0);
+                } else if (width == null) {
+                    builder.height(height);
+                } else if (height == null) {
+                    builder.width(width);
+                } else if (FIT_FILL.equals(canonicalFit)) {
+                    builder.forceSize(width, height);
+                } else if (FIT_COVER.equals(canonicalFit)) {
+                    builder.size(width, height).crop(Positions.CENTER);
+                } else {
+                    builder.size(width, height);
+                }
+                imageCodecService.encode(builder.asBufferedImage(), format,
+                        quality != null ? quality / 100.0f : null, targetFile);
+            });
         } catch (IOException e) {
-            log.error("裁剪图片失败", e);
-            throw new BusinessException(ResultCode.SYSTEM_ERROR, "裁剪图片失败: " + e.getMessage());
+            log.error("生成变换图片失败", e);
+            throw new BusinessException(ResultCode.SYSTEM_ERROR, "生成变换图片失败: " + e.getMessage());
         }
     }
 
     @Override
-    @Cacheable(value = "watermarkedImages", key = "#imageId + '_' + #text + '_' + #position", unless = "#result == null")
-    public String addWatermark(Long imageId, String text, String position) {
-        // 参数校验
-        if (!StringUtils.hasText(text)) {
-            throw new BusinessException(ResultCode.PARAM_ERROR, "水印文字不能为空");
+    public String generateSrcset(Long imageId) {
+        Image image = getAndVerifyImage(imageId);
+        try {
+            List<ImageDerivative> derivatives = srcsetFlight.execute(imageId, () -> deriveSrcset(image));
+            // 原图小于所有尺寸时只有原图
+            String srcset = buildSrcset(image, derivatives);
+            return srcset != null ? srcset : image.getUrl();
+        } catch (IOException e) {
+            log.error("生成多尺寸图片失败", e);
+            throw new BusinessException(ResultCode.SYSTEM_ERROR, "生成多尺寸图片失败: " + e.getMessage());
         }
+    }
 
-        // 查询图片
-        Image image = getAndVerifyImage(imageId);
+    @Override
+    public Map<Long, String> getSrcsets(List<Image> images) {
+        List<Long> imageIds = images.stream().map(Image::getId).collect(Collectors.toList());
+        Map<Long, List<ImageDerivative>> derivatives = imageDerivativeService.findByImageIds(imageIds).stream()
+                .collect(Collectors.groupingBy(ImageDerivative::getImageId));
 
-        try {
-            // 获取源文件
-            File sourceFile = new File(storagePath, image.getPath());
-            if (!sourceFile.exists()) {
-                throw new BusinessException(ResultCode.DATA_NOT_FOUND, "源文件不存在");
+        Map<Long, String> srcsets = new HashMap<>();
+        for (Image image : images) {
+            String srcset = buildSrcset(image, derivatives.getOrDefault(image.getId(), Collections.emptyList()));
+            if (srcset != null) {
+                srcsets.put(image.getId(), srcset);
             }
+        }
+        return srcsets;
+    }
 
-            // 获取文件扩展名
-            String extension = getExtension(image.getName());
-
-            // 创建目标文件名
-            String targetFileName = generateProcessedFileName(image.getName(), "watermark");
-            File targetFile = createTargetFile("watermark", targetFileName);
-
-            // 读取原始图片
-            BufferedImage originalImage = ImageIO.read(sourceFile);
-
-            // 创建Graphics2D对象
-            BufferedImage watermarkedImage = new BufferedImage(
-                    originalImage.getWidth(),
-                    originalImage.getHeight(),
-                    BufferedImage.TYPE_INT_RGB
-            );
-
-            Graphics2D g2d = watermarkedImage.createGraphics();
-            g2d.drawImage(originalImage, 0, 0, null);
-
-            // 设置水印属性
-            g2d.setColor(new Color(0, 0, 0, 60)); // 半透明黑色
-            g2d.setFont(new Font("Arial", Font.BOLD, 36));
-
-            // 计算水印位置
-            int x = 20;
-            int y = originalImage.getHeight() - 40;
-
-            if (StringUtils.hasText(position)) {
-                switch (position.toLowerCase()) {
-                    case "topleft":
-                        x = 20;
-                        y = 50;
-                        break;
-                    case "topright":
-                        x = originalImage.getWidth() - 20 - g2d.getFontMetrics().stringWidth(text);
-                        y = 50;
-                        break;
-                    case "bottomleft":
-                        x = 20;
-                        y = originalImage.getHeight() - 40;
-                        break;
-                    case "bottomright":
-                        x = originalImage.getWidth() - 20 - g2d.getFontMetrics().stringWidth(text);
-                        y = originalImage.getHeight() - 40;
-                        break;
-                    case "center":
-                        x = (originalImage.getWidth() - g2d.getFontMetrics().stringWidth(text)) / 2;
-                        y = originalImage.getHeight() / 2;
-                        break;
+    /**
+     * 生成缺少的尺寸并登记
+     *
+     * @param image 图片
+     * @return 所有尺寸的衍生图（不含大于原图的尺寸）
+     * @throws IOException IO异常
+     */
+    private List<ImageDerivative> deriveSrcset(Image image) throws IOException {
+        // 没有对应编码器的原格式（如webp）输出为png
+        String sourceFormat = sourceFormat(image);
+        String format = imageCodecService.canEncode(sourceFormat) ? sourceFormat : "png";
+        List<ImageDerivative> derivatives = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        StorageService.LocalFile sourceFile = null;
+        Map<Integer, Path> targetFiles = new LinkedHashMap<>();
+        try {
+            ImageMetadataDTO metadata = null;
+            Integer sourceWidth = displayWidth(image.getWidth(), image.getHeight(), image.getOrientation());
+            if (sourceWidth == null) {
+                // 早期图片未记录尺寸
+                sourceFile = getSourceFile(image);
+                metadata = imageMetadataService.probe(sourceFile.getFile());
+                sourceWidth = metadata != null
+                        ? displayWidth(metadata.getWidth(), metadata.getHeight(), metadata.getOrientation()) : null;
+            }
+            for (Integer width : srcsetWidths) {
+                // 不放大原图
+                if (sourceWidth != null && width >= sourceWidth) {
+                    continue;
+                }
+                ImageDerivative derivative = imageDerivativeService.find(image.getId(), srcsetOperation(width));
+                if (derivative != null) {
+                    derivatives.add(derivative);
+                } else {
+                    missing.add(width);
                 }
             }
+            if (missing.isEmpty()) {
+                return derivatives;
+            }
 
-            // 绘制水印
-            g2d.drawString(text, x, y);
-            g2d.dispose();
-
-            // 保存图片
-            ImageIO.write(watermarkedImage, extension, targetFile);
+            if (sourceFile == null) {
+                sourceFile = getSourceFile(image);
+                metadata = imageMetadataService.probe(sourceFile.getFile());
+            }
+            // 从大到小逐级缩小
+            missing.sort(Comparator.reverseOrder());
+            for (Integer width : missing) {
+                targetFiles.put(width, Files.createTempFile("srcset-", "." + format));
+            }
+            File source = sourceFile.getFile();
+            ImageMetadataDTO sourceMetadata = metadata;
+            // 逐级缩小，处理结果都小于原图
+            long decodePixels = srcsetDecodePixels(sourceMetadata, targetFiles, format);
+            imageProcessScheduler.execute(sourceMetadata, decodePixels, 0, () -> {
+                renderSrcset(source, sourceMetadata, targetFiles, format);
+                return null;
+            });
+            for (Map.Entry<Integer, Path> entry : targetFiles.entrySet()) {
+                derivatives.add(imageDerivativeService.register(image.getId(), srcsetOperation(entry.getKey()),
+                        entry.getValue().toFile(), format));
+            }
+            return derivatives;
+        } finally {
+            for (Path targetFile : targetFiles.values()) {
+                Files.deleteIfExists(targetFile);
+            }
+            if (sourceFile != null) {
+                sourceFile.close();
+            }
+        }
+    }
 
-            // 返回相对路径
-            return storageService.getFileUrl(getRelativePath(targetFile));
-        } catch (IOException e) {
-            log.error("添加水印失败", e);
-            throw new BusinessException(ResultCode.SYSTEM_ERROR, "添加水印失败: " + e.getMessage());
+    /**
+     * 解码一次原图，按宽度从大到小逐级缩小并编码；输出GIF的动图逐帧缩放，保留动画
+     *
+     * @param sourceFile  原图文件
+     * @param metadata    原图元数据
+     * @param targetFiles 各宽度的目标文件，按宽度从大到小排列
+     * @param format      输出格式
+     * @throws IOException IO异常
+     */
+    private void renderSrcset(File sourceFile, ImageMetadataDTO metadata, Map<Integer, Path> targetFiles,
+                              String format) throws IOException {
+        if (isAnimated(metadata) && "gif".equals(format)) {
+            // 与调整大小相同的逐帧处理，每个尺寸各自从原图缩放
+            for (Map.Entry<Integer, Path> entry : targetFiles.entrySet()) {
+                List<ImageOperationDTO> operations = List.of(ImageOperationDTO.builder()
+                        .type("resize")
+                        .width(entry.getKey())
+                        .build());
+                render(sourceFile, metadata, entry.getValue().toFile(), operations, Collections.emptyMap(), format);
+            }
+            return;
+        }
+        Integer largest = targetFiles.keySet().iterator().next();
+        BufferedImage image = decodeForResize(sourceFile, metadata, largest, null, false);
+        for (Map.Entry<Integer, Path> entry : targetFiles.entrySet()) {
+            // 由上一尺寸缩小，不再读取完整原图
+            image = resize(image, entry.getKey(), null);
+            imageCodecService.encode(image, format, null, entry.getValue().toFile());
         }
     }
 
-    @Override
-    @Cacheable(value = "compressedImages", key = "#imageId + '_' + #quality", unless = "#result == null")
-    public String compressImage(Long imageId, Integer quality) {
-        // 参数校验
-        if (quality == null || quality < 1 || quality > 100) {
-            throw new BusinessException(ResultCode.PARAM_ERROR, "压缩质量应该在1-100之间");
+    /**
+     * 组装srcset，按宽度从小到大排列，已知原图宽度时附加原图
+     *
+     * @param image       图片
+     * @param derivatives 图片的衍生图
+     * @return srcset属性值，没有多尺寸衍生图时返回null
+     */
+    private String buildSrcset(Image image, List<ImageDerivative> derivatives) {
+        Map<Integer, String> candidates = new TreeMap<>();
+        for (ImageDerivative derivative : derivatives) {
+            for (Integer width : srcsetWidths) {
+                if (srcsetOperation(width).equals(derivative.getOperation())) {
+                    candidates.put(derivative.getWidth() != null ? derivative.getWidth() : width,
+                            storageService.getFileUrl(derivative.getPath()));
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
         }
+        Integer sourceWidth = displayWidth(image.getWidth(), image.getHeight(), image.getOrientation());
+        if (sourceWidth != null) {
+            candidates.putIfAbsent(sourceWidth, image.getUrl());
+        }
+        return candidates.entrySet().stream()
+                .map(entry -> entry.getValue() + " " + entry.getKey() + "w")
+                .collect(Collectors.joining(", "));
+    }
 
+    /**
+     * 按EXIF方向校正后的显示宽度
+     */
+    private Integer displayWidth(Integer width, Integer height, Integer orientation) {
+        // 方向5-8需要旋转90度，宽高互换
+        return orientation != null && orientation >= 5 ? height : width;
+    }
+
+    /**
+     * 调整大小的规范化参数
+     */
+    private String resizeOperation(Integer width, Integer height) {
+        return "resize:w=" + dimension(width) + ",h=" + dimension(height);
+    }
+
+    /**
+     * 多尺寸图片的规范化参数
+     * <p>
+     * 多尺寸图片由上一尺寸逐级缩小，与调整大小的处理方式不同，不能共用衍生图。
+     */
+    private String srcsetOperation(Integer width) {
+        return "srcset:w=" + width;
+    }
+
+    /**
+     * 获取并验证图片
+     *
+     * @param imageId 图片ID
+     * @return 图片实体
+     */
+    private Image getAndVerifyImage(Long imageId) {
         // 查询图片
-        Image image = getAndVerifyImage(imageId);
+        Image image = imageDao.findById(imageId);
+        if (image == null || image.getDeleted() == 1) {
+            throw new BusinessException(ResultCode.DATA_NOT_FOUND, "图片不存在");
+        }
+
+        // 验证图片所有权
+        Long userId = SecurityUtil.getCurrentUserId();
+        if (!image.getUserId().equals(userId)) {
+            throw new BusinessException(ResultCode.FORBIDDEN, "无权访问该图片");
+        }
 
+        return image;
+    }
+
+    /**
+     * 获取并验证处理步骤中的水印图片
+     *
+     * @param operations 处理步骤
+     * @return 水印图片，key为图片ID
+     */
+    private Map<Long, Image> getWatermarkImages(List<ImageOperationDTO> operations) {
+        Map<Long, Image> logos = new HashMap<>();
+        for (ImageOperationDTO operation : operations) {
+            Long logoId = operation.getWatermarkImageId();
+            if (!"watermark".equalsIgnoreCase(operation.getType()) || logoId == null || logos.containsKey(logoId)) {
+                continue;
+            }
+            Image logo = getAndVerifyImage(logoId);
+            if ((logo.getWidth() != null && logo.getWidth() > MAX_WATERMARK_IMAGE_DIMENSION)
+                    || (logo.getHeight() != null && logo.getHeight() > MAX_WATERMARK_IMAGE_DIMENSION)) {
+                throw new BusinessException(ResultCode.PARAM_ERROR, "水印图片边长不能超过" + MAX_WATERMARK_IMAGE_DIMENSION);
+            }
+            logos.put(logoId, logo);
+        }
+        return logos;
+    }
+
+    /**
+     * 获取原图本地文件（远程存储经本地缓存读取），使用完毕后必须关闭
+     *
+     * @param image 图片
+     * @return 原图文件
+     * @throws IOException IO异常
+     */
+    private StorageService.LocalFile getSourceFile(Image image) throws IOException {
         try {
-            // 获取源文件
-            File sourceFile = new File(storagePath, image.getPath());
-            if (!sourceFile.exists()) {
-                throw new BusinessException(ResultCode.DATA_NOT_FOUND, "源文件不存在");
+            return storageService.getLocalFile(image.getPath());
+        } catch (FileNotFoundException e) {
+            throw new BusinessException(ResultCode.DATA_NOT_FOUND, "源文件不存在");
+        }
+    }
+
+    /**
+     * 获取衍生图URL，相同图片和处理参数已生成过时直接返回，不读取原图
+     *
+     * @param image     图片
+     * @param operation 规范化的处理参数
+     * @param format    输出格式（文件扩展名）
+     * @param renderer  生成处理结果
+     * @return 衍生图URL
+     * @throws IOException IO异常
+     */
+    private String derive(Image image, String operation, String format,
+                          Function<ImageMetadataDTO, PixelEstimate> estimate, Renderer renderer) throws IOException {
+        // 处理接口已由准入过滤器限流
+        return storageService.getFileUrl(deriveRecord(image, operation, format, false, estimate, renderer).getPath());
+    }
+
+    /**
+     * 获取衍生图，未生成时生成并登记；相同衍生图的并发请求只生成一次
+     *
+     * @param image     图片
+     * @param operation 规范化的处理参数
+     * @param format    输出格式（文件扩展名）
+     * @param admission    生成时是否需要准入控制
+     * @param estimate     按原图元数据估算解码和处理过程中的像素数
+     * @param renderer     生成处理结果
+     * @return 衍生图
+     * @throws IOException IO异常
+     */
+    private ImageDerivative deriveRecord(Image image, String operation, String format, boolean admission,
+                                         Function<ImageMetadataDTO, PixelEstimate> estimate,
+                                         Renderer renderer) throws IOException {
+        ImageDerivative derivative = imageDerivativeService.find(image.getId(), operation);
+        if (derivative != null) {
+            return derivative;
+        }
+        return derivativeFlight.execute(image.getId() + ":" + operation,
+                () -> generate(image, operation, format, admission, estimate, renderer));
+    }
+
+    /**
+     * 生成并登记衍生图
+     */
+    private ImageDerivative generate(Image image, String operation, String format, boolean admission,
+                                     Function<ImageMetadataDTO, PixelEstimate> estimate,
+                                     Renderer renderer) throws IOException {
+        // 等待期间其他请求可能已生成完毕
+        ImageDerivative derivative = imageDerivativeService.find(image.getId(), operation);
+        if (derivative != null) {
+            return derivative;
+        }
+        // 即时变换匿名可访问，只在需要生成时按图片所属用户和原图大小获取准入许可，命中缓存的请求不受影响；
+        // 许可在读取原图之前获取，被拒绝的请求不会从远程存储下载原图
+        AdmissionService.Permit permit = null;
+        if (admission) {
+            long size = image.getSize() != null ? image.getSize() : -1;
+            permit = admissionService.tryAcquire("owner:" + image.getUserId(), size);
+            if (permit == null) {
+                throw new BusinessException(ResultCode.SERVICE_UNAVAILABLE);
+            }
+        }
+        Path targetFile = null;
+        try (StorageService.LocalFile sourceFile = getSourceFile(image)) {
+            File source = sourceFile.getFile();
+            // 只读取文件头，按尺寸估算内存占用后排队处理
+            ImageMetadataDTO metadata = imageMetadataService.probe(source);
+            targetFile = Files.createTempFile("derivative-", "." + format);
+            File target = targetFile.toFile();
+            PixelEstimate pixels = estimate.apply(metadata);
+            imageProcessScheduler.execute(metadata, pixels.decode, pixels.output, () -> {
+                renderer.render(source, metadata, target);
+                return null;
+            });
+            return imageDerivativeService.register(image.getId(), operation, target, format);
+        } finally {
+            if (targetFile != null) {
+                Files.deleteIfExists(targetFile);
+            }
+            if (permit != null) {
+                permit.close();
             }
+        }
+    }
+
+    /**
+     * 校验即时变换的边长
+     */
+    private void checkTransformDimension(Integer value) {
+        if (value != null && !transformSizes.contains(value)) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "宽度和高度只能是" + transformSizes + "之一");
+        }
+    }
 
-            // 创建目标文件名
-            String targetFileName = generateProcessedFileName(image.getName(), "compress_" + quality);
-            File targetFile = createTargetFile("compress", targetFileName);
+    /**
+     * 校验处理步骤的边长
+     */
+    private void checkDimension(Integer value) {
+        if (value != null && (value < 1 || value > maxDimension)) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "宽度和高度应该在1-" + maxDimension + "之间");
+        }
+    }
 
-            // 压缩图片
-            float qualityFloat = quality / 100.0f;
-            Thumbnails.of(sourceFile)
-                    .scale(1.0)
-                    .outputQuality(qualityFloat)
-                    .toFile(targetFile);
+    /**
+     * 估算处理步骤的解码像素数和处理结果像素数，与{@link #render}的解码方式一致
+     *
+     * @param metadata   原图元数据
+     * @param operations 已校验的处理步骤
+     * @param format     输出格式
+     * @return 像素数估算
+     */
+    private PixelEstimate pipelineEstimate(ImageMetadataDTO metadata, List<ImageOperationDTO> operations,
+                                           String format) {
+        long output = pipelinePixels(metadata, operations);
+        // 动图逐帧解码整幅画布
+        if (isAnimated(metadata) && "gif".equals(normalizeFormat(format))) {
+            return new PixelEstimate(0, output);
+        }
+        DecodePlan plan = planDecode(metadata, operations);
+        return new PixelEstimate(decodePixels(metadata, plan.region, plan.subsampling), output);
+    }
 
-            // 返回相对路径
-            return storageService.getFileUrl(getRelativePath(targetFile));
-        } catch (IOException e) {
-            log.error("压缩图片失败", e);
-            throw new BusinessException(ResultCode.SYSTEM_ERROR, "压缩图片失败: " + e.getMessage());
+    /**
+     * 估算即时变换的解码像素数和处理结果像素数，与{@link #decodeForResize}的降采样一致
+     *
+     * @param metadata 原图元数据
+     * @param width    目标宽度
+     * @param height   目标高度
+     * @param fit      适应方式
+     * @return 像素数估算
+     */
+    private PixelEstimate transformEstimate(ImageMetadataDTO metadata, Integer width, Integer height, String fit) {
+        int subsampling = resizeSubsampling(metadata, width, height, !FIT_CONTAIN.equals(fit));
+        return new PixelEstimate(decodePixels(metadata, null, subsampling), transformPixels(metadata, width, height, fit));
+    }
+
+    /**
+     * 估算多尺寸图片的解码像素数，与{@link #renderSrcset}的解码方式一致
+     *
+     * @param metadata    原图元数据
+     * @param targetFiles 各宽度的目标文件，按宽度从大到小排列
+     * @param format      输出格式
+     * @return 像素数，未知时返回0
+     */
+    private long srcsetDecodePixels(ImageMetadataDTO metadata, Map<Integer, Path> targetFiles, String format) {
+        if (isAnimated(metadata) && "gif".equals(format)) {
+            return 0;
         }
+        Integer largest = targetFiles.keySet().iterator().next();
+        return decodePixels(metadata, null, resizeSubsampling(metadata, largest, null, false));
     }
 
-    @Override
-    @Cacheable(value = "convertedImages", key = "#imageId + '_' + #format", unless = "#result == null")
-    public String convertFormat(Long imageId, String format) {
-        // 参数校验
+    /**
+     * 计算按区域和降采样解码得到的像素数
+     *
+     * @param metadata    原图元数据
+     * @param region      解码区域，为null时为整幅图片
+     * @param subsampling 降采样倍数
+     * @return 像素数，无法直接解码（尺寸未知或需要旋转）时返回0，按原图估算
+     */
+    private long decodePixels(ImageMetadataDTO metadata, Rectangle region, int subsampling) {
+        if (!isDirectlyDecodable(metadata)) {
+            return 0;
+        }
+        int width = region != null ? region.width : metadata.getWidth();
+        int height = region != null ? region.height : metadata.getHeight();
+        return (long) ((width + subsampling - 1) / subsampling) * ((height + subsampling - 1) / subsampling);
+    }
+
+    /**
+     * 估算处理步骤中最大的图像像素数
+     *
+     * @param metadata   原图元数据
+     * @param operations 已校验的处理步骤
+     * @return 像素数，尺寸未知或不改变尺寸时返回0
+     */
+    private long pipelinePixels(ImageMetadataDTO metadata, List<ImageOperationDTO> operations) {
+        Dimension size = displaySize(metadata);
+        if (size == null) {
+            return 0;
+        }
+        long peak = 0;
+        for (ImageOperationDTO operation : operations) {
+            String type = operation.getType().toLowerCase();
+            if ("resize".equals(type)) {
+                size = fitSize(size.width, size.height, operation.getWidth(), operation.getHeight());
+            } else if ("crop".equals(type)) {
+                size = new Dimension(operation.getWidth(), operation.getHeight());
+            } else {
+                continue;
+            }
+            peak = Math.max(peak, (long) size.width * size.height);
+        }
+        return peak;
+    }
+
+    /**
+     * 估算即时变换结果的像素数
+     *
+     * @param metadata 原图元数据
+     * @param width    目标宽度
+     * @param height   目标高度
+     * @param fit      适应方式
+     * @return 像素数，尺寸未知或不改变尺寸时返回0
+     */
+    private long transformPixels(ImageMetadataDTO metadata, Integer width, Integer height, String fit) {
+        Dimension size = displaySize(metadata);
+        if (size == null || width == null && height == null) {
+            return 0;
+        }
+        if (width != null && height != null && !FIT_CONTAIN.equals(fit)) {
+            return (long) width * height;
+        }
+        size = fitSize(size.width, size.height, width, height);
+        return (long) size.width * size.height;
+    }
+
+    /**
+     * 按EXIF方向校正后的显示尺寸，未知时返回null
+     */
+    private Dimension displaySize(ImageMetadataDTO metadata) {
+        if (metadata == null || metadata.getWidth() == null || metadata.getHeight() == null) {
+            return null;
+        }
+        // 方向5-8需要旋转90度，宽高互换
+        Integer orientation = metadata.getOrientation();
+        return orientation != null && orientation >= 5
+                ? new Dimension(metadata.getHeight(), metadata.getWidth())
+                : new Dimension(metadata.getWidth(), metadata.getHeight());
+    }
+
+    /**
+     * 确定即时变换的输出格式
+     *
+     * @param image  图片
+     * @param format 请求的格式，auto按Accept选择，为空时保持原格式
+     * @param accept Accept请求头
+     * @return 输出格式（文件扩展名）
+     */
+    private String resolveTransformFormat(Image image, String format, String accept) {
+        String sourceFormat = sourceFormat(image);
         if (!StringUtils.hasText(format)) {
-            throw new BusinessException(ResultCode.PARAM_ERROR, "目标格式不能为空");
+            // 没有对应编码器的原格式（如webp）输出为png
+            return imageCodecService.canEncode(sourceFormat) ? sourceFormat : "png";
         }
 
-        String formatLower = format.toLowerCase();
-        if (!SUPPORTED_FORMATS.contains(formatLower)) {
+        String formatLower = normalizeFormat(format.toLowerCase());
+        if ("auto".equals(formatLower)) {
+            // 只有安装了WebP编码器时才输出WebP
+            if (acceptsWebp(accept) && imageCodecService.canEncode("webp")) {
+                return "webp";
+            }
+            // 可能带透明通道的格式输出为png
+            return "png".equals(sourceFormat) || "gif".equals(sourceFormat) ? "png" : "jpg";
+        }
+        if (!SUPPORTED_FORMATS.contains(formatLower) || !imageCodecService.canEncode(formatLower)) {
             throw new BusinessException(ResultCode.PARAM_ERROR, "不支持的格式: " + format);
         }
+        return formatLower;
+    }
 
-        // 查询图片
-        Image image = getAndVerifyImage(imageId);
-
+    /**
+     * Accept中是否明确接受WebP（不含通配）
+     */
+    private boolean acceptsWebp(String accept) {
+        if (!StringUtils.hasText(accept)) {
+            return false;
+        }
         try {
-            // 获取源文件
-            File sourceFile = new File(storagePath, image.getPath());
-            if (!sourceFile.exists()) {
-                throw new BusinessException(ResultCode.DATA_NOT_FOUND, "源文件不存在");
+            return MediaType.parseMediaTypes(accept).stream()
+                    .anyMatch(type -> "image".equals(type.getType()) && "webp".equals(type.getSubtype())
+                            && type.getQualityValue() > 0);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 原图格式（文件扩展名），取探测得到的格式，早期图片未记录时按文件名判断
+     */
+    private String sourceFormat(Image image) {
+        return normalizeFormat(image.getFormat() != null ? image.getFormat() : getExtension(image.getName()));
+    }
+
+    private String normalizeFormat(String format) {
+        return "jpeg".equals(format) ? "jpg" : format;
+    }
+
+    /**
+     * 规范化尺寸参数
+     */
+    private String dimension(Integer value) {
+        return value != null ? String.valueOf(value) : "auto";
+    }
+
+    /**
+     * 校验处理步骤并生成规范化的参数
+     *
+     * @param operation 处理步骤
+     * @return 规范化的处理参数
+     */
+    private String canonicalize(ImageOperationDTO operation) {
+        if (operation == null || !StringUtils.hasText(operation.getType())) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "处理类型不能为空");
+        }
+        Integer width = operation.getWidth();
+        Integer height = operation.getHeight();
+        switch (operation.getType().toLowerCase()) {
+            case "resize":
+                if (width == null && height == null) {
+                    throw new BusinessException(ResultCode.PARAM_ERROR, "宽度和高度不能同时为空");
+                }
+                checkDimension(width);
+                checkDimension(height);
+                return resizeOperation(width, height);
+            case "crop":
+                if (width == null || height == null) {
+                    throw new BusinessException(ResultCode.PARAM_ERROR, "宽度和高度不能为空");
+                }
+                checkDimension(width);
+                checkDimension(height);
+                return "crop:w=" + width + ",h=" + height;
+            case "watermark":
+                String position = watermarkPosition(operation.getWatermarkPosition());
+                int opacity = watermarkParam(operation.getWatermarkOpacity(), DEFAULT_WATERMARK_OPACITY, 1, 100,
+                        "水印不透明度应该在1-100之间");
+                if (operation.getWatermarkImageId() != null) {
+                    return "watermark:pos=" + position + ",opacity=" + opacity + ",logo=" + operation.getWatermarkImageId();
+                }
+                String text = operation.getWatermarkText();
+                if (!StringUtils.hasText(text)) {
+                    throw new BusinessException(ResultCode.PARAM_ERROR, "水印文字不能为空");
+                }
+                if (text.length() > MAX_WATERMARK_TEXT_LENGTH) {
+                    throw new BusinessException(ResultCode.PARAM_ERROR, "水印文字不能超过" + MAX_WATERMARK_TEXT_LENGTH + "个字符");
+                }
+                int fontSize = watermarkParam(operation.getWatermarkFontSize(), DEFAULT_WATERMARK_FONT_SIZE, 8, 200,
+                        "水印字号应该在8-200之间");
+                // 文字以摘要参与规范化，避免超长参数
+                return "watermark:pos=" + position + ",size=" + fontSize + ",opacity=" + opacity
+                        + ",text=" + DigestUtils.md5DigestAsHex(text.getBytes(StandardCharsets.UTF_8));
+            case "compress":
+                Integer quality = operation.getQuality();
+                if (quality == null || quality < 1 || quality > 100) {
+                    throw new BusinessException(ResultCode.PARAM_ERROR, "压缩质量应该在1-100之间");
+                }
+                return "compress:q=" + quality;
+            case "format":
+                String format = operation.getFormat();
+                if (!StringUtils.hasText(format)) {
+                    throw new BusinessException(ResultCode.PARAM_ERROR, "目标格式不能为空");
+                }
+                if (!SUPPORTED_FORMATS.contains(format.toLowerCase())) {
+                    throw new BusinessException(ResultCode.PARAM_ERROR, "不支持的格式: " + format);
+                }
+                // jpeg与jpg输出相同
+                return "format:f=" + normalizeFormat(format.toLowerCase());
+            default:
+                throw new BusinessException(ResultCode.PARAM_ERROR, "不支持的处理类型: " + operation.getType());
+        }
+    }
+
+    /**
+     * 按步骤处理图片：只解码一次，所有步骤在内存中作用于同一图像，最后只编码一次
+     *
+     * @param sourceFile 原图文件
+     * @param metadata   原图元数据
+     * @param targetFile 目标文件
+     * @param operations 已校验的处理步骤
+     * @param logos      水印图片，key为图片ID
+     * @param format     输出格式
+     * @throws IOException IO异常
+     */
+    private void render(File sourceFile, ImageMetadataDTO metadata, File targetFile, List<ImageOperationDTO> operations,
+                        Map<Long, Image> logos, String format) throws IOException {
+        // GIF动图逐帧处理，保留动画
+        if (isAnimated(metadata) && "gif".equals(normalizeFormat(format))) {
+            AnimationGeometry geometry = planAnimation(metadata, operations);
+            if (geometry != null) {
+                imageCodecService.transformAnimation(sourceFile, targetFile,
+                        new Dimension(geometry.width, geometry.height), geometry::apply);
+                return;
             }
+        }
 
-            // 获取文件名（不含扩展名）
-            String nameWithoutExtension = getNameWithoutExtension(image.getName());
+        // 解码，开头的裁剪和缩小在解码时完成，只读取需要的像素
+        DecodePlan plan = planDecode(metadata, operations);
+        BufferedImage image = decode(sourceFile, metadata, plan.region, plan.subsampling);
 
-            // 创建目标文件名
-            String targetFileName = nameWithoutExtension + "." + formatLower;
-            File targetFile = createTargetFile("format", targetFileName);
+        Float quality = null;
+        for (ImageOperationDTO operation : plan.operations) {
+            Integer width = operation.getWidth();
+            Integer height = operation.getHeight();
+            switch (operation.getType().toLowerCase()) {
+                case "resize":
+                    image = resize(image, width, height);
+                    break;
+                case "crop":
+                    // 从中心裁剪
+                    image = Thumbnails.of(image)
+                            .sourceRegion(Positions.CENTER, width, height)
+                            .size(width, height)
+                            .asBufferedImage();
+                    break;
+                case "watermark":
+                    image = drawWatermark(image, operation, logos);
+                    break;
+                case "compress":
+                    quality = operation.getQuality() / 100.0f;
+                    break;
+                default:
+                    // 格式转换只影响编码
+                    break;
+            }
+        }
 
-            // 转换格式
-            Thumbnails.of(sourceFile)
-                    .scale(1.0)
-                    .outputFormat(formatLower)
-                    .toFile(targetFile);
+        // 编码
+        imageCodecService.encode(image, format, quality, targetFile);
+    }
 
-            // 返回相对路径
-            return storageService.getFileUrl(getRelativePath(targetFile));
-        } catch (IOException e) {
-            log.error("转换格式失败", e);
-            throw new BusinessException(ResultCode.SYSTEM_ERROR, "转换格式失败: " + e.getMessage());
+    /**
+     * 规划解码方式
+     * <p>
+     * 开头的中心裁剪转为解码区域，随后的缩小按比例降采样解码；压缩和格式转换只影响编码，可跳过。
+     * 带EXIF旋转的图片解码后才校正方向，坐标无法直接对应，仍完整解码。
+     *
+     * @param metadata   原图元数据
+     * @param operations 处理步骤
+     * @return 解码方式
+     */
+    private DecodePlan planDecode(ImageMetadataDTO metadata, List<ImageOperationDTO> operations) {
+        if (!isDirectlyDecodable(metadata)) {
+            return new DecodePlan(null, 1, operations);
+        }
+
+        Rectangle region = new Rectangle(0, 0, metadata.getWidth(), metadata.getHeight());
+        boolean cropped = false;
+        int subsampling = 1;
+        List<ImageOperationDTO> remaining = new ArrayList<>(operations);
+        for (ImageOperationDTO operation : operations) {
+            String type = operation.getType().toLowerCase();
+            if ("compress".equals(type) || "format".equals(type)) {
+                continue;
+            }
+            // 裁剪尺寸超出图片时会放大，不能转为解码区域
+            if ("crop".equals(type) && operation.getWidth() <= region.width && operation.getHeight() <= region.height) {
+                region = new Rectangle(region.x + (region.width - operation.getWidth()) / 2,
+                        region.y + (region.height - operation.getHeight()) / 2,
+                        operation.getWidth(), operation.getHeight());
+                cropped = true;
+                remaining.remove(operation);
+                continue;
+            }
+            if ("resize".equals(type)) {
+                subsampling = subsampling(region.width, region.height, operation.getWidth(), operation.getHeight(), false);
+            }
+            break;
         }
+        return new DecodePlan(cropped ? region : null, subsampling, remaining);
     }
 
     /**
-     * 获取并验证图片
+     * 是否为GIF动图
+     */
+    private boolean isAnimated(ImageMetadataDTO metadata) {
+        return metadata != null && "gif".equals(metadata.getFormat()) && metadata.getWidth() != null
+                && metadata.getHeight() != null && metadata.getFrameCount() != null && metadata.getFrameCount() > 1;
+    }
+
+    /**
+     * 规划动图的逐帧处理：把缩放和中心裁剪折算为画布上的取景区域和输出尺寸
+     * <p>
+     * 每帧只覆盖画布的一部分，水印需要先合成整幅画面，暂不支持，返回null时按静态图处理。
      *
-     * @param imageId 图片ID
-     * @return 图片实体
+     * @param metadata   原图元数据
+     * @param operations 处理步骤
+     * @return 逐帧处理方式，不支持时返回null
      */
-    private Image getAndVerifyImage(Long imageId) {
-        // 查询图片
-        Image image = imageDao.findById(imageId);
-        if (image == null || image.getDeleted() == 1) {
-            throw new BusinessException(ResultCode.DATA_NOT_FOUND, "图片不存在");
+    private AnimationGeometry planAnimation(ImageMetadataDTO metadata, List<ImageOperationDTO> operations) {
+        double x = 0;
+        double y = 0;
+        double sourceWidth = metadata.getWidth();
+        double sourceHeight = metadata.getHeight();
+        int width = metadata.getWidth();
+        int height = metadata.getHeight();
+        for (ImageOperationDTO operation : operations) {
+            switch (operation.getType().toLowerCase()) {
+                case "resize":
+                    Dimension size = fitSize(width, height, operation.getWidth(), operation.getHeight());
+                    width = size.width;
+                    height = size.height;
+                    break;
+                case "crop":
+                    // 裁剪尺寸超出当前画面时会放大，不逐帧处理
+                    if (operation.getWidth() > width || operation.getHeight() > height) {
+                        return null;
+                    }
+                    double scaleX = sourceWidth / width;
+                    double scaleY = sourceHeight / height;
+                    x += (width - operation.getWidth()) / 2 * scaleX;
+                    y += (height - operation.getHeight()) / 2 * scaleY;
+                    sourceWidth = operation.getWidth() * scaleX;
+                    sourceHeight = operation.getHeight() * scaleY;
+                    width = operation.getWidth();
+                    height = operation.getHeight();
+                    break;
+                case "compress":
+                case "format":
+                    break;
+                default:
+                    return null;
+            }
         }
+        return new AnimationGeometry(x, y, sourceWidth, sourceHeight, width, height);
+    }
 
-        // 验证图片所有权
-        Long userId = SecurityUtil.getCurrentUserId();
-        if (!image.getUserId().equals(userId)) {
-            throw new BusinessException(ResultCode.FORBIDDEN, "无权访问该图片");
+    /**
+     * 计算缩放后的尺寸，与{@link #resize}一致：同时指定宽高时等比缩放到框内，只指定一边时按比例缩放
+     */
+    private Dimension fitSize(int sourceWidth, int sourceHeight, Integer width, Integer height) {
+        double scale;
+        if (width != null && height != null) {
+            scale = Math.min((double) width / sourceWidth, (double) height / sourceHeight);
+        } else if (width != null) {
+            scale = (double) width / sourceWidth;
+        } else {
+            scale = (double) height / sourceHeight;
         }
+        return new Dimension(Math.max(1, (int) Math.round(sourceWidth * scale)),
+                Math.max(1, (int) Math.round(sourceHeight * scale)));
+    }
 
-        return image;
+    /**
+     * 为缩放解码原图，大幅缩小时降采样
+     *
+     * @param sourceFile 原图文件
+     * @param metadata   原图元数据
+     * @param width      目标宽度
+     * @param height     目标高度
+     * @param fill       是否需要填满目标尺寸（cover/fill），否则等比缩放到框内
+     * @return 图片
+     * @throws IOException IO异常
+     */
+    private BufferedImage decodeForResize(File sourceFile, ImageMetadataDTO metadata, Integer width, Integer height,
+                                          boolean fill) throws IOException {
+        return decode(sourceFile, metadata, null, resizeSubsampling(metadata, width, height, fill));
+    }
+
+    /**
+     * 计算为缩放解码原图时的降采样倍数，无法直接解码时不降采样
+     */
+    private int resizeSubsampling(ImageMetadataDTO metadata, Integer width, Integer height, boolean fill) {
+        if ((width != null || height != null) && isDirectlyDecodable(metadata)) {
+            return subsampling(metadata.getWidth(), metadata.getHeight(), width, height, fill);
+        }
+        return 1;
+    }
+
+    /**
+     * 计算降采样倍数，解码结果至少保留目标尺寸的2倍，再由缩放算法平滑缩小
+     */
+    private int subsampling(int sourceWidth, int sourceHeight, Integer width, Integer height, boolean fill) {
+        double ratio;
+        if (width != null && height != null) {
+            double widthRatio = (double) sourceWidth / width;
+            double heightRatio = (double) sourceHeight / height;
+            ratio = fill ? Math.min(widthRatio, heightRatio) : Math.max(widthRatio, heightRatio);
+        } else if (width != null) {
+            ratio = (double) sourceWidth / width;
+        } else {
+            ratio = (double) sourceHeight / height;
+        }
+        return Math.max(1, (int) (ratio / 2));
+    }
+
+    /**
+     * 是否可以按原始坐标直接解码（尺寸已知且无需按EXIF旋转）
+     */
+    private boolean isDirectlyDecodable(ImageMetadataDTO metadata) {
+        return metadata != null && metadata.getWidth() != null && metadata.getHeight() != null
+                && (metadata.getOrientation() == null || metadata.getOrientation() == 1);
     }
 
     /**
-     * 创建目标文件
+     * 解码图片并按EXIF方向校正
+     * <p>
+     * 只有无需旋转的图片才会指定解码区域或降采样，校正不影响其坐标。
      *
-     * @param processType 处理类型
-     * @param fileName    文件名
-     * @return 目标文件
+     * @param sourceFile  原图文件
+     * @param metadata    原图元数据
+     * @param region      解码区域，为null时解码整幅图片
+     * @param subsampling 降采样倍数
+     * @return 图片
      * @throws IOException IO异常
      */
-    private File createTargetFile(String processType, String fileName) throws IOException {
-        // 生成日期目录
-        String datePath = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
-        
-        // 完整目录路径
-        String fullDirectory = storagePath + File.separator + "processed" + File.separator + processType + File.separator + datePath;
-        
-        // 确保目录存在
-        Path directoryPath = Paths.get(fullDirectory);
-        Files.createDirectories(directoryPath);
-        
-        // 完整文件路径
-        return new File(fullDirectory, fileName);
+    private BufferedImage decode(File sourceFile, ImageMetadataDTO metadata, Rectangle region, int subsampling)
+            throws IOException {
+        BufferedImage image = imageCodecService.decode(sourceFile, region, subsampling);
+        return imageCodecService.orient(image, metadata != null ? metadata.getOrientation() : null);
     }
 
     /**
-     * 生成处理后的文件名
+     * 调整大小，只指定一边时按比例缩放
+     */
+    private BufferedImage resize(BufferedImage image, Integer width, Integer height) throws IOException {
+        Thumbnails.Builder<BufferedImage> builder = Thumbnails.of(image);
+        if (width != null && height != null) {
+            builder.size(width, height);
+        } else if (width != null) {
+            builder.width(width);
+        } else {
+            builder.height(height);
+        }
+        return builder.asBufferedImage();
+    }
+
+    /**
+     * 添加水印（参数已在规范化时校验）
      *
-     * @param originalName 原始文件名
-     * @param suffix       后缀
-     * @return 处理后的文件名
+     * @param image     图片
+     * @param operation 水印步骤
+     * @param logos     水印图片，key为图片ID
+     * @return 添加水印后的图片
+     * @throws IOException IO异常
      */
-    private String generateProcessedFileName(String originalName, String suffix) {
-        String extension = getExtension(originalName);
-        String nameWithoutExt = getNameWithoutExtension(originalName);
-        return nameWithoutExt + "_" + suffix + "_" + UUID.randomUUID().toString().substring(0, 8) + "." + extension;
+    private BufferedImage drawWatermark(BufferedImage image, ImageOperationDTO operation, Map<Long, Image> logos)
+            throws IOException {
+        String position = watermarkPosition(operation.getWatermarkPosition());
+        int opacity = operation.getWatermarkOpacity() != null ? operation.getWatermarkOpacity() : DEFAULT_WATERMARK_OPACITY;
+        if (operation.getWatermarkImageId() != null) {
+            return watermarkService.drawLogo(image, logos.get(operation.getWatermarkImageId()), position, opacity / 100.0f);
+        }
+        int fontSize = operation.getWatermarkFontSize() != null ? operation.getWatermarkFontSize() : DEFAULT_WATERMARK_FONT_SIZE;
+        return watermarkService.drawText(image, operation.getWatermarkText(), fontSize, position, opacity / 100.0f);
     }
 
+    /**
+     * 校验水印参数，未指定时使用默认值
+     */
+    private int watermarkParam(Integer value, int defaultValue, int min, int max, String message) {
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value < min || value > max) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, message);
+        }
+        return value;
+    }
+
+    /**
+     * 规范化水印位置，未知位置按默认的左下角处理
+     */
+    private String watermarkPosition(String position) {
+        return StringUtils.hasText(position) && WATERMARK_POSITIONS.contains(position.toLowerCase())
+                ? position.toLowerCase() : "bottomleft";
+    }
     /**
      * 获取文件扩展名
      *
@@ -411,26 +1242,125 @@ public class ImageProcessServiceImpl implements ImageProcessService {
     }
 
     /**
-     * 获取不含扩展名的文件名
-     *
-     * @param fileName 文件名
-     * @return 不含扩展名的文件名
+     * 解码方式
      */
-    private String getNameWithoutExtension(String fileName) {
-        if (fileName == null || !fileName.contains(".")) {
-            return fileName;
+    private static final class DecodePlan {
+
+        /**
+         * 解码区域，为null时解码整幅图片
+         */
+        private final Rectangle region;
+
+        /**
+         * 降采样倍数
+         */
+        private final int subsampling;
+
+        /**
+         * 解码后仍需执行的处理步骤
+         */
+        private final List<ImageOperationDTO> operations;
+
+        private DecodePlan(Rectangle region, int subsampling, List<ImageOperationDTO> operations) {
+            this.region = region;
+            this.subsampling = subsampling;
+            this.operations = operations;
         }
-        return fileName.substring(0, fileName.lastIndexOf("."));
     }
 
     /**
-     * 获取相对路径
-     *
-     * @param file 文件
-     * @return 相对路径
+     * 处理过程中的像素数估算，用于预留内存预算
      */
-    private String getRelativePath(File file) {
-        String absolutePath = file.getAbsolutePath();
-        return absolutePath.substring(storagePath.length() + 1).replace("\\", "/");
+    private static final class PixelEstimate {
+
+        /**
+         * 解码得到的像素数，0表示按原图估算
+         */
+        private final long decode;
+
+        /**
+         * 处理过程中最大的图像像素数，0表示与解码结果相同
+         */
+        private final long output;
+
+        private PixelEstimate(long decode, long output) {
+            this.decode = decode;
+            this.output = output;
+        }
+    }
+
+    /**
+     * 动图逐帧处理方式：把画布上的取景区域缩放到输出尺寸
+     */
+    private static final class AnimationGeometry {
+
+        /**
+         * 取景区域在原画布中的位置和大小
+         */
+        private final double x;
+        private final double y;
+        private final double sourceWidth;
+        private final double sourceHeight;
+
+        /**
+         * 输出画布尺寸
+         */
+        private final int width;
+        private final int height;
+
+        private AnimationGeometry(double x, double y, double sourceWidth, double sourceHeight, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * 转换一帧：截取落在取景区域内的部分，按比例缩放并换算到输出画布的位置
+         */
+        private ImageCodecService.AnimationFrame apply(BufferedImage frame, Rectangle bounds) throws IOException {
+            int left = (int) Math.floor(Math.max(bounds.x, x));
+            int top = (int) Math.floor(Math.max(bounds.y, y));
+            int right = (int) Math.ceil(Math.min(bounds.x + bounds.width, x + sourceWidth));
+            int bottom = (int) Math.ceil(Math.min(bounds.y + bounds.height, y + sourceHeight));
+            if (right <= left || bottom <= top) {
+                // 帧完全在取景区域外，保留一个透明像素以维持帧的时长和处置方式
+                return new ImageCodecService.AnimationFrame(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB), 0, 0);
+            }
+
+            double scaleX = width / sourceWidth;
+            double scaleY = height / sourceHeight;
+            int targetX = Math.min(width - 1, (int) Math.round((left - x) * scaleX));
+            int targetY = Math.min(height - 1, (int) Math.round((top - y) * scaleY));
+            int targetWidth = Math.max(1, Math.min(width, (int) Math.round((right - x) * scaleX)) - targetX);
+            int targetHeight = Math.max(1, Math.min(height, (int) Math.round((bottom - y) * scaleY)) - targetY);
+
+            BufferedImage region = frame.getSubimage(left - bounds.x, top - bounds.y, right - left, bottom - top);
+            if (targetWidth != region.getWidth() || targetHeight != region.getHeight()) {
+                // 按ARGB缩放，编码时再映射回原帧调色板；沿用索引色类型会退化为默认调色板
+                region = Thumbnails.of(region).forceSize(targetWidth, targetHeight)
+                        .imageType(BufferedImage.TYPE_INT_ARGB).asBufferedImage();
+            }
+            return new ImageCodecService.AnimationFrame(region, targetX, targetY);
+        }
+    }
+
+    /**
+     * 生成处理结果
+     */
+    @FunctionalInterface
+    private interface Renderer {
+
+        /**
+         * 处理原图并写入目标文件
+         *
+         * @param sourceFile 原图文件
+         * @param metadata   原图元数据，无法识别时为null
+         * @param targetFile 目标文件
+         * @throws IOException IO异常
+         */
+        void render(File sourceFile, ImageMetadataDTO metadata, File targetFile) throws IOException;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -4,26 +4,55 @@ import com.imagehosting.common.exception.BusinessException;
 import com.imagehosting.common.result.ResultCode;
 import com.imagehosting.common.util.SecurityUtil;
 import com.imagehosting.dao.ImageDao;
+import com.imagehosting.model.dto.ImageMetadataDTO;
 import com.imagehosting.model.dto.ImageQueryDTO;
+import com.imagehosting.model.dto.InstantUploadDTO;
 import com.imagehosting.model.entity.Image;
+import com.imagehosting.model.entity.ImageBlob;
+import com.imagehosting.model.vo.BatchUploadResultVO;
 import com.imagehosting.model.vo.ImageUploadVO;
 import com.imagehosting.model.vo.ImageVO;
 import com.imagehosting.model.vo.PageVO;
+import com.imagehosting.service.ImageBlobService;
+import com.imagehosting.service.ImageCodecService;
+import com.imagehosting.service.ImageDerivativeService;
+import com.imagehosting.service.ImageMetadataService;
+import com.imagehosting.service.ImageProcessScheduler;
+import com.imagehosting.service.ImageProcessService;
 import com.imagehosting.service.ImageService;
+import com.imagehosting.service.ImageSimilarityService;
 import com.imagehosting.service.StorageService;
+import com.imagehosting.service.util.BlurHash;
+import com.imagehosting.service.util.UploadInputStream;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.DigestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -36,99 +65,265 @@ public class ImageServiceImpl implements ImageService {
 
     private final ImageDao imageDao;
     private final StorageService storageService;
+    private final ImageMetadataService imageMetadataService;
+    private final ImageProcessScheduler imageProcessScheduler;
+    private final ImageProcessService imageProcessService;
+    private final ImageBlobService imageBlobService;
+    private final ImageCodecService imageCodecService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ImageSimilarityService imageSimilarityService;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 批量上传工作线程数
+     */
+    @Value("${upload.batch.threads:4}")
+    private int batchThreads;
+
+    /**
+     * 单次批量上传最大文件数
+     */
+    @Value("${upload.batch.max-files:200}")
+    private int batchMaxFiles;
+
+    /**
+     * 占位图（BlurHash）横向分量数
+     */
+    @Value("${image.placeholder.components-x:4}")
+    private int placeholderComponentsX;
+
+    /**
+     * 占位图（BlurHash）纵向分量数
+     */
+    @Value("${image.placeholder.components-y:3}")
+    private int placeholderComponentsY;
+
+    /**
+     * 批量上传工作线程池
+     */
+    private ExecutorService batchExecutor;
+
+    /**
+     * 上传时截取的文件头长度，足以覆盖常见格式的尺寸信息
+     */
+    private static final int HEADER_CAPTURE_SIZE = 128 * 1024;
+
+    /**
+     * 降采样解码的目标尺寸，保留感知哈希网格（9x8）的约8倍供缩放算法平滑
+     */
+    private static final int SAMPLE_WIDTH = 72;
+    private static final int SAMPLE_HEIGHT = 64;
+
+    /**
+     * 单张图片最大大小（字节），与分片上传共用配置
+     */
+    @Value("${upload.chunk.max-file-size:10485760}")
+    private long maxUploadSize;
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public ImageUploadVO uploadImage(MultipartFile file) {
         try {
-            // 验证文件类型
-            String contentType = file.getContentType();
-            if (contentType == null || !contentType.startsWith("image/")) {
-                throw new BusinessException(ResultCode.PARAM_ERROR, "只能上传图片文件");
-            }
-
-            // 验证文件大小
-            long size = file.getSize();
-            if (size > 10 * 1024 * 1024) { // 10MB
-                throw new BusinessException(ResultCode.PARAM_ERROR, "图片大小不能超过10MB");
-            }
+            // 验证文件类型和大小
+            validateUpload(file.getContentType(), file.getSize());
 
             // 获取当前用户ID
-            Long userId;
-            try {
-                userId = SecurityUtil.getCurrentUserId();
-                log.debug("成功获取上传用户ID: {}", userId);
-            } catch (Exception e) {
-                log.warn("获取当前用户ID失败，使用默认用户ID: {}", e.getMessage());
-                // 使用默认用户ID (1)
-                userId = 1L;
+            Long userId = getUploadUserId();
+
+            // 写入存储并生成图片记录，存储写入不占用数据库事务
+            Image image = storeImage(userId, file, file.getOriginalFilename(), file.getContentType(), file.getSize());
+            if (image.getId() == null) {
+                // 保存图片记录
+                insertImage(image);
             }
 
-            // 计算文件MD5
-            String md5 = DigestUtils.md5DigestAsHex(file.getBytes());
+            // 返回结果
+            return toUploadVO(image);
+        } catch (IOException e) {
+            log.error("上传图片失败", e);
+            throw new BusinessException(ResultCode.SYSTEM_ERROR, "上传图片失败: " + e.getMessage());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        batchExecutor = Executors.newFixedThreadPool(batchThreads, new CustomizableThreadFactory("image-batch-upload-"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        batchExecutor.shutdown();
+    }
+
+    @Override
+    public ImageUploadVO uploadImage(Long userId, File file, String originalFilename, String contentType,
+                                     String md5, String sha256) {
+        try {
+            long size = file.length();
+
+            // 解码前拒绝无法识别的格式和像素数超限的图片
+            ImageMetadataDTO metadata = imageMetadataService.probe(file);
+            checkFormat(metadata);
+            imageProcessScheduler.checkPixels(metadata);
 
             // 检查是否已存在相同MD5的图片
-            Image existingImage = imageDao.findByUserIdAndMd5(userId, md5);
-            if (existingImage != null && existingImage.getDeleted() == 0) {
-                // 直接返回已存在的图片信息
-                ImageUploadVO result = new ImageUploadVO();
-                result.setId(existingImage.getId());
-                result.setName(existingImage.getName());
-                result.setUrl(storageService.getFileUrl(existingImage.getPath()));
-                result.setSize(existingImage.getSize());
-                result.setWidth(existingImage.getWidth());
-                result.setHeight(existingImage.getHeight());
-                log.info("上传图片已存在，直接返回: {}", result);
-                return result;
+            Image existingImage = findExistingImage(userId, md5);
+            if (existingImage != null) {
+                log.info("上传图片已存在，直接返回: {}", existingImage.getId());
+                return toUploadVO(existingImage);
             }
 
-            // 获取图片尺寸
-            BufferedImage bufferedImage = ImageIO.read(file.getInputStream());
-            int width = bufferedImage != null ? bufferedImage.getWidth() : 0;
-            int height = bufferedImage != null ? bufferedImage.getHeight() : 0;
-
-            // 上传文件到存储
-            String filePath = storageService.uploadFile(file, "images");
-
-            // 获取原始文件名
-            String originalFilename = file.getOriginalFilename();
-            
-            // 生成图片记录
-            Image image = Image.builder()
-                    .userId(userId)
-                    .name(originalFilename)
-                    .originalName(originalFilename)
-                    .path(filePath)
-                    .url(storageService.getFileUrl(filePath))
-                    .md5(md5)
-                    .size(size)
-                    .width(width)
-                    .height(height)
-                    .mimeType(contentType)
-                    .accessCount(0L)
-                    .deleted(0)
-                    .createTime(LocalDateTime.now())
-                    .updateTime(LocalDateTime.now())
-                    .build();
+            // 降采样解码，用于计算感知哈希和占位图
+            BufferedImage sample = decodeSample(file.toPath(), metadata);
+
+            // 内容已存在时直接引用，无需再次写入存储；存储写入不占用数据库事务
+            ImageBlob blob = imageBlobService.reference(sha256, md5, size);
+            if (blob == null) {
+                String filePath;
+                try (InputStream in = Files.newInputStream(file.toPath())) {
+                    filePath = storageService.uploadFile(in, size, originalFilename, "images");
+                }
+                blob = imageBlobService.acquire(sha256, md5, size, filePath);
+            }
 
-            // 保存图片记录
-            imageDao.insert(image);
+            // 生成并保存图片记录
+            Image image = buildImage(userId, originalFilename, contentType, size, md5, blob, metadata, sample);
+            insertImage(image);
 
-            // 返回结果
-            return ImageUploadVO.builder()
-                    .id(image.getId())
-                    .name(image.getName())
-                    .url(image.getUrl())
-                    .size(image.getSize())
-                    .width(image.getWidth())
-                    .height(image.getHeight())
-                    .build();
+            return toUploadVO(image);
         } catch (IOException e) {
             log.error("上传图片失败", e);
             throw new BusinessException(ResultCode.SYSTEM_ERROR, "上传图片失败: " + e.getMessage());
         }
     }
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public ImageUploadVO instantUpload(InstantUploadDTO instantDTO) {
+        if (instantDTO.getSize() == null || instantDTO.getMd5() == null) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "文件大小和MD5不能为空");
+        }
+        validateUpload(instantDTO.getContentType(), instantDTO.getSize());
+        Long userId = getUploadUserId();
+        String md5 = instantDTO.getMd5().toLowerCase();
+
+        // 当前用户已上传过相同图片
+        Image existingImage = findExistingImage(userId, md5);
+        if (existingImage != null && existingImage.getSize().equals(instantDTO.getSize())) {
+            log.info("秒传命中已有图片: {}", existingImage.getId());
+            return toUploadVO(existingImage);
+        }
+
+        // 其他用户上传过相同内容，需同时匹配SHA-256，仅凭MD5不足以证明持有文件
+        if (instantDTO.getSha256() == null) {
+            return null;
+        }
+        ImageBlob blob = imageBlobService.reference(instantDTO.getSha256().toLowerCase(), md5, instantDTO.getSize());
+        if (blob == null) {
+            return null;
+        }
+
+        // 元数据取自引用相同内容的已有记录，无需读取文件
+        Image source = imageDao.findFirstByBlobId(blob.getId());
+        ImageMetadataDTO metadata = null;
+        if (source != null) {
+            metadata = ImageMetadataDTO.builder()
+                    .width(source.getWidth())
+                    .height(source.getHeight())
+                    .format(source.getFormat())
+                    .frameCount(source.getFrameCount())
+                    .orientation(source.getOrientation())
+                    .colorProfile(source.getColorProfile())
+                    .build();
+        }
+        Image image = buildImage(userId, instantDTO.getFileName(), instantDTO.getContentType(),
+                instantDTO.getSize(), md5, blob, metadata, null);
+        if (source != null) {
+            image.setPhash(source.getPhash());
+            image.setBlurhash(source.getBlurhash());
+        }
+        imageDao.insert(image);
+        imageSimilarityService.index(image);
+        log.info("秒传命中已有内容: blobId={}, imageId={}", blob.getId(), image.getId());
+        return toUploadVO(image);
+    }
+
+    @Override
+    public List<BatchUploadResultVO> uploadImages(List<MultipartFile> files) {
+        if (files == null || files.isEmpty()) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "请选择要上传的图片");
+        }
+        if (files.size() > batchMaxFiles) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "单次最多上传" + batchMaxFiles + "张图片");
+        }
+
+        // 在请求线程中获取用户ID，工作线程中没有安全上下文
+        Long userId = getUploadUserId();
+
+        // 并行写入存储，不占用数据库事务，内容引用在各自独立的短事务中登记
+        List<Future<Image>> futures = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            futures.add(batchExecutor.submit(() -> {
+                validateUpload(file.getContentType(), file.getSize());
+                return storeImage(userId, file, file.getOriginalFilename(), file.getContentType(), file.getSize());
+            }));
+        }
+
+        Image[] images = new Image[files.size()];
+        String[] errors = new String[files.size()];
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                images[i] = futures.get(i).get();
+            } catch (ExecutionException e) {
+                errors[i] = e.getCause() instanceof BusinessException
+                        ? e.getCause().getMessage() : "上传图片失败: " + e.getCause().getMessage();
+                log.warn("批量上传图片失败: {}, {}", files.get(i).getOriginalFilename(), errors[i]);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException(ResultCode.SYSTEM_ERROR, "批量上传被中断");
+            }
+        }
+
+        // 同一批次内的相同图片只保留一条记录
+        Map<String, Image> firstByMd5 = new HashMap<>();
+        List<Image> newImages = new ArrayList<>();
+        for (int i = 0; i < images.length; i++) {
+            if (images[i] == null || images[i].getId() != null) {
+                continue;
+            }
+            Image first = firstByMd5.putIfAbsent(images[i].getMd5(), images[i]);
+            if (first != null) {
+                imageBlobService.release(images[i]);
+                images[i] = first;
+            } else {
+                newImages.add(images[i]);
+            }
+        }
+
+        // 一次性批量插入图片记录
+        if (!newImages.isEmpty()) {
+            try {
+                imageDao.insertBatch(newImages);
+            } catch (RuntimeException e) {
+                // 撤销已登记的内容引用
+                newImages.forEach(imageBlobService::release);
+                throw e;
+            }
+            newImages.forEach(imageSimilarityService::index);
+        }
+
+        List<BatchUploadResultVO> results = new ArrayList<>(files.size());
+        for (int i = 0; i < images.length; i++) {
+            results.add(BatchUploadResultVO.builder()
+                    .fileName(files.get(i).getOriginalFilename())
+                    .success(images[i] != null)
+                    .message(errors[i])
+                    .image(images[i] != null ? toUploadVO(images[i]) : null)
+                    .build());
+        }
+        log.info("批量上传图片完成: userId={}, total={}, inserted={}", userId, files.size(), newImages.size());
+        return results;
+    }
+
     @Override
     public PageVO<ImageVO> getImageList(ImageQueryDTO queryDTO) {
         // 获取当前用户ID
@@ -148,7 +343,10 @@ public class ImageServiceImpl implements ImageService {
         );
 
         // 转换为VO
-        List<ImageVO> voList = imageList.stream().map(this::convertToVO).collect(Collectors.toList());
+        Map<Long, String> srcsets = imageProcessService.getSrcsets(imageList);
+        List<ImageVO> voList = imageList.stream()
+                .map(image -> convertToVO(image, srcsets.get(image.getId())))
+                .collect(Collectors.toList());
 
         // 返回分页结果
         return PageVO.of(voList, total, queryDTO.getPage(), queryDTO.getSize());
@@ -171,7 +369,7 @@ public class ImageServiceImpl implements ImageService {
         }
 
         // 转换为VO并返回
-        return convertToVO(image);
+        return convertToVO(image, imageProcessService.getSrcsets(List.of(image)).get(image.getId()));
     }
 
     @Override
@@ -193,9 +391,13 @@ public class ImageServiceImpl implements ImageService {
 
         // 逻辑删除图片记录
         imageDao.delete(id);
+        imageSimilarityService.remove(image);
+
+        // 释放内容引用，最后一个引用释放时删除物理文件
+        imageBlobService.release(image);
 
-        // 尝试从存储中删除文件（根据业务需求决定是否物理删除）
-        storageService.deleteFile(image.getPath());
+        // 删除处理结果
+        imageDerivativeService.deleteByImageId(id);
     }
 
     @Override
@@ -215,14 +417,259 @@ public class ImageServiceImpl implements ImageService {
     }
 
     /**
-     * 转换为VO
+     * 验证上传文件类型和大小
+     *
+     * @param contentType 媒体类型
+     * @param size        文件大小
+     */
+    private void validateUpload(String contentType, long size) {
+        // 验证文件类型
+        if (contentType == null || !contentType.startsWith("image/")) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "只能上传图片文件");
+        }
+
+        // 验证文件大小
+        if (size > maxUploadSize) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "图片大小不能超过" + maxUploadSize / 1024 / 1024 + "MB");
+        }
+    }
+
+    /**
+     * 校验探测得到的图片格式，客户端声明的媒体类型不可信
+     *
+     * @param metadata 图片元数据
+     */
+    private void checkFormat(ImageMetadataDTO metadata) {
+        if (metadata == null || ImageMetadataService.mimeType(metadata.getFormat()) == null) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "不支持的图片格式");
+        }
+    }
+
+    /**
+     * 在短事务中保存新图片记录，失败时撤销已登记的内容引用
+     *
+     * @param image 图片记录
+     */
+    private void insertImage(Image image) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                imageDao.insert(image);
+                imageSimilarityService.index(image);
+            });
+        } catch (RuntimeException e) {
+            imageBlobService.release(image);
+            throw e;
+        }
+    }
+
+    /**
+     * 获取上传用户ID
+     *
+     * @return 用户ID
+     */
+    private Long getUploadUserId() {
+        try {
+            Long userId = SecurityUtil.getCurrentUserId();
+            log.debug("成功获取上传用户ID: {}", userId);
+            return userId;
+        } catch (Exception e) {
+            log.warn("获取当前用户ID失败，使用默认用户ID: {}", e.getMessage());
+            // 使用默认用户ID (1)
+            return 1L;
+        }
+    }
+
+    /**
+     * 暂存上传文件并生成图片记录，内容已存在时不写入存储
+     *
+     * @param userId           用户ID
+     * @param source           文件来源
+     * @param originalFilename 原始文件名
+     * @param contentType      媒体类型
+     * @param size             文件大小
+     * @return 新图片记录（尚未入库），已存在相同图片时返回已有记录
+     * @throws IOException IO异常
+     */
+    private Image storeImage(Long userId, InputStreamSource source, String originalFilename,
+                             String contentType, long size) throws IOException {
+        // 单次遍历上传流：暂存到本地临时文件的同时计算摘要并截取文件头，确认内容不存在后才写入存储
+        Path tempFile = Files.createTempFile("upload-", null);
+        try {
+            String md5;
+            String sha256;
+            byte[] header;
+            Integer gifFrameCount;
+            try (UploadInputStream uploadStream = new UploadInputStream(source.getInputStream(), HEADER_CAPTURE_SIZE)) {
+                Files.copy(uploadStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                md5 = uploadStream.getMd5();
+                sha256 = uploadStream.getSha256();
+                header = uploadStream.getHeader();
+                gifFrameCount = uploadStream.getGifFrameCount();
+            }
+
+            // 仅解析文件头获取图片元数据，不解码像素
+            ImageMetadataDTO metadata = imageMetadataService.probe(header);
+            if (metadata != null && metadata.getFrameCount() == null && "gif".equals(metadata.getFormat())) {
+                // GIF帧数已在暂存时顺序统计
+                metadata.setFrameCount(gifFrameCount);
+            }
+            if (metadata == null || metadata.getFrameCount() == null) {
+                // 文件头超出截取范围（如超大EXIF段）或其他格式的动图，从暂存文件探测
+                metadata = imageMetadataService.probe(tempFile.toFile());
+            }
+            // 解码前拒绝无法识别的格式和像素数超限的图片
+            checkFormat(metadata);
+            imageProcessScheduler.checkPixels(metadata);
+
+            // 检查是否已存在相同MD5的图片
+            Image existingImage = findExistingImage(userId, md5);
+            if (existingImage != null) {
+                log.info("上传图片已存在，直接返回: {}", existingImage.getId());
+                return existingImage;
+            }
+
+            // 降采样解码，用于计算感知哈希和占位图
+            BufferedImage sample = decodeSample(tempFile, metadata);
+
+            // 按内容哈希全局去重，内容已存在时直接引用，相同内容共享同一物理文件
+            ImageBlob blob = imageBlobService.reference(sha256, md5, size);
+            if (blob == null) {
+                String filePath;
+                try (InputStream in = Files.newInputStream(tempFile)) {
+                    filePath = storageService.uploadFile(in, size, originalFilename, "images");
+                }
+                blob = imageBlobService.acquire(sha256, md5, size, filePath);
+            }
+
+            return buildImage(userId, originalFilename, contentType, size, md5, blob, metadata, sample);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * 查询用户已上传的相同图片
+     *
+     * @param userId 用户ID
+     * @param md5    MD5值
+     * @return 图片记录，不存在时返回null
+     */
+    private Image findExistingImage(Long userId, String md5) {
+        Image existingImage = imageDao.findByUserIdAndMd5(userId, md5);
+        return existingImage != null && existingImage.getDeleted() == 0 ? existingImage : null;
+    }
+
+    /**
+     * 降采样解码图片，只读取生成感知哈希和占位图所需的像素
+     * <p>
+     * 与其他图片处理一样在处理线程池中执行，按降采样后的尺寸占用内存预算。
+     *
+     * @param file     图片文件
+     * @param metadata 图片元数据
+     * @return 按EXIF方向校正后的小图，无法解码时返回null
+     */
+    private BufferedImage decodeSample(Path file, ImageMetadataDTO metadata) {
+        if (metadata == null || metadata.getWidth() == null || metadata.getHeight() == null) {
+            return null;
+        }
+        int subsampling = Math.max(1, Math.min(metadata.getWidth() / SAMPLE_WIDTH, metadata.getHeight() / SAMPLE_HEIGHT));
+        long pixels = (long) ((metadata.getWidth() + subsampling - 1) / subsampling)
+                * ((metadata.getHeight() + subsampling - 1) / subsampling);
+        try {
+            return imageProcessScheduler.execute(metadata, pixels, 0, () -> {
+                try (InputStream in = Files.newInputStream(file)) {
+                    BufferedImage sample = imageCodecService.decode(in, subsampling);
+                    // 按显示方向计算，旋转后另存的副本也能匹配
+                    return imageCodecService.orient(sample, metadata.getOrientation());
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            // 感知哈希和占位图都是辅助信息，解码失败不影响上传
+            log.warn("降采样解码图片失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 生成占位图
+     *
+     * @param sample 降采样后的图片
+     * @return BlurHash字符串，失败时返回null
+     */
+    private String encodePlaceholder(BufferedImage sample) {
+        try {
+            return BlurHash.encode(sample, placeholderComponentsX, placeholderComponentsY);
+        } catch (IOException | RuntimeException e) {
+            log.warn("生成占位图失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 生成图片记录
+     *
+     * @param sample 降采样后的图片，用于计算感知哈希和占位图，为null时不计算
+     */
+    private Image buildImage(Long userId, String originalFilename, String contentType, long size,
+                             String md5, ImageBlob blob, ImageMetadataDTO metadata, BufferedImage sample) {
+        if (metadata == null) {
+            metadata = ImageMetadataDTO.builder().width(0).height(0).build();
+        }
+        return Image.builder()
+                .userId(userId)
+                .name(originalFilename)
+                .originalName(originalFilename)
+                .path(blob.getPath())
+                .blobId(blob.getId())
+                .url(storageService.getFileUrl(blob.getPath()))
+                .md5(md5)
+                .size(size)
+                .width(metadata.getWidth())
+                .height(metadata.getHeight())
+                .format(metadata.getFormat())
+                .frameCount(metadata.getFrameCount())
+                .orientation(metadata.getOrientation())
+                .colorProfile(metadata.getColorProfile())
+                .phash(sample != null ? imageSimilarityService.computeHash(sample) : null)
+                .blurhash(sample != null ? encodePlaceholder(sample) : null)
+                // 媒体类型取自探测得到的格式，不使用客户端声明的值
+                .mimeType(metadata.getFormat() != null ? ImageMetadataService.mimeType(metadata.getFormat()) : contentType)
+                .accessCount(0L)
+                .replicationState(storageService.requiresReplication() ? 0 : null)
+                .deleted(0)
+                .createTime(LocalDateTime.now())
+                .updateTime(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * 转换为上传结果VO
      *
      * @param image 图片实体
+     * @return 上传结果VO
+     */
+    private ImageUploadVO toUploadVO(Image image) {
+        return ImageUploadVO.builder()
+                .id(image.getId())
+                .name(image.getName())
+                .url(storageService.getFileUrl(image.getPath()))
+                .size(image.getSize())
+                .width(image.getWidth())
+                .height(image.getHeight())
+                .build();
+    }
+
+    /**
+     * 转换为VO
+     *
+     * @param image  图片实体
+     * @param srcset 响应式图片地址
      * @return 图片VO
      */
-    private ImageVO convertToVO(Image image) {
+    private ImageVO convertToVO(Image image, String srcset) {
         ImageVO vo = new ImageVO();
         BeanUtils.copyProperties(image, vo);
+        vo.setSrcset(srcset);
         return vo;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,274 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.common.exception.BusinessException;
+import com.imagehosting.common.result.ResultCode;
+import com.imagehosting.dao.ImageDao;
+import com.imagehosting.model.entity.Image;
+import com.imagehosting.model.vo.ImageVO;
+import com.imagehosting.model.vo.SimilarImageVO;
+import com.imagehosting.service.ImageSimilarityService;
+import com.imagehosting.service.util.HammingIndex;
+import com.imagehosting.service.util.PerceptualHash;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 相似图片服务实现
+ * <p>
+ * 所有图片共用一个多索引哈希表，按用户查询时过滤候选；启动时从数据库加载已有哈希，上传和删除时增量更新。
+ */
+@Slf4j
+@Service
+public class ImageSimilarityServiceImpl implements ImageSimilarityService {
+
+    /**
+     * 单次查询最多返回的相似图片数
+     */
+    private static final int MAX_RESULTS = 100;
+
+    /**
+     * 最多返回的重复分组数
+     */
+    private static final int MAX_GROUPS = 100;
+    private static final int DEFAULT_GROUPS = 20;
+
+    /**
+     * 启动时每批加载的图片数
+     */
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final ImageDao imageDao;
+
+    /**
+     * 默认最大汉明距离
+     */
+    private final int defaultDistance;
+
+    /**
+     * 查找重复图片时最多作为基准的图片数，避免在全部用户的索引上逐一查找
+     */
+    private final int maxScan;
+
+    private final HammingIndex<Long> index = new HammingIndex<>();
+
+    /**
+     * 已索引图片所属的用户，key为图片ID
+     */
+    private final Map<Long, Long> owners = new ConcurrentHashMap<>();
+
+    public ImageSimilarityServiceImpl(ImageDao imageDao, @Value("${image.similarity.distance:6}") int defaultDistance,
+                                      @Value("${image.similarity.max-scan:10000}") int maxScan) {
+        this.imageDao = imageDao;
+        this.defaultDistance = defaultDistance;
+        this.maxScan = maxScan;
+    }
+
+    @PostConstruct
+    public void init() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        List<Image> batch;
+        do {
+            batch = imageDao.findHashedAfterId(lastId, LOAD_BATCH_SIZE);
+            for (Image image : batch) {
+                index(image);
+                lastId = image.getId();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        log.info("感知哈希索引加载完成: count={}, cost={}ms", index.size(), System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public Long computeHash(BufferedImage sample) {
+        try {
+            return PerceptualHash.dHash(sample);
+        } catch (IOException | RuntimeException e) {
+            // 哈希只用于查找相似图片，计算失败不影响上传
+            log.warn("计算感知哈希失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void index(Image image) {
+        if (image.getId() == null || image.getPhash() == null) {
+            return;
+        }
+        afterCommit(() -> {
+            if (owners.putIfAbsent(image.getId(), image.getUserId()) == null) {
+                index.add(image.getPhash(), image.getId());
+            }
+        });
+    }
+
+    @Override
+    public void remove(Image image) {
+        if (image.getId() == null || image.getPhash() == null) {
+            return;
+        }
+        afterCommit(() -> {
+            if (owners.remove(image.getId()) != null) {
+                index.remove(image.getPhash(), image.getId());
+            }
+        });
+    }
+
+    @Override
+    public List<SimilarImageVO> findSimilar(Long imageId, Integer distance, boolean global) {
+        Image image = imageDao.findById(imageId);
+        if (image == null || image.getDeleted() == 1) {
+            throw new BusinessException(ResultCode.DATA_NOT_FOUND, "图片不存在");
+        }
+        if (image.getPhash() == null) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "该图片没有感知哈希");
+        }
+
+        Long userId = global ? null : image.getUserId();
+        List<HammingIndex.Match<Long>> matches = index.search(image.getPhash(), resolveDistance(distance)).stream()
+                .filter(match -> !match.getValue().equals(imageId) && belongsTo(match.getValue(), userId))
+                .sorted(Comparator.<HammingIndex.Match<Long>>comparingInt(HammingIndex.Match::getDistance)
+                        .thenComparing(HammingIndex.Match::getValue))
+                .limit(MAX_RESULTS)
+                .collect(Collectors.toList());
+
+        Map<Long, Image> images = loadImages(matches.stream().map(HammingIndex.Match::getValue).collect(Collectors.toList()));
+        return toSimilarVOs(matches, images);
+    }
+
+    @Override
+    public List<List<SimilarImageVO>> findDuplicates(Long userId, Integer distance, Integer limit) {
+        int maxDistance = resolveDistance(distance);
+        int maxGroups = limit == null ? DEFAULT_GROUPS : Math.max(1, Math.min(limit, MAX_GROUPS));
+
+        // 只保留最近上传的maxScan张图片作为基准，按ID顺序以较早上传的图片为基准分组
+        TreeMap<Long, Long> hashes = new TreeMap<>();
+        index.forEach((hash, id) -> {
+            if (belongsTo(id, userId)) {
+                hashes.put(id, hash);
+                if (hashes.size() > maxScan) {
+                    hashes.pollFirstEntry();
+                }
+            }
+        });
+
+        Set<Long> grouped = new HashSet<>();
+        List<List<HammingIndex.Match<Long>>> groups = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : hashes.entrySet()) {
+            Long id = entry.getKey();
+            if (grouped.contains(id)) {
+                continue;
+            }
+            List<HammingIndex.Match<Long>> group = index.search(entry.getValue(), maxDistance).stream()
+                    .filter(match -> !grouped.contains(match.getValue()) && belongsTo(match.getValue(), userId))
+                    .sorted(Comparator.<HammingIndex.Match<Long>, Boolean>comparing(match -> !match.getValue().equals(id))
+                            .thenComparingInt(HammingIndex.Match::getDistance)
+                            .thenComparing(HammingIndex.Match::getValue))
+                    .limit(MAX_RESULTS)
+                    .collect(Collectors.toList());
+            if (group.size() < 2) {
+                continue;
+            }
+            group.forEach(match -> grouped.add(match.getValue()));
+            groups.add(group);
+            if (groups.size() >= maxGroups) {
+                break;
+            }
+        }
+
+        Map<Long, Image> images = loadImages(new ArrayList<>(grouped));
+        List<List<SimilarImageVO>> result = new ArrayList<>(groups.size());
+        for (List<HammingIndex.Match<Long>> group : groups) {
+            List<SimilarImageVO> vos = toSimilarVOs(group, images);
+            // 索引中可能残留刚删除的图片
+            if (vos.size() >= 2) {
+                result.add(vos);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 事务中调用时在提交后执行，回滚的图片记录不会残留在索引中
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * 校验最大汉明距离，未指定时使用默认值
+     */
+    private int resolveDistance(Integer distance) {
+        if (distance == null) {
+            return defaultDistance;
+        }
+        if (distance < 0 || distance > HammingIndex.MAX_DISTANCE) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "汉明距离应该在0-" + HammingIndex.MAX_DISTANCE + "之间");
+        }
+        return distance;
+    }
+
+    /**
+     * 图片是否属于指定用户，userId为null时不限制
+     */
+    private boolean belongsTo(Long imageId, Long userId) {
+        return userId == null || userId.equals(owners.get(imageId));
+    }
+
+    /**
+     * 批量查询未删除的图片
+     */
+    private Map<Long, Image> loadImages(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return imageDao.findByIds(ids).stream().collect(Collectors.toMap(Image::getId, Function.identity()));
+    }
+
+    /**
+     * 转换为相似图片VO，跳过已删除的图片
+     */
+    private List<SimilarImageVO> toSimilarVOs(List<HammingIndex.Match<Long>> matches, Map<Long, Image> images) {
+        List<SimilarImageVO> vos = new ArrayList<>(matches.size());
+        for (HammingIndex.Match<Long> match : matches) {
+            Image image = images.get(match.getValue());
+            if (image == null) {
+                continue;
+            }
+            ImageVO vo = new ImageVO();
+            BeanUtils.copyProperties(image, vo);
+            vos.add(SimilarImageVO.builder()
+                    .image(vo)
+                    .distance(match.getDistance())
+                    .build());
+        }
+        return vos;
+    }
+}
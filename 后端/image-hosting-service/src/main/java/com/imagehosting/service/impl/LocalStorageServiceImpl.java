@@ -3,6 +3,8 @@ package com.imagehosting.service.impl;
 import com.imagehosting.common.exception.BusinessException;
 import com.imagehosting.common.result.ResultCode;
 import com.imagehosting.service.StorageService;
+import com.imagehosting.service.util.PathLayout;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -10,12 +12,12 @@ import org.springframework.util.DigestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.UUID;
 
 /**
@@ -23,8 +25,11 @@ import java.util.UUID;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class LocalStorageServiceImpl implements StorageService {
 
+    private final PathLayout pathLayout;
+
     @Value("${storage.local.path}")
     private String storagePath;
 
@@ -38,28 +43,59 @@ public class LocalStorageServiceImpl implements StorageService {
             throw new BusinessException(ResultCode.PARAM_ERROR, "上传文件不能为空");
         }
 
-        // 生成日期目录
-        String datePath = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
-        
-        // 完整目录路径
-        String fullDirectory = storagePath + File.separator + directory + File.separator + datePath;
-        
+        // 按路径布局生成相对路径
+        String filePath = pathLayout.resolve(directory, generateFileName(file.getOriginalFilename()));
+
         // 确保目录存在
-        Path directoryPath = Paths.get(fullDirectory);
-        Files.createDirectories(directoryPath);
-        
-        // 生成新文件名
-        String newFileName = generateFileName(file.getOriginalFilename());
-        
-        // 完整文件路径
-        String filePath = fullDirectory + File.separator + newFileName;
-        Path fileFullPath = Paths.get(filePath);
-        
+        Path fileFullPath = Paths.get(storagePath, filePath);
+        Files.createDirectories(fileFullPath.getParent());
+
         // 写入文件
         file.transferTo(fileFullPath.toFile());
-        
+
         // 返回文件路径（相对于存储根目录）
-        return directory + "/" + datePath + "/" + newFileName;
+        return filePath;
+    }
+
+    @Override
+    public String uploadFile(InputStream inputStream, long size, String originalFilename, String directory) throws IOException {
+        // 检查文件是否为空
+        if (size <= 0) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "上传文件不能为空");
+        }
+
+        // 按路径布局生成相对路径
+        String filePath = pathLayout.resolve(directory, generateFileName(originalFilename));
+
+        // 确保目录存在
+        Path fileFullPath = Paths.get(storagePath, filePath);
+        Files.createDirectories(fileFullPath.getParent());
+
+        // 边读边写，不在内存中缓存整个文件
+        Files.copy(inputStream, fileFullPath);
+
+        // 返回文件路径（相对于存储根目录）
+        return filePath;
+    }
+
+    @Override
+    public InputStream getInputStream(String filePath) throws IOException {
+        return Files.newInputStream(getLocalFile(filePath).getFile().toPath());
+    }
+
+    @Override
+    public LocalFile getLocalFile(String filePath) throws IOException {
+        // 拒绝越出存储根目录的路径
+        Path root = Paths.get(storagePath).toAbsolutePath().normalize();
+        Path path = root.resolve(filePath).normalize();
+        if (!path.startsWith(root)) {
+            throw new FileNotFoundException(filePath);
+        }
+        File file = path.toFile();
+        if (!file.isFile()) {
+            throw new FileNotFoundException(filePath);
+        }
+        return LocalFile.of(file);
     }
 
     @Override
@@ -78,6 +114,11 @@ public class LocalStorageServiceImpl implements StorageService {
         return urlPrefix + "/" + filePath;
     }
 
+    @Override
+    public boolean requiresReplication() {
+        return false;
+    }
+
     @Override
     public String generateFileName(String originalFilename) {
         // 获取文件扩展名
@@ -0,0 +1,542 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.common.exception.BusinessException;
+import com.imagehosting.common.result.ResultCode;
+import com.imagehosting.service.StorageService;
+import com.imagehosting.service.util.ByteBufferInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 卷文件存储服务（小文件合并存储）
+ * <p>
+ * 小文件依次追加到大的卷文件中，内存索引记录每个文件所在的卷和偏移，读取时通过内存映射直接访问
+ * （按固定大小的窗口分段映射），避免每张图片占用一个inode。启动时顺序扫描卷文件重建索引；删除只在卷中打删除标记，
+ * 由定时压缩任务将垃圾比例超过阈值的卷中仍有效的文件复制到当前卷后删除旧卷。
+ * 超过大小限制的文件仍写入本地存储。
+ * <p>
+ * 卷文件中每条记录的格式：magic(4) flags(1) keyLength(2) dataLength(4) key data crc32(4)
+ */
+@Slf4j
+public class PackStorageServiceImpl implements StorageService, AutoCloseable {
+
+    /**
+     * 卷存储的文件路径前缀
+     */
+    public static final String PATH_PREFIX = "pack/";
+
+    private static final int MAGIC = 0x50414B31;
+    private static final byte FLAG_LIVE = 0;
+    private static final byte FLAG_DELETED = 1;
+    private static final int FLAGS_OFFSET = 4;
+    private static final int HEADER_SIZE = 11;
+    private static final int CRC_SIZE = 4;
+    private static final Pattern VOLUME_NAME = Pattern.compile("(\\d{8})\\.vol");
+
+    private final LocalStorageServiceImpl localStorageService;
+    private final Path packDir;
+    private final long maxBlobSize;
+    private final long volumeSize;
+    private final double compactionThreshold;
+    private final long mapWindowSize;
+
+    /**
+     * 需要本地文件的调用方（如图片处理）从卷中提取到此缓存，文件访问直接输出映射数据
+     */
+    private final CachingStorageServiceImpl extractCache;
+
+    /**
+     * 文件索引，key为文件路径
+     */
+    private final Map<String, Needle> index = new ConcurrentHashMap<>();
+
+    /**
+     * 所有卷（按ID排序），由writeLock保护
+     */
+    private final TreeMap<Integer, Volume> volumes = new TreeMap<>();
+
+    /**
+     * 当前追加写入的卷
+     */
+    private Volume activeVolume;
+
+    private final Object writeLock = new Object();
+
+    /**
+     * 构造方法
+     *
+     * @param localStorageService 本地存储（存放大文件）
+     * @param packDir             卷文件目录
+     * @param maxBlobSize         写入卷的最大文件大小
+     * @param volumeSize          单个卷的最大字节数
+     * @param compactionThreshold 触发压缩的垃圾比例
+     * @param extractMaxSize      提取缓存最大字节数
+     * @param mapWindowSize       读取时每次映射的窗口字节数
+     * @throws IOException IO异常
+     */
+    public PackStorageServiceImpl(LocalStorageServiceImpl localStorageService, Path packDir, long maxBlobSize,
+                                  long volumeSize, double compactionThreshold, long extractMaxSize,
+                                  long mapWindowSize) throws IOException {
+        this.localStorageService = localStorageService;
+        this.packDir = packDir;
+        this.maxBlobSize = maxBlobSize;
+        this.volumeSize = volumeSize;
+        this.compactionThreshold = compactionThreshold;
+        // 窗口映射到一个MappedByteBuffer，不能超过2GB
+        this.mapWindowSize = Math.min(mapWindowSize, Integer.MAX_VALUE);
+        Files.createDirectories(packDir);
+        loadVolumes();
+        this.extractCache = new CachingStorageServiceImpl(this, packDir.resolve("extract"), extractMaxSize);
+    }
+
+    @Override
+    public String uploadFile(MultipartFile file, String directory) throws IOException {
+        if (file.isEmpty()) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "上传文件不能为空");
+        }
+        if (file.getSize() > maxBlobSize) {
+            return localStorageService.uploadFile(file, directory);
+        }
+        try (InputStream in = file.getInputStream()) {
+            return uploadFile(in, file.getSize(), file.getOriginalFilename(), directory);
+        }
+    }
+
+    @Override
+    public String uploadFile(InputStream inputStream, long size, String originalFilename, String directory) throws IOException {
+        if (size <= 0) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "上传文件不能为空");
+        }
+        if (size > maxBlobSize) {
+            return localStorageService.uploadFile(inputStream, size, originalFilename, directory);
+        }
+
+        byte[] data = inputStream.readNBytes((int) size + 1);
+        if (data.length != size) {
+            throw new IOException("文件大小与声明不一致: expected=" + size + ", actual=" + data.length);
+        }
+        String filePath = PATH_PREFIX + directory + "/" + generateFileName(originalFilename);
+        index.put(filePath, append(filePath, ByteBuffer.wrap(data)));
+        return filePath;
+    }
+
+    @Override
+    public InputStream getInputStream(String filePath) throws IOException {
+        if (!isPacked(filePath)) {
+            return localStorageService.getInputStream(filePath);
+        }
+        return new ByteBufferInputStream(read(filePath));
+    }
+
+    @Override
+    public LocalFile getLocalFile(String filePath) throws IOException {
+        if (!isPacked(filePath)) {
+            return localStorageService.getLocalFile(filePath);
+        }
+        // 已删除的文件可能仍留在提取缓存中，先检查索引
+        if (!index.containsKey(filePath)) {
+            throw new FileNotFoundException(filePath);
+        }
+        return extractCache.getLocalFile(filePath);
+    }
+
+    @Override
+    public ByteBuffer getMappedBuffer(String filePath) throws IOException {
+        return isPacked(filePath) ? read(filePath) : null;
+    }
+
+    @Override
+    public boolean deleteFile(String filePath) {
+        if (!isPacked(filePath)) {
+            return localStorageService.deleteFile(filePath);
+        }
+        Needle needle = index.remove(filePath);
+        if (needle == null) {
+            return false;
+        }
+        markDeleted(needle);
+        return true;
+    }
+
+    @Override
+    public String getFileUrl(String filePath) {
+        return localStorageService.getFileUrl(filePath);
+    }
+
+    @Override
+    public boolean requiresReplication() {
+        return false;
+    }
+
+    @Override
+    public String generateFileName(String originalFilename) {
+        return localStorageService.generateFileName(originalFilename);
+    }
+
+    /**
+     * 压缩垃圾比例超过阈值的卷
+     */
+    @Scheduled(fixedDelayString = "${storage.pack.compaction-interval:3600000}")
+    public void compact() {
+        List<Volume> candidates;
+        synchronized (writeLock) {
+            candidates = volumes.values().stream()
+                    .filter(volume -> volume != activeVolume && volume.size > 0
+                            && (double) volume.garbageBytes.get() / volume.size >= compactionThreshold)
+                    .collect(Collectors.toList());
+        }
+        for (Volume volume : candidates) {
+            try {
+                compact(volume);
+            } catch (IOException e) {
+                log.error("压缩卷失败: volume={}", volume.path, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            for (Volume volume : volumes.values()) {
+                volume.channel.close();
+            }
+        }
+    }
+
+    /**
+     * 将卷中有效的文件复制到当前卷，然后删除旧卷
+     */
+    private void compact(Volume volume) throws IOException {
+        List<Map.Entry<String, Needle>> live = index.entrySet().stream()
+                .filter(entry -> entry.getValue().volume == volume)
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().offset))
+                .collect(Collectors.toList());
+
+        long before = volume.size;
+        int moved = 0;
+        for (Map.Entry<String, Needle> entry : live) {
+            Needle source = entry.getValue();
+            Needle copy = append(entry.getKey(), volume.slice(source.dataOffset(), source.dataLength));
+            if (index.replace(entry.getKey(), source, copy)) {
+                moved++;
+            } else {
+                // 复制期间文件已被删除
+                markDeleted(copy);
+            }
+        }
+
+        synchronized (writeLock) {
+            volumes.remove(volume.id);
+        }
+        // 已取得映射缓冲区的读取方在旧卷删除后仍可读完（映射独立于文件句柄）
+        volume.channel.close();
+        Files.deleteIfExists(volume.path);
+        log.info("卷压缩完成: volume={}, moved={}, reclaimed={} bytes", volume.path, moved,
+                before - live.stream().mapToLong(entry -> entry.getValue().size()).sum());
+    }
+
+    /**
+     * 读取文件数据
+     */
+    private ByteBuffer read(String filePath) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            Needle needle = index.get(filePath);
+            if (needle == null) {
+                throw new FileNotFoundException(filePath);
+            }
+            try {
+                return needle.volume.slice(needle.dataOffset(), needle.dataLength);
+            } catch (ClosedChannelException e) {
+                // 所在卷刚被压缩，索引已指向新位置
+                if (attempt > 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 追加一条记录
+     */
+    private Needle append(String key, ByteBuffer data) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int dataLength = data.remaining();
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + keyBytes.length);
+        header.putInt(MAGIC).put(FLAG_LIVE).putShort((short) keyBytes.length).putInt(dataLength).put(keyBytes).flip();
+        ByteBuffer trailer = ByteBuffer.allocate(CRC_SIZE);
+        trailer.putInt((int) crc.getValue()).flip();
+        long needleSize = Needle.size(keyBytes.length, dataLength);
+
+        synchronized (writeLock) {
+            Volume volume = writableVolume(needleSize);
+            long offset = volume.size;
+            volume.write(new ByteBuffer[]{header, data.duplicate(), trailer}, offset, needleSize);
+            volume.size = offset + needleSize;
+            return new Needle(volume, offset, keyBytes.length, dataLength);
+        }
+    }
+
+    /**
+     * 标记记录已删除，其空间由压缩任务回收
+     */
+    private void markDeleted(Needle needle) {
+        needle.volume.garbageBytes.addAndGet(needle.size());
+        try {
+            needle.volume.channel.write(ByteBuffer.wrap(new byte[]{FLAG_DELETED}), needle.offset + FLAGS_OFFSET);
+        } catch (ClosedChannelException e) {
+            // 所在卷已被压缩删除
+        } catch (IOException e) {
+            log.error("写入删除标记失败: volume={}, offset={}", needle.volume.path, needle.offset, e);
+        }
+    }
+
+    /**
+     * 获取可写入指定大小记录的卷，当前卷已满时创建新卷
+     */
+    private Volume writableVolume(long needleSize) throws IOException {
+        if (activeVolume == null || (activeVolume.size > 0 && activeVolume.size + needleSize > volumeSize)) {
+            int id = volumes.isEmpty() ? 1 : volumes.lastKey() + 1;
+            activeVolume = openVolume(id);
+            volumes.put(id, activeVolume);
+            log.info("创建卷: {}", activeVolume.path);
+        }
+        return activeVolume;
+    }
+
+    private Volume openVolume(int id) throws IOException {
+        Path path = packDir.resolve(String.format("%08d.vol", id));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Volume(id, path, channel, mapWindowSize);
+    }
+
+    /**
+     * 启动时按卷ID顺序扫描所有卷重建索引
+     */
+    private void loadVolumes() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(packDir)) {
+            paths.forEach(path -> {
+                Matcher matcher = VOLUME_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    ids.add(Integer.parseInt(matcher.group(1)));
+                }
+            });
+        }
+        ids.sort(null);
+
+        for (int id : ids) {
+            Volume volume = openVolume(id);
+            volumes.put(id, volume);
+            scan(volume);
+        }
+        activeVolume = volumes.isEmpty() ? null : volumes.lastEntry().getValue();
+        log.info("卷存储已加载: path={}, volumes={}, files={}", packDir, volumes.size(), index.size());
+    }
+
+    /**
+     * 扫描卷文件，截断末尾未写完整的记录
+     */
+    private void scan(Volume volume) throws IOException {
+        long fileSize = volume.channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long position = 0;
+        Needle last = null;
+        while (position + HEADER_SIZE + CRC_SIZE <= fileSize) {
+            header.clear();
+            readFully(volume.channel, header, position);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                break;
+            }
+            byte flags = header.get();
+            int keyLength = header.getShort() & 0xFFFF;
+            int dataLength = header.getInt();
+            long needleSize = Needle.size(keyLength, dataLength);
+            if (dataLength < 0 || position + needleSize > fileSize) {
+                break;
+            }
+
+            ByteBuffer key = ByteBuffer.allocate(keyLength);
+            readFully(volume.channel, key, position + HEADER_SIZE);
+            Needle needle = new Needle(volume, position, keyLength, dataLength);
+            // 压缩中断时新旧卷中都有同一文件，以后写入的记录为准
+            String path = new String(key.array(), StandardCharsets.UTF_8);
+            Needle previous = flags == FLAG_LIVE ? index.put(path, needle) : index.remove(path);
+            if (previous != null) {
+                previous.volume.garbageBytes.addAndGet(previous.size());
+            }
+            if (flags != FLAG_LIVE) {
+                volume.garbageBytes.addAndGet(needleSize);
+            }
+            last = needle;
+            position += needleSize;
+        }
+
+        // 写入中断只可能发生在卷末尾，校验最后一条记录
+        if (last != null && !verify(last)) {
+            String path = null;
+            for (Map.Entry<String, Needle> entry : index.entrySet()) {
+                if (entry.getValue() == last) {
+                    path = entry.getKey();
+                }
+            }
+            if (path != null) {
+                index.remove(path);
+            }
+            position = last.offset;
+        }
+        if (position < fileSize) {
+            log.warn("卷末尾数据不完整，已截断: volume={}, valid={}, size={}", volume.path, position, fileSize);
+            volume.channel.truncate(position);
+        }
+        volume.size = position;
+    }
+
+    private boolean verify(Needle needle) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(needle.dataLength + CRC_SIZE);
+        readFully(needle.volume.channel, data, needle.dataOffset());
+        CRC32 crc = new CRC32();
+        crc.update(data.array(), 0, needle.dataLength);
+        return (int) crc.getValue() == data.getInt(needle.dataLength);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static boolean isPacked(String filePath) {
+        return filePath.startsWith(PATH_PREFIX);
+    }
+
+    /**
+     * 卷文件
+     */
+    private static final class Volume {
+
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+
+        /**
+         * 已写入的字节数（追加位置）
+         */
+        private volatile long size;
+
+        /**
+         * 已删除记录占用的字节数
+         */
+        private final AtomicLong garbageBytes = new AtomicLong();
+
+        private final long windowSize;
+
+        /**
+         * 只读映射，key为窗口序号；卷增长后只重新映射末尾的窗口
+         */
+        private final Map<Long, MappedByteBuffer> windows = new ConcurrentHashMap<>();
+
+        private Volume(int id, Path path, FileChannel channel, long windowSize) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.windowSize = windowSize;
+        }
+
+        private ByteBuffer slice(long position, int length) throws IOException {
+            long window = position / windowSize;
+            long start = window * windowSize;
+            if (position + length > start + windowSize) {
+                // 跨越窗口边界的记录单独映射
+                return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            }
+            MappedByteBuffer buffer = windows.get(window);
+            if (buffer == null || position + length > start + buffer.capacity()) {
+                buffer = remap(window, position + length - start);
+            }
+            return buffer.slice((int) (position - start), length);
+        }
+
+        private synchronized MappedByteBuffer remap(long window, long required) throws IOException {
+            MappedByteBuffer buffer = windows.get(window);
+            if (buffer == null || buffer.capacity() < required) {
+                // 只映射已写入的部分，映射超出文件末尾的区域访问时会出错
+                long start = window * windowSize;
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+                windows.put(window, buffer);
+            }
+            return buffer;
+        }
+
+        private void write(ByteBuffer[] buffers, long position, long length) throws IOException {
+            channel.position(position);
+            long remaining = length;
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        }
+    }
+
+    /**
+     * 文件在卷中的位置
+     */
+    private static final class Needle {
+
+        private final Volume volume;
+        private final long offset;
+        private final int keyLength;
+        private final int dataLength;
+
+        private Needle(Volume volume, long offset, int keyLength, int dataLength) {
+            this.volume = volume;
+            this.offset = offset;
+            this.keyLength = keyLength;
+            this.dataLength = dataLength;
+        }
+
+        private long dataOffset() {
+            return offset + HEADER_SIZE + keyLength;
+        }
+
+        private long size() {
+            return size(keyLength, dataLength);
+        }
+
+        private static long size(int keyLength, int dataLength) {
+            return (long) HEADER_SIZE + keyLength + dataLength + CRC_SIZE;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.service.StorageService;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 本地优先、后台复制到OSS的组合存储服务
+ * <p>
+ * 写入和读取只访问本地磁盘，上传请求以本地磁盘延迟返回；
+ * 新文件由后台复制任务异步上传到OSS，OSS中的对象与本地文件路径相同。
+ */
+public class ReplicatedStorageServiceImpl implements StorageService {
+
+    private final LocalStorageServiceImpl localStorageService;
+    private final AliyunOssStorageServiceImpl ossStorageService;
+
+    public ReplicatedStorageServiceImpl(LocalStorageServiceImpl localStorageService,
+                                        AliyunOssStorageServiceImpl ossStorageService) {
+        this.localStorageService = localStorageService;
+        this.ossStorageService = ossStorageService;
+    }
+
+    @Override
+    public String uploadFile(MultipartFile file, String directory) throws IOException {
+        return localStorageService.uploadFile(file, directory);
+    }
+
+    @Override
+    public String uploadFile(InputStream inputStream, long size, String originalFilename, String directory) throws IOException {
+        return localStorageService.uploadFile(inputStream, size, originalFilename, directory);
+    }
+
+    @Override
+    public InputStream getInputStream(String filePath) throws IOException {
+        return localStorageService.getInputStream(filePath);
+    }
+
+    @Override
+    public LocalFile getLocalFile(String filePath) throws IOException {
+        return localStorageService.getLocalFile(filePath);
+    }
+
+    @Override
+    public boolean deleteFile(String filePath) {
+        boolean deleted = localStorageService.deleteFile(filePath);
+        // 尚未复制的文件在OSS中不存在，删除不存在的对象不会报错
+        ossStorageService.deleteFile(filePath);
+        return deleted;
+    }
+
+    @Override
+    public String getFileUrl(String filePath) {
+        return localStorageService.getFileUrl(filePath);
+    }
+
+    @Override
+    public boolean requiresReplication() {
+        return true;
+    }
+
+    @Override
+    public String generateFileName(String originalFilename) {
+        return localStorageService.generateFileName(originalFilename);
+    }
+}
@@ -0,0 +1,328 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.common.exception.BusinessException;
+import com.imagehosting.common.result.ResultCode;
+import com.imagehosting.dao.ImageBlobDao;
+import com.imagehosting.dao.ImageDao;
+import com.imagehosting.model.entity.Image;
+import com.imagehosting.model.entity.ImageBlob;
+import com.imagehosting.model.vo.StorageMigrationVO;
+import com.imagehosting.service.StorageMigrationService;
+import com.imagehosting.service.util.PathLayout;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 存储目录迁移服务实现
+ * <p>
+ * 每个文件先在新路径建立硬链接，再锁定内容记录更新数据库路径，迁移过程中新旧路径均可读取。
+ * 并发上传在增加引用计数后才读取路径，引用计数多于图片记录数时说明还有读取到旧路径的上传未提交，
+ * 旧路径保留到这些记录提交并被修正、且没有任何图片或内容记录引用时才删除。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StorageMigrationServiceImpl implements StorageMigrationService {
+
+    private final ImageDao imageDao;
+    private final ImageBlobDao imageBlobDao;
+    private final LocalStorageServiceImpl localStorageService;
+    private final PathLayout localPathLayout;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${storage.type:oss}")
+    private String storageType;
+
+    @Value("${storage.local.path}")
+    private String storagePath;
+
+    /**
+     * 每批处理的记录数
+     */
+    @Value("${storage.migration.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 迁移结束时旧路径仍被引用，再次检查前的等待时间（毫秒）
+     */
+    @Value("${storage.migration.retry-interval:1000}")
+    private long retryInterval;
+
+    /**
+     * 迁移结束时旧路径仍被引用的最多检查次数，超过后保留旧路径
+     */
+    @Value("${storage.migration.retry-attempts:10}")
+    private int retryAttempts;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong migrated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile LocalDateTime startTime;
+    private volatile LocalDateTime finishTime;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("storage-migration-"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public StorageMigrationVO startMigration() {
+        if (!"local".equalsIgnoreCase(storageType)) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "仅本地存储支持迁移目录布局");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "迁移任务正在执行");
+        }
+
+        scanned.set(0);
+        migrated.set(0);
+        failed.set(0);
+        startTime = LocalDateTime.now();
+        finishTime = null;
+        executor.submit(this::migrate);
+        log.info("存储目录迁移任务已启动");
+        return getProgress();
+    }
+
+    @Override
+    public StorageMigrationVO getProgress() {
+        return StorageMigrationVO.builder()
+                .running(running.get())
+                .scanned(scanned.get())
+                .migrated(migrated.get())
+                .failed(failed.get())
+                .startTime(startTime)
+                .finishTime(finishTime)
+                .build();
+    }
+
+    /**
+     * 执行迁移
+     */
+    private void migrate() {
+        List<Relocation> pending = new ArrayList<>();
+        try {
+            // 共享内容的文件：同时更新内容记录和所有引用它的图片
+            long lastId = 0;
+            List<ImageBlob> blobs;
+            while (!(blobs = imageBlobDao.findBatchAfterId(lastId, batchSize)).isEmpty()) {
+                lastId = blobs.get(blobs.size() - 1).getId();
+                List<Relocation> batch = new ArrayList<>(blobs.size());
+                for (ImageBlob blob : blobs) {
+                    batch.add(new Relocation(blob.getPath(),
+                            (source, target) -> relocateBlob(blob.getId(), source, target),
+                            (source, target) -> blobSettled(blob.getId(), target)));
+                }
+                migrateBatch(batch, pending);
+            }
+
+            // 早期未关联内容记录的图片，不会被新上传引用
+            lastId = 0;
+            List<Image> images;
+            while (!(images = imageDao.findWithoutBlobAfterId(lastId, batchSize)).isEmpty()) {
+                lastId = images.get(images.size() - 1).getId();
+                List<Relocation> batch = new ArrayList<>(images.size());
+                for (Image image : images) {
+                    batch.add(new Relocation(image.getPath(), (source, target) -> imageDao.update(Image.builder()
+                            .id(image.getId())
+                            .path(target)
+                            .url(localStorageService.getFileUrl(target))
+                            .build()) > 0, (source, target) -> true));
+                }
+                migrateBatch(batch, pending);
+            }
+
+            for (int attempt = 0; attempt < retryAttempts && !pending.isEmpty(); attempt++) {
+                Thread.sleep(retryInterval);
+                pending.removeIf(this::releaseSource);
+            }
+            for (Relocation relocation : pending) {
+                log.warn("旧路径仍被引用，保留: {} -> {}", relocation.source, relocation.target);
+            }
+            log.info("存储目录迁移完成: scanned={}, migrated={}, failed={}", scanned.get(), migrated.get(), failed.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("存储目录迁移被中断");
+        } catch (RuntimeException e) {
+            log.error("存储目录迁移失败", e);
+        } finally {
+            finishTime = LocalDateTime.now();
+            running.set(false);
+        }
+    }
+
+    /**
+     * 迁移一批文件，旧路径仍被引用的加入待删除列表
+     */
+    private void migrateBatch(List<Relocation> batch, List<Relocation> pending) {
+        for (Relocation relocation : batch) {
+            scanned.incrementAndGet();
+            String source = relocation.source;
+            if (localPathLayout.matches(source) || source.indexOf('/') <= 0) {
+                continue;
+            }
+
+            relocation.target = localPathLayout.resolve(source.substring(0, source.indexOf('/')),
+                    source.substring(source.lastIndexOf('/') + 1));
+            Path targetPath = Paths.get(storagePath, relocation.target);
+            try {
+                link(Paths.get(storagePath, source), targetPath);
+                if (!relocation.updater.apply(source, relocation.target)) {
+                    // 记录已删除或路径已被修改，新建的链接无人引用
+                    deleteQuietly(targetPath);
+                    continue;
+                }
+                migrated.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                failed.incrementAndGet();
+                log.warn("迁移文件失败: {} -> {}, {}", source, relocation.target, e.getMessage());
+                deleteQuietly(targetPath);
+                continue;
+            }
+            if (!releaseSource(relocation)) {
+                pending.add(relocation);
+            }
+        }
+        // 之前仍被引用的旧路径，期间上传可能已提交
+        pending.removeIf(this::releaseSource);
+    }
+
+    /**
+     * 锁定内容记录后更新内容和图片的路径
+     *
+     * @return 内容记录已删除或路径已被修改时返回false
+     */
+    private boolean relocateBlob(Long blobId, String source, String target) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            ImageBlob blob = imageBlobDao.findByIdForUpdate(blobId);
+            if (blob == null || !blob.getPath().equals(source)) {
+                return false;
+            }
+            imageBlobDao.updatePath(blobId, target);
+            imageDao.updatePathByBlobId(blobId, target, localStorageService.getFileUrl(target));
+            return true;
+        }));
+    }
+
+    /**
+     * 修正期间提交的使用旧路径的图片记录，并检查是否还有未提交的上传
+     * <p>
+     * 上传先增加引用计数再读取路径，引用计数多于未删除的图片记录数时，可能有读取到旧路径的记录尚未提交。
+     *
+     * @return 是否不再有上传可能使用旧路径
+     */
+    private boolean blobSettled(Long blobId, String target) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            ImageBlob blob = imageBlobDao.findByIdForUpdate(blobId);
+            if (blob == null) {
+                return true;
+            }
+            imageDao.updatePathByBlobId(blobId, target, localStorageService.getFileUrl(target));
+            return blob.getRefCount() <= imageDao.countByBlobId(blobId);
+        }));
+    }
+
+    /**
+     * 没有任何图片或内容记录引用旧路径时删除旧路径
+     *
+     * @return 是否已删除
+     */
+    private boolean releaseSource(Relocation relocation) {
+        try {
+            if (!relocation.settled.apply(relocation.source, relocation.target)
+                    || imageDao.findFirstByPath(relocation.source) != null
+                    || imageBlobDao.findByPath(relocation.source) != null) {
+                return false;
+            }
+        } catch (RuntimeException e) {
+            log.warn("检查旧路径引用失败: {}, {}", relocation.source, e.getMessage());
+            return false;
+        }
+        deleteQuietly(Paths.get(storagePath, relocation.source));
+        return true;
+    }
+
+    /**
+     * 在新路径建立硬链接，文件系统不支持时复制
+     */
+    private void link(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            if (!Files.exists(source)) {
+                throw e;
+            }
+            Files.copy(source, target);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除文件失败: {}", path, e);
+        }
+    }
+
+    /**
+     * 待迁移文件
+     */
+    private static class Relocation {
+
+        private final String source;
+        private final PathAction updater;
+        private final PathAction settled;
+        private String target;
+
+        Relocation(String source, PathAction updater, PathAction settled) {
+            this.source = source;
+            this.updater = updater;
+            this.settled = settled;
+        }
+    }
+
+    /**
+     * 针对旧路径和新路径的操作
+     */
+    @FunctionalInterface
+    private interface PathAction {
+
+        /**
+         * 执行操作
+         *
+         * @param source 旧路径
+         * @param target 新路径
+         * @return 操作结果
+         */
+        boolean apply(String source, String target);
+    }
+}
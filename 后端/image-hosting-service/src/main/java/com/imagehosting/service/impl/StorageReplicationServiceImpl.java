@@ -0,0 +1,212 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.dao.ImageBlobDao;
+import com.imagehosting.dao.ImageDao;
+import com.imagehosting.dao.ImageDerivativeDao;
+import com.imagehosting.model.entity.Image;
+import com.imagehosting.model.entity.ImageBlob;
+import com.imagehosting.model.entity.ImageDerivative;
+import com.imagehosting.service.StorageReplicationService;
+import com.imagehosting.service.StorageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * 存储复制服务实现
+ * <p>
+ * 删除与复制并发时，删除方可能在上传完成前就已删除OSS对象，因此上传后在锁内确认记录仍然存在，
+ * 记录已删除时由复制方删除刚上传的副本。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StorageReplicationServiceImpl implements StorageReplicationService {
+
+    /**
+     * 退避时间翻倍的最大次数，避免移位溢出
+     */
+    private static final int MAX_BACKOFF_SHIFT = 20;
+
+    private final ImageDao imageDao;
+    private final ImageBlobDao imageBlobDao;
+    private final ImageDerivativeDao imageDerivativeDao;
+    private final StorageService storageService;
+    private final LocalStorageServiceImpl localStorageService;
+    private final AliyunOssStorageServiceImpl ossStorageService;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 每批复制的图片数（原图和衍生图分别计算）
+     */
+    @Value("${storage.replication.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 最大尝试次数，超过后标记为复制失败
+     */
+    @Value("${storage.replication.max-attempts:10}")
+    private int maxAttempts;
+
+    /**
+     * 首次失败后的重试间隔（秒），之后每次失败翻倍
+     */
+    @Value("${storage.replication.retry-delay:60}")
+    private long retryDelay;
+
+    /**
+     * 重试间隔上限（秒）
+     */
+    @Value("${storage.replication.retry-max-delay:3600}")
+    private long retryMaxDelay;
+
+    /**
+     * 定时复制待复制的文件，每批完成后若仍有积压则继续
+     */
+    @Scheduled(fixedDelayString = "${storage.replication.interval:5000}")
+    public void scheduledReplicate() {
+        if (!storageService.requiresReplication()) {
+            return;
+        }
+        while (replicatePending() >= batchSize) {
+            log.debug("复制积压未清空，继续下一批");
+        }
+    }
+
+    @Override
+    public int replicatePending() {
+        return replicateImages() + replicateDerivatives();
+    }
+
+    /**
+     * 复制一批原图
+     */
+    private int replicateImages() {
+        List<Image> images = imageDao.findPendingReplication(batchSize);
+        int replicated = 0;
+        for (Image image : images) {
+            String path = image.getPath();
+
+            // 相同内容的其他图片已复制过该文件
+            if (imageDao.countReplicatedByPath(path) > 0) {
+                imageDao.markReplicatedByPath(path);
+                replicated++;
+                continue;
+            }
+
+            try {
+                upload(path);
+            } catch (IOException | RuntimeException e) {
+                long delay = backoffDelay(image.getReplicationAttempts());
+                imageDao.recordReplicationFailure(image.getId(), maxAttempts, delay);
+                log.warn("复制文件到OSS失败: imageId={}, path={}, attempts={}, retryAfter={}s, {}",
+                        image.getId(), path, image.getReplicationAttempts() + 1, delay, e.getMessage());
+                continue;
+            }
+
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> markImageReplicated(image)))) {
+                replicated++;
+            } else {
+                deleteOrphan(path);
+            }
+        }
+        if (replicated > 0) {
+            log.info("复制图片到OSS: {}/{}", replicated, images.size());
+        }
+        return replicated;
+    }
+
+    /**
+     * 在锁内确认文件仍被引用后标记为已复制
+     *
+     * @return 文件已不再被引用时返回false
+     */
+    private boolean markImageReplicated(Image image) {
+        String path = image.getPath();
+        if (image.getBlobId() != null) {
+            // 释放内容和存储迁移都会先锁定内容记录
+            ImageBlob blob = imageBlobDao.findByIdForUpdate(image.getBlobId());
+            if (blob == null || !path.equals(blob.getPath())) {
+                return false;
+            }
+        } else {
+            // 未去重的旧图片独占文件，删除图片即删除文件
+            Image current = imageDao.findByIdForUpdate(image.getId());
+            if (current == null || current.getDeleted() != 0 || !path.equals(current.getPath())) {
+                return false;
+            }
+        }
+        imageDao.markReplicatedByPath(path);
+        return true;
+    }
+
+    /**
+     * 复制一批衍生图
+     */
+    private int replicateDerivatives() {
+        List<ImageDerivative> derivatives = imageDerivativeDao.findPendingReplication(batchSize);
+        int replicated = 0;
+        for (ImageDerivative derivative : derivatives) {
+            String path = derivative.getPath();
+            try {
+                upload(path);
+            } catch (IOException | RuntimeException e) {
+                long delay = backoffDelay(derivative.getReplicationAttempts());
+                imageDerivativeDao.recordReplicationFailure(derivative.getId(), maxAttempts, delay);
+                log.warn("复制衍生图到OSS失败: derivativeId={}, path={}, attempts={}, retryAfter={}s, {}",
+                        derivative.getId(), path, derivative.getReplicationAttempts() + 1, delay, e.getMessage());
+                continue;
+            }
+
+            // 更新会等待进行中的删除提交，记录已删除时不影响任何行
+            if (imageDerivativeDao.markReplicated(derivative.getId()) > 0) {
+                replicated++;
+            } else {
+                deleteOrphan(path);
+            }
+        }
+        if (replicated > 0) {
+            log.info("复制衍生图到OSS: {}/{}", replicated, derivatives.size());
+        }
+        return replicated;
+    }
+
+    /**
+     * 将本地文件上传到OSS
+     */
+    private void upload(String path) throws IOException {
+        try (StorageService.LocalFile file = localStorageService.getLocalFile(path);
+             InputStream in = Files.newInputStream(file.getFile().toPath())) {
+            ossStorageService.putObject(path, in, file.getFile().length());
+        }
+    }
+
+    /**
+     * 删除上传期间已被删除的文件在OSS中的副本
+     */
+    private void deleteOrphan(String path) {
+        log.info("文件在复制期间已删除，删除OSS副本: {}", path);
+        if (!ossStorageService.deleteFile(path)) {
+            log.warn("删除OSS副本失败，需手动清理: {}", path);
+        }
+    }
+
+    /**
+     * 计算下次重试前的等待秒数，按已失败次数指数增长
+     *
+     * @param attempts 已尝试次数
+     * @return 等待秒数
+     */
+    private long backoffDelay(Integer attempts) {
+        int shift = Math.min(attempts != null ? attempts : 0, MAX_BACKOFF_SHIFT);
+        return Math.min(retryDelay << shift, retryMaxDelay);
+    }
+}
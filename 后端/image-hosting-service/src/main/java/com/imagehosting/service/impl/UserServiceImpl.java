@@ -1,7 +1,7 @@
 package com.imagehosting.service.impl;
 
 import com.aliyun.oss.OSS;
-import com.aliyun.oss.OSSClientBuilder;
+import com.aliyun.oss.model.ObjectMetadata;
 import com.aliyun.oss.model.PutObjectRequest;
 import com.imagehosting.dao.ImageDao;
 import com.imagehosting.dao.UserDao;
@@ -23,6 +23,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -36,15 +37,7 @@ public class UserServiceImpl implements UserService {
     private final UserDao userDao;
     private final ImageDao imageDao;
     private final PasswordEncoder passwordEncoder;
-
-    @Value("${aliyun.oss.endpoint}")
-    private String endpoint;
-
-    @Value("${aliyun.oss.accessKeyId}")
-    private String accessKeyId;
-
-    @Value("${aliyun.oss.accessKeySecret}")
-    private String accessKeySecret;
+    private final OSS ossClient;
 
     @Value("${aliyun.oss.bucketName}")
     private String bucketName;
@@ -216,11 +209,11 @@ public class UserServiceImpl implements UserService {
         String extension = originalFilename != null ? originalFilename.substring(originalFilename.lastIndexOf(".")) : ".jpg";
         String fileName = "avatars/" + userId + "/" + UUID.randomUUID().toString() + extension;
 
-        // 上传到阿里云OSS
-        OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
-        try {
-            PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, fileName, file.getInputStream());
-            ossClient.putObject(putObjectRequest);
+        // 上传到阿里云OSS（使用共享客户端）
+        try (InputStream inputStream = file.getInputStream()) {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(file.getSize());
+            ossClient.putObject(new PutObjectRequest(bucketName, fileName, inputStream, metadata));
             
             // 生成访问URL
             String avatarUrl = domain + "/" + fileName;
@@ -233,8 +226,6 @@ public class UserServiceImpl implements UserService {
             return avatarUrl;
         } catch (IOException e) {
             throw new RuntimeException("上传头像失败", e);
-        } finally {
-            ossClient.shutdown();
         }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,221 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.common.exception.BusinessException;
+import com.imagehosting.common.result.ResultCode;
+import com.imagehosting.model.entity.Image;
+import com.imagehosting.service.ImageCodecService;
+import com.imagehosting.service.StorageService;
+import com.imagehosting.service.WatermarkService;
+import lombok.extern.slf4j.Slf4j;
+import net.coobird.thumbnailator.Thumbnails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 水印服务实现
+ */
+@Slf4j
+@Service
+public class WatermarkServiceImpl implements WatermarkService {
+
+    private static final String FONT_NAME = "Arial";
+    private static final int FONT_STYLE = Font.BOLD;
+    private static final Color TEXT_COLOR = Color.BLACK;
+
+    /**
+     * 水印与图片边缘的距离
+     */
+    private static final int MARGIN = 20;
+
+    /**
+     * 可以直接绘制的图片类型，其他类型（调色板、自定义布局）先转换
+     */
+    private static final Set<Integer> DRAWABLE_TYPES = Set.of(
+            BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_ARGB_PRE,
+            BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+            BufferedImage.TYPE_4BYTE_ABGR_PRE);
+
+    private final StorageService storageService;
+    private final ImageCodecService imageCodecService;
+
+    /**
+     * 水印图层缓存（按访问顺序），key包含渲染参数
+     */
+    private final Map<String, BufferedImage> overlays;
+
+    public WatermarkServiceImpl(StorageService storageService, ImageCodecService imageCodecService,
+                                @Value("${image.watermark.cache-size:256}") int cacheSize) {
+        this.storageService = storageService;
+        this.imageCodecService = imageCodecService;
+        this.overlays = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    @Override
+    public BufferedImage drawText(BufferedImage image, String text, int fontSize, String position, float opacity) {
+        String key = "text:" + FONT_NAME + ":" + FONT_STYLE + ":" + fontSize + ":" + TEXT_COLOR.getRGB() + ":" + text;
+        BufferedImage overlay = getOverlay(key);
+        if (overlay == null) {
+            overlay = putOverlay(key, renderText(text, fontSize));
+        }
+        return composite(image, overlay, position, opacity);
+    }
+
+    @Override
+    public BufferedImage drawLogo(BufferedImage image, Image logo, String position, float opacity) throws IOException {
+        // 方向5-8需要旋转90度，显示宽度为原始高度
+        Integer logoWidth = logo.getOrientation() != null && logo.getOrientation() >= 5 ? logo.getHeight() : logo.getWidth();
+        int width = Math.max(1, image.getWidth() / 4);
+        if (logoWidth != null) {
+            width = Math.min(logoWidth, width);
+        }
+        String key = "logo:" + logo.getId() + ":" + width;
+        BufferedImage overlay = getOverlay(key);
+        if (overlay == null) {
+            overlay = putOverlay(key, renderLogo(logo, width));
+        }
+        return composite(image, overlay, position, opacity);
+    }
+
+    private synchronized BufferedImage getOverlay(String key) {
+        return overlays.get(key);
+    }
+
+    private synchronized BufferedImage putOverlay(String key, BufferedImage overlay) {
+        overlays.put(key, overlay);
+        return overlay;
+    }
+
+    /**
+     * 将文字渲染为透明图层，图层大小恰好容纳文字
+     */
+    private BufferedImage renderText(String text, int fontSize) {
+        Font font = new Font(FONT_NAME, FONT_STYLE, fontSize);
+        FontRenderContext context = new FontRenderContext(null, true, true);
+        Rectangle2D bounds = font.getStringBounds(text, context);
+        LineMetrics metrics = font.getLineMetrics(text, context);
+
+        int width = Math.max(1, (int) Math.ceil(bounds.getWidth()));
+        int height = Math.max(1, (int) Math.ceil(metrics.getAscent() + metrics.getDescent()));
+        BufferedImage overlay = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = overlay.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+            g2d.setFont(font);
+            g2d.setColor(TEXT_COLOR);
+            g2d.drawString(text, 0, metrics.getAscent());
+        } finally {
+            g2d.dispose();
+        }
+        return overlay;
+    }
+
+    /**
+     * 解码水印图片并缩放到指定宽度
+     */
+    private BufferedImage renderLogo(Image logo, int width) throws IOException {
+        BufferedImage source;
+        try (StorageService.LocalFile file = storageService.getLocalFile(logo.getPath())) {
+            source = imageCodecService.orient(imageCodecService.decode(file.getFile(), null, 1), logo.getOrientation());
+        } catch (FileNotFoundException e) {
+            throw new BusinessException(ResultCode.DATA_NOT_FOUND, "水印图片不存在");
+        }
+        Thumbnails.Builder<BufferedImage> builder = Thumbnails.of(source).imageType(BufferedImage.TYPE_INT_ARGB);
+        if (source.getWidth() <= width) {
+            builder.scale(1.0);
+        } else {
+            builder.width(width);
+        }
+        return builder.asBufferedImage();
+    }
+
+    /**
+     * 按不透明度合成水印图层
+     */
+    private BufferedImage composite(BufferedImage image, BufferedImage overlay, String position, float opacity) {
+        BufferedImage target = drawable(image);
+        Graphics2D g2d = target.createGraphics();
+        try {
+            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, opacity));
+            if (POSITION_TILE.equals(position)) {
+                drawTiled(g2d, target, overlay);
+            } else {
+                Point point = locate(target, overlay, position);
+                g2d.drawImage(overlay, point.x, point.y, null);
+            }
+        } finally {
+            g2d.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * 按交错网格平铺水印，相邻行错开半个间距
+     */
+    private void drawTiled(Graphics2D g2d, BufferedImage target, BufferedImage overlay) {
+        int stepX = overlay.getWidth() + MARGIN * 2;
+        int stepY = overlay.getHeight() + MARGIN * 2;
+        int row = 0;
+        for (int y = MARGIN; y < target.getHeight(); y += stepY, row++) {
+            int offset = row % 2 == 0 ? 0 : stepX / 2;
+            for (int x = MARGIN - offset; x < target.getWidth(); x += stepX) {
+                g2d.drawImage(overlay, x, y, null);
+            }
+        }
+    }
+
+    /**
+     * 计算水印左上角坐标
+     */
+    private Point locate(BufferedImage target, BufferedImage overlay, String position) {
+        int right = target.getWidth() - MARGIN - overlay.getWidth();
+        int bottom = target.getHeight() - MARGIN - overlay.getHeight();
+        switch (position) {
+            case "topleft":
+                return new Point(MARGIN, MARGIN);
+            case "topright":
+                return new Point(right, MARGIN);
+            case "bottomright":
+                return new Point(right, bottom);
+            case "center":
+                return new Point((target.getWidth() - overlay.getWidth()) / 2,
+                        (target.getHeight() - overlay.getHeight()) / 2);
+            default:
+                return new Point(MARGIN, bottom);
+        }
+    }
+
+    /**
+     * 返回可直接绘制的图片，调色板等类型转换为RGB，带透明通道的转换为ARGB以保留透明度
+     */
+    private BufferedImage drawable(BufferedImage image) {
+        if (DRAWABLE_TYPES.contains(image.getType())) {
+            return image;
+        }
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        Graphics2D g2d = converted.createGraphics();
+        try {
+            g2d.drawImage(image, 0, 0, null);
+        } finally {
+            g2d.dispose();
+        }
+        return converted;
+    }
+}
@@ -0,0 +1,157 @@
+package com.imagehosting.service.util;
+
+import net.coobird.thumbnailator.Thumbnails;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * BlurHash编码
+ * <p>
+ * 将图片表示为若干个二维余弦分量，编码为数十个字符的Base83字符串，
+ * 前端解码后放大即可得到模糊的占位图。算法与 https://blurha.sh 的参考实现一致。
+ */
+public final class BlurHash {
+
+    private static final String CHARACTERS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    /**
+     * 编码前缩小到的最大边长，分量只反映低频信息，更多像素没有意义
+     */
+    private static final int MAX_SAMPLE_SIZE = 32;
+
+    private BlurHash() {
+    }
+
+    /**
+     * 编码图片
+     *
+     * @param image       图片
+     * @param componentsX 横向分量数（1-9）
+     * @param componentsY 纵向分量数（1-9）
+     * @return BlurHash字符串
+     * @throws IOException 缩放失败
+     */
+    public static String encode(BufferedImage image, int componentsX, int componentsY) throws IOException {
+        if (componentsX < 1 || componentsX > 9 || componentsY < 1 || componentsY > 9) {
+            throw new IllegalArgumentException("BlurHash components must be between 1 and 9");
+        }
+        if (image.getWidth() > MAX_SAMPLE_SIZE || image.getHeight() > MAX_SAMPLE_SIZE) {
+            image = Thumbnails.of(image).size(MAX_SAMPLE_SIZE, MAX_SAMPLE_SIZE).asBufferedImage();
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        float[][] linear = new float[3][pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            int argb = pixels[i];
+            int alpha = argb >>> 24;
+            // 透明像素按白色背景合成
+            linear[0][i] = toLinear(blend((argb >> 16) & 0xFF, alpha));
+            linear[1][i] = toLinear(blend((argb >> 8) & 0xFF, alpha));
+            linear[2][i] = toLinear(blend(argb & 0xFF, alpha));
+        }
+
+        double[][] factors = new double[componentsX * componentsY][];
+        for (int j = 0; j < componentsY; j++) {
+            for (int i = 0; i < componentsX; i++) {
+                factors[j * componentsX + i] = factor(linear, width, height, i, j);
+            }
+        }
+
+        StringBuilder hash = new StringBuilder();
+        encode83(hash, (componentsX - 1) + (componentsY - 1) * 9, 1);
+
+        double maximumValue;
+        if (factors.length > 1) {
+            double actualMaximum = 0;
+            for (int k = 1; k < factors.length; k++) {
+                for (double value : factors[k]) {
+                    actualMaximum = Math.max(actualMaximum, Math.abs(value));
+                }
+            }
+            int quantisedMaximum = (int) Math.max(0, Math.min(82, Math.floor(actualMaximum * 166 - 0.5)));
+            maximumValue = (quantisedMaximum + 1) / 166.0;
+            encode83(hash, quantisedMaximum, 1);
+        } else {
+            maximumValue = 1;
+            encode83(hash, 0, 1);
+        }
+
+        encode83(hash, encodeDc(factors[0]), 4);
+        for (int k = 1; k < factors.length; k++) {
+            encode83(hash, encodeAc(factors[k], maximumValue), 2);
+        }
+        return hash.toString();
+    }
+
+    /**
+     * 计算一个余弦分量的RGB系数
+     */
+    private static double[] factor(float[][] linear, int width, int height, int i, int j) {
+        double[] cosX = new double[width];
+        for (int x = 0; x < width; x++) {
+            cosX[x] = Math.cos(Math.PI * i * x / width);
+        }
+        double r = 0;
+        double g = 0;
+        double b = 0;
+        for (int y = 0; y < height; y++) {
+            double cosY = Math.cos(Math.PI * j * y / height);
+            for (int x = 0; x < width; x++) {
+                double basis = cosX[x] * cosY;
+                int index = y * width + x;
+                r += basis * linear[0][index];
+                g += basis * linear[1][index];
+                b += basis * linear[2][index];
+            }
+        }
+        double scale = (i == 0 && j == 0 ? 1.0 : 2.0) / (width * height);
+        return new double[]{r * scale, g * scale, b * scale};
+    }
+
+    private static int encodeDc(double[] value) {
+        return (toSrgb(value[0]) << 16) + (toSrgb(value[1]) << 8) + toSrgb(value[2]);
+    }
+
+    private static int encodeAc(double[] value, double maximumValue) {
+        int r = quantise(value[0] / maximumValue);
+        int g = quantise(value[1] / maximumValue);
+        int b = quantise(value[2] / maximumValue);
+        return r * 19 * 19 + g * 19 + b;
+    }
+
+    private static int quantise(double value) {
+        double signPow = Math.copySign(Math.sqrt(Math.abs(value)), value);
+        return (int) Math.max(0, Math.min(18, Math.floor(signPow * 9 + 9.5)));
+    }
+
+    private static void encode83(StringBuilder hash, int value, int length) {
+        int divisor = 1;
+        for (int i = 1; i < length; i++) {
+            divisor *= 83;
+        }
+        for (int i = 0; i < length; i++) {
+            hash.append(CHARACTERS.charAt((value / divisor) % 83));
+            divisor /= 83;
+        }
+    }
+
+    private static float toLinear(int value) {
+        double v = value / 255.0;
+        return (float) (v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4));
+    }
+
+    private static int toSrgb(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        return v <= 0.0031308
+                ? (int) (v * 12.92 * 255 + 0.5)
+                : (int) ((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+
+    private static int blend(int channel, int alpha) {
+        return (channel * alpha + 255 * (255 - alpha)) / 255;
+    }
+}
@@ -0,0 +1,53 @@
+package com.imagehosting.service.util;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 读取ByteBuffer的输入流
+ * <p>
+ * 直接从（内存映射的）缓冲区读取，不复制整段数据。
+ */
+public class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * 构造方法
+     *
+     * @param buffer 数据缓冲区，读取会移动其position
+     */
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+}
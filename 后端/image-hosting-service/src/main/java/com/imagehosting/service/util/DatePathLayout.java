@@ -0,0 +1,24 @@
+package com.imagehosting.service.util;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Pattern;
+
+/**
+ * 按日期分目录的路径布局：{directory}/yyyy/MM/dd/{fileName}
+ */
+public class DatePathLayout implements PathLayout {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+    private static final Pattern DATE_PATH = Pattern.compile("[^/]+/\\d{4}/\\d{2}/\\d{2}/[^/]+");
+
+    @Override
+    public String resolve(String directory, String fileName) {
+        return directory + "/" + LocalDate.now().format(DATE_FORMATTER) + "/" + fileName;
+    }
+
+    @Override
+    public boolean matches(String path) {
+        return DATE_PATH.matcher(path).matches();
+    }
+}
@@ -0,0 +1,121 @@
+package com.imagehosting.service.util;
+
+/**
+ * GIF帧数统计
+ * <p>
+ * 按顺序读取GIF数据块，只解析块头并跳过颜色表和图像数据，不缓存已读取的内容，
+ * 可在数据流过时逐段输入，内存占用与文件大小无关。
+ */
+public class GifFrameCounter {
+
+    private static final int HEADER_SIZE = 13;
+    private static final int DESCRIPTOR_SIZE = 9;
+    private static final int EXTENSION_INTRODUCER = 0x21;
+    private static final int IMAGE_SEPARATOR = 0x2C;
+    private static final int TRAILER = 0x3B;
+
+    private enum State {
+        HEADER, BLOCK, EXTENSION_LABEL, DESCRIPTOR, CODE_SIZE, SUB_BLOCK_SIZE, DONE, INVALID
+    }
+
+    private State state = State.HEADER;
+
+    /**
+     * 当前块头的缓冲（逻辑屏幕描述符或图像描述符）
+     */
+    private final byte[] buffer = new byte[HEADER_SIZE];
+    private int filled;
+
+    /**
+     * 进入下一状态前需要跳过的字节数（颜色表、子块数据）
+     */
+    private long skip;
+
+    private int frames;
+
+    /**
+     * 输入一段数据
+     *
+     * @param b   数据
+     * @param off 起始位置
+     * @param len 长度
+     */
+    public void update(byte[] b, int off, int len) {
+        int end = off + len;
+        int i = off;
+        while (i < end && state != State.DONE && state != State.INVALID) {
+            if (skip > 0) {
+                int n = (int) Math.min(skip, end - i);
+                skip -= n;
+                i += n;
+                continue;
+            }
+            int value = b[i++] & 0xFF;
+            switch (state) {
+                case HEADER:
+                    buffer[filled++] = (byte) value;
+                    if (filled == HEADER_SIZE) {
+                        if (buffer[0] != 'G' || buffer[1] != 'I' || buffer[2] != 'F') {
+                            state = State.INVALID;
+                            break;
+                        }
+                        skip = colorTableSize(buffer[10]);
+                        state = State.BLOCK;
+                    }
+                    break;
+                case BLOCK:
+                    if (value == IMAGE_SEPARATOR) {
+                        filled = 0;
+                        state = State.DESCRIPTOR;
+                    } else if (value == EXTENSION_INTRODUCER) {
+                        state = State.EXTENSION_LABEL;
+                    } else {
+                        // 结尾标记，或结尾之后的多余数据
+                        state = value == TRAILER || frames > 0 ? State.DONE : State.INVALID;
+                    }
+                    break;
+                case EXTENSION_LABEL:
+                    state = State.SUB_BLOCK_SIZE;
+                    break;
+                case DESCRIPTOR:
+                    buffer[filled++] = (byte) value;
+                    if (filled == DESCRIPTOR_SIZE) {
+                        frames++;
+                        skip = colorTableSize(buffer[8]);
+                        state = State.CODE_SIZE;
+                    }
+                    break;
+                case CODE_SIZE:
+                    state = State.SUB_BLOCK_SIZE;
+                    break;
+                case SUB_BLOCK_SIZE:
+                    if (value == 0) {
+                        state = State.BLOCK;
+                    } else {
+                        skip = value;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 获取帧数（截断的文件按已读取到的帧计算）
+     *
+     * @return 帧数，不是GIF或没有完整的帧时返回null
+     */
+    public Integer getFrameCount() {
+        return state != State.INVALID && frames > 0 ? frames : null;
+    }
+
+    /**
+     * 颜色表字节数
+     *
+     * @param packed 描述符中的标志字节
+     */
+    private static int colorTableSize(byte packed) {
+        return (packed & 0x80) != 0 ? 3 << ((packed & 0x07) + 1) : 0;
+    }
+}
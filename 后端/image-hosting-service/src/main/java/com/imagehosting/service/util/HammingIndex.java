@@ -0,0 +1,257 @@
+package com.imagehosting.service.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 按汉明距离查询64位哈希的多索引哈希表
+ * <p>
+ * 哈希切分为4段16位，每段各建一张表。两个哈希距离不超过r时，至少有一段的距离不超过r/4，
+ * 因此只需在每张表中枚举该段附近的少量键取出候选，再校验完整距离，无需遍历全部哈希。
+ *
+ * @param <T> 值类型
+ */
+public class HammingIndex<T> {
+
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    /**
+     * 允许查询的最大距离，超过后每段需要枚举的键过多
+     */
+    public static final int MAX_DISTANCE = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @SuppressWarnings("unchecked")
+    private final List<Entry<T>>[][] tables = new List[CHUNKS][1 << CHUNK_BITS];
+
+    private int size;
+
+    /**
+     * 添加哈希
+     *
+     * @param hash  哈希
+     * @param value 值
+     */
+    public void add(long hash, T value) {
+        Entry<T> entry = new Entry<>(hash, value);
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < CHUNKS; i++) {
+                List<Entry<T>>[] table = tables[i];
+                int key = chunk(hash, i);
+                if (table[key] == null) {
+                    table[key] = new ArrayList<>(2);
+                }
+                table[key].add(entry);
+            }
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 移除哈希
+     *
+     * @param hash  哈希
+     * @param value 值
+     * @return 是否存在并已移除
+     */
+    public boolean remove(long hash, T value) {
+        lock.writeLock().lock();
+        try {
+            boolean removed = false;
+            for (int i = 0; i < CHUNKS; i++) {
+                List<Entry<T>>[] table = tables[i];
+                int key = chunk(hash, i);
+                if (table[key] != null
+                        && table[key].removeIf(entry -> entry.hash == hash && entry.value.equals(value))) {
+                    removed = true;
+                    if (table[key].isEmpty()) {
+                        table[key] = null;
+                    }
+                }
+            }
+            if (removed) {
+                size--;
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询距离不超过指定值的所有哈希
+     *
+     * @param hash        哈希
+     * @param maxDistance 最大汉明距离（0-{@value #MAX_DISTANCE}）
+     * @return 匹配结果（无序）
+     */
+    public List<Match<T>> search(long hash, int maxDistance) {
+        if (maxDistance < 0 || maxDistance > MAX_DISTANCE) {
+            throw new IllegalArgumentException("maxDistance out of range: " + maxDistance);
+        }
+        int chunkDistance = maxDistance / CHUNKS;
+        List<Match<T>> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < CHUNKS; i++) {
+                int chunkIndex = i;
+                int query = chunk(hash, i);
+                forEachNeighbor(query, chunkDistance, 0, key -> {
+                    List<Entry<T>> bucket = tables[chunkIndex][key];
+                    if (bucket == null) {
+                        return;
+                    }
+                    for (Entry<T> entry : bucket) {
+                        int distance = distance(entry.hash, hash);
+                        // 同一哈希会从多个段命中，只在第一个命中的段计入
+                        if (distance <= maxDistance && firstMatchingChunk(entry.hash, hash, chunkDistance) == chunkIndex) {
+                            matches.add(new Match<>(entry.hash, entry.value, distance));
+                        }
+                    }
+                });
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 遍历所有哈希
+     *
+     * @param visitor 访问者
+     */
+    public void forEach(Visitor<T> visitor) {
+        lock.readLock().lock();
+        try {
+            // 每个哈希在每张表中各出现一次，只遍历第一张
+            for (List<Entry<T>> bucket : tables[0]) {
+                if (bucket != null) {
+                    for (Entry<T> entry : bucket) {
+                        visitor.visit(entry.hash, entry.value);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取哈希数量
+     *
+     * @return 数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 计算汉明距离
+     *
+     * @param a 哈希
+     * @param b 哈希
+     * @return 不同的位数
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static int chunk(long hash, int index) {
+        return (int) (hash >>> (index * CHUNK_BITS)) & CHUNK_MASK;
+    }
+
+    private static int firstMatchingChunk(long a, long b, int chunkDistance) {
+        for (int i = 0; i < CHUNKS; i++) {
+            if (Integer.bitCount(chunk(a, i) ^ chunk(b, i)) <= chunkDistance) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 枚举与指定键距离不超过radius的所有键，只翻转from及之后的位，保证每个键只出现一次
+     */
+    private static void forEachNeighbor(int key, int radius, int from, KeyConsumer consumer) {
+        consumer.accept(key);
+        if (radius == 0) {
+            return;
+        }
+        for (int bit = from; bit < CHUNK_BITS; bit++) {
+            forEachNeighbor(key ^ (1 << bit), radius - 1, bit + 1, consumer);
+        }
+    }
+
+    @FunctionalInterface
+    private interface KeyConsumer {
+        void accept(int key);
+    }
+
+    /**
+     * 访问者
+     */
+    @FunctionalInterface
+    public interface Visitor<T> {
+
+        /**
+         * 访问一个哈希
+         *
+         * @param hash  哈希
+         * @param value 值
+         */
+        void visit(long hash, T value);
+    }
+
+    /**
+     * 匹配结果
+     */
+    public static final class Match<T> {
+
+        private final long hash;
+        private final T value;
+        private final int distance;
+
+        private Match(long hash, T value, int distance) {
+            this.hash = hash;
+            this.value = value;
+            this.distance = distance;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+    }
+
+    private static final class Entry<T> {
+
+        private final long hash;
+        private final T value;
+
+        private Entry(long hash, T value) {
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.imagehosting.service.util;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 按文件名哈希前缀两级分散的路径布局：{directory}/ab/cd/{fileName}
+ * <p>
+ * 共256×256个子目录，文件均匀分布，单个目录的文件数不随某天上传量集中增长。
+ */
+public class HashPathLayout implements PathLayout {
+
+    @Override
+    public String resolve(String directory, String fileName) {
+        String hash = DigestUtils.md5DigestAsHex(fileName.getBytes(StandardCharsets.UTF_8));
+        return directory + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + fileName;
+    }
+
+    @Override
+    public boolean matches(String path) {
+        int first = path.indexOf('/');
+        int last = path.lastIndexOf('/');
+        return first > 0 && path.equals(resolve(path.substring(0, first), path.substring(last + 1)));
+    }
+}
@@ -0,0 +1,26 @@
+package com.imagehosting.service.util;
+
+/**
+ * 存储路径布局策略
+ * <p>
+ * 决定文件在存储根目录下的相对路径，路径统一使用"/"分隔。
+ */
+public interface PathLayout {
+
+    /**
+     * 生成文件的相对存储路径
+     *
+     * @param directory 业务目录（如images）
+     * @param fileName  文件名
+     * @return 相对存储路径
+     */
+    String resolve(String directory, String fileName);
+
+    /**
+     * 判断已有路径是否符合当前布局
+     *
+     * @param path 相对存储路径
+     * @return 是否符合
+     */
+    boolean matches(String path);
+}
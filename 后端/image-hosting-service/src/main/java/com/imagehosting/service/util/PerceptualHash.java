@@ -0,0 +1,57 @@
+package com.imagehosting.service.util;
+
+import net.coobird.thumbnailator.Thumbnails;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * 感知哈希
+ * <p>
+ * 使用差值哈希（dHash）：缩小到9x8灰度图，逐行比较相邻像素亮度得到64位。
+ * 重新编码、缩放或轻微调色后的图片哈希只相差少数几位。
+ */
+public final class PerceptualHash {
+
+    private static final int WIDTH = 9;
+    private static final int HEIGHT = 8;
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * 计算差值哈希
+     *
+     * @param image 图片，宜先降采样到数十像素量级
+     * @return 64位哈希
+     * @throws IOException 缩放失败
+     */
+    public static long dHash(BufferedImage image) throws IOException {
+        BufferedImage small = Thumbnails.of(image).forceSize(WIDTH, HEIGHT).asBufferedImage();
+        long hash = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            int left = luminance(small.getRGB(0, y));
+            for (int x = 1; x < WIDTH; x++) {
+                int right = luminance(small.getRGB(x, y));
+                hash = (hash << 1) | (left < right ? 1 : 0);
+                left = right;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 计算亮度，透明像素按白色背景合成
+     */
+    private static int luminance(int argb) {
+        int alpha = argb >>> 24;
+        int r = blend((argb >> 16) & 0xFF, alpha);
+        int g = blend((argb >> 8) & 0xFF, alpha);
+        int b = blend(argb & 0xFF, alpha);
+        return (r * 299 + g * 587 + b * 114) / 1000;
+    }
+
+    private static int blend(int channel, int alpha) {
+        return (channel * alpha + 255 * (255 - alpha)) / 255;
+    }
+}
@@ -0,0 +1,87 @@
+package com.imagehosting.service.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 合并相同键的并发调用
+ * <p>
+ * 同一时刻相同键只执行一次，执行期间到达的调用等待并共享其结果或异常；
+ * 执行结束后立即移除，不缓存结果。
+ *
+ * @param <K> 键类型
+ * @param <V> 结果类型
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 执行调用，相同键正在执行时等待其结果
+     *
+     * @param key  键
+     * @param call 调用
+     * @return 结果
+     * @throws IOException IO异常
+     */
+    public V execute(K key, Call<V> call) throws IOException {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            V value = call.call();
+            future.complete(value);
+            return value;
+        } catch (IOException | RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * 等待正在执行的调用，原样抛出其异常
+     */
+    private V await(CompletableFuture<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待合并调用时被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    /**
+     * 被合并的调用
+     *
+     * @param <V> 结果类型
+     */
+    @FunctionalInterface
+    public interface Call<V> {
+
+        /**
+         * 执行调用
+         *
+         * @return 结果
+         * @throws IOException IO异常
+         */
+        V call() throws IOException;
+    }
+}
@@ -0,0 +1,177 @@
+package com.imagehosting.service.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 上传输入流
+ * <p>
+ * 在数据流向存储的同时计算MD5、SHA-256、截取文件头部字节并统计GIF帧数，
+ * 使上传过程只需遍历一次原始流。
+ */
+public class UploadInputStream extends FilterInputStream {
+
+    /**
+     * MD5摘要
+     */
+    private final MessageDigest md5Digest;
+
+    /**
+     * SHA-256摘要（内容寻址使用）
+     */
+    private final MessageDigest sha256Digest;
+
+    /**
+     * 文件头缓冲
+     */
+    private final ByteArrayOutputStream header;
+
+    /**
+     * 文件头最大截取长度
+     */
+    private final int headerLimit;
+
+    /**
+     * GIF帧数统计（不是GIF时很快停止解析）
+     */
+    private final GifFrameCounter gifFrameCounter = new GifFrameCounter();
+
+    /**
+     * 已读取字节数
+     */
+    private long bytesRead;
+
+    /**
+     * 构造方法
+     *
+     * @param in          原始输入流
+     * @param headerLimit 文件头最大截取长度
+     */
+    public UploadInputStream(InputStream in, int headerLimit) {
+        super(in);
+        this.headerLimit = headerLimit;
+        this.header = new ByteArrayOutputStream(Math.min(headerLimit, 8192));
+        try {
+            this.md5Digest = MessageDigest.getInstance("MD5");
+            this.sha256Digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Digest algorithm not available", e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            update(new byte[]{(byte) b}, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            update(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // 跳过的数据同样需要参与摘要计算
+        byte[] buffer = new byte[8192];
+        long remaining = n;
+        while (remaining > 0) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                break;
+            }
+            remaining -= read;
+        }
+        return n - remaining;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // 不支持mark，避免重复计入摘要
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * 获取MD5十六进制字符串（需在流读取完毕后调用）
+     *
+     * @return MD5值
+     */
+    public String getMd5() {
+        return toHex(md5Digest.digest());
+    }
+
+    /**
+     * 获取SHA-256十六进制字符串（需在流读取完毕后调用）
+     *
+     * @return SHA-256值
+     */
+    public String getSha256() {
+        return toHex(sha256Digest.digest());
+    }
+
+    /**
+     * 获取截取的文件头
+     *
+     * @return 文件头字节
+     */
+    public byte[] getHeader() {
+        return header.toByteArray();
+    }
+
+    /**
+     * 获取GIF帧数（需在流读取完毕后调用）
+     *
+     * @return 帧数，不是GIF时返回null
+     */
+    public Integer getGifFrameCount() {
+        return gifFrameCounter.getFrameCount();
+    }
+
+    /**
+     * 获取已读取字节数
+     *
+     * @return 字节数
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    private void update(byte[] b, int off, int len) {
+        md5Digest.update(b, off, len);
+        sha256Digest.update(b, off, len);
+        int capture = (int) Math.min(len, headerLimit - (long) header.size());
+        if (capture > 0) {
+            header.write(b, off, capture);
+        }
+        gifFrameCounter.update(b, off, len);
+        bytesRead += len;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.dao.ImageDao;
+import com.imagehosting.dao.UserDao;
+import com.imagehosting.model.entity.Image;
+import com.imagehosting.model.entity.User;
+import com.imagehosting.service.ImageBlobService;
+import com.imagehosting.service.ImageDerivativeService;
+import com.imagehosting.service.ImageSimilarityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 管理员服务测试
+ */
+@ExtendWith(MockitoExtension.class)
+class AdminServiceImplTest {
+
+    @Mock
+    private UserDao userDao;
+    @Mock
+    private ImageDao imageDao;
+    @Mock
+    private ImageBlobService imageBlobService;
+    @Mock
+    private ImageDerivativeService imageDerivativeService;
+    @Mock
+    private ImageSimilarityService imageSimilarityService;
+
+    @InjectMocks
+    private AdminServiceImpl adminService;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(1L, null, List.of()));
+        when(userDao.findById(1L)).thenReturn(User.builder().id(1L).roleType(1).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void deleteImageRemovesDerivatives() {
+        Image image = Image.builder().id(10L).userId(2L).blobId(3L).deleted(0).build();
+        when(imageDao.findById(10L)).thenReturn(image);
+
+        adminService.deleteImage(10L);
+
+        verify(imageDao).delete(10L);
+        verify(imageSimilarityService).remove(image);
+        verify(imageBlobService).release(image);
+        verify(imageDerivativeService).deleteByImageId(10L);
+    }
+}
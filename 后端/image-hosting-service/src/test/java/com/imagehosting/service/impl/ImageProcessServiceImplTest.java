@@ -0,0 +1,67 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.common.exception.BusinessException;
+import com.imagehosting.common.result.ResultCode;
+import com.imagehosting.dao.ImageDao;
+import com.imagehosting.model.dto.ImageTransformDTO;
+import com.imagehosting.model.entity.Image;
+import com.imagehosting.service.AdmissionService;
+import com.imagehosting.service.ImageCodecService;
+import com.imagehosting.service.ImageDerivativeService;
+import com.imagehosting.service.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 图片处理服务测试
+ */
+@ExtendWith(MockitoExtension.class)
+class ImageProcessServiceImplTest {
+
+    @Mock
+    private ImageDao imageDao;
+    @Mock
+    private StorageService storageService;
+    @Mock
+    private ImageDerivativeService imageDerivativeService;
+    @Mock
+    private ImageCodecService imageCodecService;
+    @Mock
+    private AdmissionService admissionService;
+
+    @InjectMocks
+    private ImageProcessServiceImpl imageProcessService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(imageProcessService, "transformSizes", List.of(160, 320));
+    }
+
+    @Test
+    void transformRejectedBeforeReadingSource() throws Exception {
+        Image image = Image.builder().id(10L).userId(2L).name("a.png").format("png").path("images/a.png")
+                .size(1024L).deleted(0).build();
+        when(imageDao.findById(10L)).thenReturn(image);
+        when(admissionService.tryAcquire("owner:2", 1024L)).thenReturn(null);
+
+        assertThatThrownBy(() -> imageProcessService.transformImage(10L,
+                ImageTransformDTO.builder().width(320).build(), null))
+                .isInstanceOf(BusinessException.class)
+                .extracting("resultCode").isEqualTo(ResultCode.SERVICE_UNAVAILABLE);
+        // 被拒绝的请求不读取原图（远程存储时会下载）
+        verify(storageService, never()).getLocalFile(any());
+    }
+}
@@ -0,0 +1,118 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.common.exception.BusinessException;
+import com.imagehosting.common.result.ResultCode;
+import com.imagehosting.dao.ImageDao;
+import com.imagehosting.model.dto.ImageMetadataDTO;
+import com.imagehosting.model.entity.Image;
+import com.imagehosting.service.ImageBlobService;
+import com.imagehosting.service.ImageDerivativeService;
+import com.imagehosting.service.ImageMetadataService;
+import com.imagehosting.service.StorageService;
+import com.imagehosting.service.ImageSimilarityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 图片服务测试
+ */
+@ExtendWith(MockitoExtension.class)
+class ImageServiceImplTest {
+
+    @Mock
+    private ImageDao imageDao;
+    @Mock
+    private ImageBlobService imageBlobService;
+    @Mock
+    private ImageDerivativeService imageDerivativeService;
+    @Mock
+    private ImageSimilarityService imageSimilarityService;
+    @Mock
+    private ImageMetadataService imageMetadataService;
+    @Mock
+    private StorageService storageService;
+
+    @InjectMocks
+    private ImageServiceImpl imageService;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(2L, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void deleteImageRemovesDerivatives() {
+        Image image = Image.builder().id(10L).userId(2L).blobId(3L).deleted(0).build();
+        when(imageDao.findById(10L)).thenReturn(image);
+
+        imageService.deleteImage(10L);
+
+        verify(imageDao).delete(10L);
+        verify(imageSimilarityService).remove(image);
+        verify(imageBlobService).release(image);
+        verify(imageDerivativeService).deleteByImageId(10L);
+    }
+
+    @Test
+    void uploadRejectsUnrecognizedFormat(@TempDir Path dir) throws IOException {
+        // 声明为图片的SVG无法探测出位图格式
+        File file = Files.writeString(dir.resolve("a.svg"),
+                "<svg xmlns=\"http://www.w3.org/2000/svg\"><script>alert(1)</script></svg>",
+                StandardCharsets.UTF_8).toFile();
+        when(imageMetadataService.probe(file)).thenReturn(null);
+
+        assertUploadRejected(file);
+    }
+
+    @Test
+    void uploadRejectsNonRasterFormat(@TempDir Path dir) throws IOException {
+        File file = Files.writeString(dir.resolve("a.tif"), "II*", StandardCharsets.UTF_8).toFile();
+        when(imageMetadataService.probe(file)).thenReturn(ImageMetadataDTO.builder().format("tif").build());
+
+        assertUploadRejected(file);
+    }
+
+    @Test
+    void mimeTypeFollowsProbedFormat() {
+        assertThat(ImageMetadataService.mimeType("png")).isEqualTo("image/png");
+        assertThat(ImageMetadataService.mimeType("svg+xml")).isNull();
+        assertThat(ImageMetadataService.mimeType(null)).isNull();
+    }
+
+    private void assertUploadRejected(File file) throws IOException {
+        assertThatThrownBy(() -> imageService.uploadImage(2L, file, file.getName(), "image/png", "md5", "sha256"))
+                .isInstanceOf(BusinessException.class)
+                .extracting("resultCode").isEqualTo(ResultCode.PARAM_ERROR);
+        verify(imageBlobService, never()).reference(any(), any(), anyLong());
+        verify(storageService, never()).uploadFile(any(), anyLong(), any(), any());
+    }
+}
@@ -0,0 +1,87 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.dao.ImageDao;
+import com.imagehosting.model.entity.Image;
+import com.imagehosting.model.vo.SimilarImageVO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+
+/**
+ * 相似图片服务测试
+ */
+@ExtendWith(MockitoExtension.class)
+class ImageSimilarityServiceImplTest {
+
+    private static final long HASH_A = 0x0F0F0F0F0F0F0F0FL;
+    private static final long HASH_B = 0x00FF00FF00FF00FFL;
+
+    @Mock
+    private ImageDao imageDao;
+
+    @Test
+    void findDuplicatesScansOnlyNewestImages() {
+        ImageSimilarityServiceImpl service = service(2);
+        // 较早的图片1、2超出扫描范围，不作为基准，但仍可作为较新图片4的重复项
+        index(service, 1L, 7L, HASH_A);
+        index(service, 2L, 7L, HASH_A ^ 1);
+        index(service, 3L, 7L, HASH_B);
+        index(service, 4L, 7L, HASH_A ^ 3);
+
+        List<List<SimilarImageVO>> groups = service.findDuplicates(7L, 6, null);
+
+        assertThat(groups).hasSize(1);
+        assertThat(ids(groups.get(0))).containsExactly(4L, 2L, 1L);
+    }
+
+    @Test
+    void findDuplicatesWithinScanLimitFindsAllGroups() {
+        ImageSimilarityServiceImpl service = service(10);
+        index(service, 1L, 7L, HASH_A);
+        index(service, 2L, 7L, HASH_A ^ 1);
+        index(service, 3L, 7L, HASH_B);
+        index(service, 4L, 7L, HASH_B ^ 3);
+        // 其他用户的相同图片不计入
+        index(service, 5L, 8L, HASH_A);
+
+        List<List<SimilarImageVO>> groups = service.findDuplicates(7L, 6, null);
+
+        assertThat(groups).hasSize(2);
+        assertThat(ids(groups.get(0))).containsExactly(1L, 2L);
+        assertThat(ids(groups.get(1))).containsExactly(3L, 4L);
+    }
+
+    @Test
+    void findDuplicatesRespectsDistance() {
+        ImageSimilarityServiceImpl service = service(10);
+        index(service, 1L, 7L, HASH_A);
+        index(service, 2L, 7L, HASH_A ^ 0x3F);
+
+        assertThat(service.findDuplicates(7L, 6, null)).hasSize(1);
+        assertThat(service.findDuplicates(7L, 5, null)).isEmpty();
+    }
+
+    private ImageSimilarityServiceImpl service(int maxScan) {
+        lenient().when(imageDao.findByIds(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> Image.builder().id(id).build()).collect(Collectors.toList());
+        });
+        return new ImageSimilarityServiceImpl(imageDao, 6, maxScan);
+    }
+
+    private static void index(ImageSimilarityServiceImpl service, Long id, Long userId, long hash) {
+        service.index(Image.builder().id(id).userId(userId).phash(hash).build());
+    }
+
+    private static List<Long> ids(List<SimilarImageVO> group) {
+        return group.stream().map(vo -> vo.getImage().getId()).collect(Collectors.toList());
+    }
+}
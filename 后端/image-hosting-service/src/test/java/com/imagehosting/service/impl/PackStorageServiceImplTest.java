@@ -0,0 +1,228 @@
+package com.imagehosting.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * 卷文件存储服务测试
+ */
+@ExtendWith(MockitoExtension.class)
+class PackStorageServiceImplTest {
+
+    /**
+     * 记录头（magic、flags、keyLength、dataLength）和末尾CRC的字节数
+     */
+    private static final int HEADER_SIZE = 11;
+    private static final int CRC_SIZE = 4;
+
+    @TempDir
+    Path packDir;
+
+    @Mock
+    private LocalStorageServiceImpl localStorageService;
+
+    private final AtomicInteger names = new AtomicInteger();
+    private PackStorageServiceImpl storage;
+
+    @BeforeEach
+    void setUp() {
+        when(localStorageService.generateFileName(any())).thenAnswer(invocation -> names.incrementAndGet() + ".png");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    @Test
+    void appendAndReadBack() throws IOException {
+        storage = open(1 << 20, 1 << 20);
+        byte[] first = data(100, 1);
+        byte[] second = data(200, 2);
+        String firstPath = upload(first);
+        String secondPath = upload(second);
+
+        assertThat(firstPath).startsWith(PackStorageServiceImpl.PATH_PREFIX);
+        assertThat(read(firstPath)).isEqualTo(first);
+        assertThat(readStream(secondPath)).isEqualTo(second);
+
+        // 重新打开时扫描卷文件重建索引
+        reopen(1 << 20, 1 << 20);
+        assertThat(read(firstPath)).isEqualTo(first);
+        assertThat(read(secondPath)).isEqualTo(second);
+    }
+
+    @Test
+    void readAcrossMapWindows() throws IOException {
+        // 窗口小于记录，记录跨越窗口边界，末尾窗口随追加增长
+        storage = open(1 << 20, 64);
+        byte[][] contents = new byte[10][];
+        String[] paths = new String[10];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = data(30 + i * 7, i);
+            paths[i] = upload(contents[i]);
+            assertThat(read(paths[i])).isEqualTo(contents[i]);
+        }
+        for (int i = 0; i < contents.length; i++) {
+            assertThat(read(paths[i])).isEqualTo(contents[i]);
+        }
+    }
+
+    @Test
+    void truncatedTailIsDiscardedOnScan() throws IOException {
+        storage = open(1 << 20, 1 << 20);
+        byte[] first = data(100, 1);
+        String firstPath = upload(first);
+        String secondPath = upload(data(100, 2));
+        storage.close();
+
+        // 模拟写入第二条记录时中断
+        Path volume = volumeFile(1);
+        long firstSize = recordSize(firstPath, first.length);
+        try (FileChannel channel = FileChannel.open(volume, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(volume) - 10);
+        }
+
+        reopen(1 << 20, 1 << 20);
+        assertThat(read(firstPath)).isEqualTo(first);
+        assertThatThrownBy(() -> read(secondPath)).isInstanceOf(FileNotFoundException.class);
+        assertThat(Files.size(volume)).isEqualTo(firstSize);
+
+        // 截断后的卷可继续追加
+        byte[] third = data(50, 3);
+        String thirdPath = upload(third);
+        reopen(1 << 20, 1 << 20);
+        assertThat(read(firstPath)).isEqualTo(first);
+        assertThat(read(thirdPath)).isEqualTo(third);
+    }
+
+    @Test
+    void crcMismatchOnLastRecordIsDiscarded() throws IOException {
+        storage = open(1 << 20, 1 << 20);
+        byte[] first = data(100, 1);
+        String firstPath = upload(first);
+        String secondPath = upload(data(100, 2));
+        storage.close();
+
+        // 篡改最后一条记录的数据
+        Path volume = volumeFile(1);
+        long firstSize = recordSize(firstPath, first.length);
+        try (FileChannel channel = FileChannel.open(volume, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), Files.size(volume) - CRC_SIZE - 1);
+        }
+
+        reopen(1 << 20, 1 << 20);
+        assertThat(read(firstPath)).isEqualTo(first);
+        assertThatThrownBy(() -> read(secondPath)).isInstanceOf(FileNotFoundException.class);
+        assertThat(Files.size(volume)).isEqualTo(firstSize);
+    }
+
+    @Test
+    void compactionMovesLiveFilesAndKeepsPinnedBuffers() throws IOException {
+        // 卷大小只够放两条记录，第三条写入新卷，第一个卷不再是当前卷
+        byte[] deleted = data(100, 1);
+        byte[] live = data(100, 2);
+        storage = open(2 * recordSize("pack/images/1.png", 100), 1 << 20);
+        String deletedPath = upload(deleted);
+        String livePath = upload(live);
+        String otherPath = upload(data(100, 3));
+        assertThat(Files.exists(volumeFile(2))).isTrue();
+
+        assertThat(storage.deleteFile(deletedPath)).isTrue();
+        // 压缩前取得的映射缓冲区在旧卷删除后仍可读取
+        ByteBuffer pinned = storage.getMappedBuffer(livePath);
+
+        storage.compact();
+
+        assertThat(Files.exists(volumeFile(1))).isFalse();
+        assertThat(bytes(pinned)).isEqualTo(live);
+        assertThat(read(livePath)).isEqualTo(live);
+        assertThatThrownBy(() -> read(deletedPath)).isInstanceOf(FileNotFoundException.class);
+
+        // 重新打开后压缩结果仍然有效，删除的文件不会恢复
+        reopen(2 * recordSize("pack/images/1.png", 100), 1 << 20);
+        assertThat(read(livePath)).isEqualTo(live);
+        assertThat(read(otherPath)).isEqualTo(data(100, 3));
+        assertThatThrownBy(() -> read(deletedPath)).isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    void deletedFileStaysDeletedAfterReopen() throws IOException {
+        storage = open(1 << 20, 1 << 20);
+        String path = upload(data(100, 1));
+        assertThat(storage.deleteFile(path)).isTrue();
+        assertThat(storage.deleteFile(path)).isFalse();
+
+        reopen(1 << 20, 1 << 20);
+        assertThatThrownBy(() -> read(path)).isInstanceOf(FileNotFoundException.class);
+    }
+
+    private PackStorageServiceImpl open(long volumeSize, long mapWindowSize) throws IOException {
+        return new PackStorageServiceImpl(localStorageService, packDir, 1 << 20, volumeSize, 0.3, 1 << 20,
+                mapWindowSize);
+    }
+
+    private void reopen(long volumeSize, long mapWindowSize) throws IOException {
+        storage.close();
+        storage = open(volumeSize, mapWindowSize);
+    }
+
+    private String upload(byte[] content) throws IOException {
+        return storage.uploadFile(new ByteArrayInputStream(content), content.length, "a.png", "images");
+    }
+
+    private byte[] read(String path) throws IOException {
+        return bytes(storage.getMappedBuffer(path));
+    }
+
+    private byte[] readStream(String path) throws IOException {
+        try (InputStream in = storage.getInputStream(path)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private Path volumeFile(int id) {
+        return packDir.resolve(String.format("%08d.vol", id));
+    }
+
+    private static long recordSize(String path, int dataLength) {
+        return HEADER_SIZE + path.length() + dataLength + CRC_SIZE;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] result = new byte[buffer.remaining()];
+        buffer.duplicate().get(result);
+        return result;
+    }
+
+    private static byte[] data(int length, int seed) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (seed * 31 + i);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,151 @@
+package com.imagehosting.service.impl;
+
+import com.imagehosting.dao.ImageBlobDao;
+import com.imagehosting.dao.ImageDao;
+import com.imagehosting.dao.ImageDerivativeDao;
+import com.imagehosting.model.entity.Image;
+import com.imagehosting.model.entity.ImageBlob;
+import com.imagehosting.model.entity.ImageDerivative;
+import com.imagehosting.service.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 存储复制服务测试
+ */
+@ExtendWith(MockitoExtension.class)
+class StorageReplicationServiceImplTest {
+
+    @TempDir
+    Path dir;
+
+    @Mock
+    private ImageDao imageDao;
+
+    @Mock
+    private ImageBlobDao imageBlobDao;
+
+    @Mock
+    private ImageDerivativeDao imageDerivativeDao;
+
+    @Mock
+    private StorageService storageService;
+
+    @Mock
+    private LocalStorageServiceImpl localStorageService;
+
+    @Mock
+    private AliyunOssStorageServiceImpl ossStorageService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private StorageReplicationServiceImpl storageReplicationService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(storageReplicationService, "batchSize", 100);
+        ReflectionTestUtils.setField(storageReplicationService, "maxAttempts", 10);
+        ReflectionTestUtils.setField(storageReplicationService, "retryDelay", 60L);
+        ReflectionTestUtils.setField(storageReplicationService, "retryMaxDelay", 3600L);
+    }
+
+    @Test
+    void imageReplicatedWhileBlobStillReferenced() throws IOException {
+        Image image = image("images/a.png");
+        when(imageDao.findPendingReplication(100)).thenReturn(List.of(image));
+        stubLocalFile("images/a.png");
+        stubTransaction();
+        when(imageBlobDao.findByIdForUpdate(7L)).thenReturn(ImageBlob.builder().id(7L).path("images/a.png").build());
+
+        assertThat(storageReplicationService.replicatePending()).isEqualTo(1);
+        verify(imageDao).markReplicatedByPath("images/a.png");
+        verify(ossStorageService, never()).deleteFile(any());
+    }
+
+    @Test
+    void imageReleasedDuringUploadRemovesRemoteCopy() throws IOException {
+        Image image = image("images/a.png");
+        when(imageDao.findPendingReplication(100)).thenReturn(List.of(image));
+        stubLocalFile("images/a.png");
+        stubTransaction();
+        when(imageBlobDao.findByIdForUpdate(7L)).thenReturn(null);
+        when(ossStorageService.deleteFile("images/a.png")).thenReturn(true);
+
+        assertThat(storageReplicationService.replicatePending()).isZero();
+        verify(ossStorageService).deleteFile("images/a.png");
+        verify(imageDao, never()).markReplicatedByPath(any());
+    }
+
+    @Test
+    void derivativeDeletedDuringUploadRemovesRemoteCopy() throws IOException {
+        ImageDerivative derivative = derivative(0);
+        when(imageDerivativeDao.findPendingReplication(100)).thenReturn(List.of(derivative));
+        stubLocalFile("processed/d.webp");
+        when(imageDerivativeDao.markReplicated(3L)).thenReturn(0);
+        when(ossStorageService.deleteFile("processed/d.webp")).thenReturn(true);
+
+        assertThat(storageReplicationService.replicatePending()).isZero();
+        verify(ossStorageService).putObject(eq("processed/d.webp"), any(), anyLong());
+        verify(ossStorageService).deleteFile("processed/d.webp");
+    }
+
+    @Test
+    void failedReplicationBacksOffExponentially() throws IOException {
+        when(localStorageService.getLocalFile("processed/d.webp")).thenThrow(new FileNotFoundException());
+
+        assertRetryDelay(0, 60L);
+        assertRetryDelay(3, 480L);
+        assertRetryDelay(9, 3600L);
+    }
+
+    private void assertRetryDelay(int attempts, long expected) {
+        ImageDerivative derivative = derivative(attempts);
+        when(imageDerivativeDao.findPendingReplication(100)).thenReturn(List.of(derivative));
+
+        storageReplicationService.replicatePending();
+        verify(imageDerivativeDao).recordReplicationFailure(3L, 10, expected);
+    }
+
+    private Image image(String path) {
+        return Image.builder().id(1L).blobId(7L).path(path).replicationAttempts(0).deleted(0).build();
+    }
+
+    private ImageDerivative derivative(int attempts) {
+        return ImageDerivative.builder().id(3L).imageId(1L).path("processed/d.webp").replicationAttempts(attempts).build();
+    }
+
+    private void stubLocalFile(String path) throws IOException {
+        Path file = Files.write(dir.resolve(path.replace('/', '_')), new byte[]{1, 2, 3});
+        when(localStorageService.getLocalFile(path)).thenReturn(StorageService.LocalFile.of(file.toFile()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubTransaction() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+    }
+}
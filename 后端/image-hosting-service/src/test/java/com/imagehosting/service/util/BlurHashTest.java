@@ -0,0 +1,63 @@
+package com.imagehosting.service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * BlurHash编码测试
+ */
+class BlurHashTest {
+
+    @Test
+    void matchesReferenceHash() throws IOException {
+        // 期望值由C参考实现（encode.c）的算法计算，AC最大值取绝对值
+        BufferedImage image = gradient(32, 24);
+
+        assertThat(BlurHash.encode(image, 4, 3)).isEqualTo("LxH27b2kwzX5mAWYjuf7gKfkfQfj");
+        assertThat(BlurHash.encode(image, 5, 4)).isEqualTo("VxH27b2kwzX5a{mAWYjuf7fRgKfkfQfjfQn+WojtfQfQ");
+        assertThat(BlurHash.encode(image, 1, 1)).isEqualTo("00H27b");
+    }
+
+    @Test
+    void encodedLengthFollowsComponentCount() throws IOException {
+        BufferedImage image = gradient(16, 12);
+        for (int componentsX = 1; componentsX <= 9; componentsX++) {
+            for (int componentsY = 1; componentsY <= 9; componentsY++) {
+                assertThat(BlurHash.encode(image, componentsX, componentsY))
+                        .as("%dx%d", componentsX, componentsY)
+                        .hasSize(4 + 2 * componentsX * componentsY);
+            }
+        }
+    }
+
+    @Test
+    void rejectsComponentsOutOfRange() {
+        BufferedImage image = gradient(16, 12);
+
+        assertThatThrownBy(() -> BlurHash.encode(image, 0, 3)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BlurHash.encode(image, 10, 3)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BlurHash.encode(image, 4, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BlurHash.encode(image, 4, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * 红色沿横向、绿色沿纵向渐变，蓝色沿对角线渐变
+     */
+    private static BufferedImage gradient(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = x * 256 / width;
+                int g = y * 240 / height;
+                int b = (x * 32 / width + y * 24 / height) * 4;
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,108 @@
+package com.imagehosting.service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 汉明距离索引测试
+ */
+class HammingIndexTest {
+
+    private static final long BASE = 0x0123456789ABCDEFL;
+
+    @Test
+    void matchesExactlyAtBoundaryDistance() {
+        for (int radius = 0; radius <= HammingIndex.MAX_DISTANCE; radius++) {
+            // 差异位集中在一段和平均分布在各段两种情况
+            for (boolean spread : new boolean[]{false, true}) {
+                HammingIndex<String> index = new HammingIndex<>();
+                long atBoundary = BASE ^ mask(radius, spread);
+                long beyond = BASE ^ mask(radius + 1, spread);
+                index.add(atBoundary, "boundary");
+                index.add(beyond, "beyond");
+
+                List<HammingIndex.Match<String>> matches = index.search(BASE, radius);
+
+                assertThat(matches).extracting(HammingIndex.Match::getValue)
+                        .as("radius=%d, spread=%s", radius, spread)
+                        .containsExactly("boundary");
+                assertThat(matches.get(0).getDistance()).isEqualTo(radius);
+            }
+        }
+    }
+
+    @Test
+    void matchesLinearScan() {
+        Random random = new Random(42);
+        HammingIndex<Integer> index = new HammingIndex<>();
+        List<Long> hashes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // 一半是基准附近的哈希，一半随机
+            long hash = i % 2 == 0 ? BASE ^ randomMask(random, random.nextInt(20)) : random.nextLong();
+            hashes.add(hash);
+            index.add(hash, i);
+        }
+
+        for (int radius : new int[]{0, 3, 4, 6, 8, 12, 16}) {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < hashes.size(); i++) {
+                if (HammingIndex.distance(hashes.get(i), BASE) <= radius) {
+                    expected.add(i);
+                }
+            }
+            List<Integer> actual = index.search(BASE, radius).stream()
+                    .map(HammingIndex.Match::getValue)
+                    .collect(Collectors.toList());
+            // 每个哈希只返回一次
+            assertThat(actual).as("radius=%d", radius).containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    void removeDropsOnlyMatchingValue() {
+        HammingIndex<Long> index = new HammingIndex<>();
+        index.add(BASE, 1L);
+        index.add(BASE, 2L);
+
+        assertThat(index.remove(BASE, 1L)).isTrue();
+        assertThat(index.remove(BASE, 1L)).isFalse();
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.search(BASE, 0)).extracting(HammingIndex.Match::getValue).containsExactly(2L);
+    }
+
+    @Test
+    void rejectsDistanceOutOfRange() {
+        HammingIndex<Long> index = new HammingIndex<>();
+
+        assertThatThrownBy(() -> index.search(BASE, -1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.search(BASE, HammingIndex.MAX_DISTANCE + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * 生成指定位数的掩码，spread为true时依次分布在4个16位段中
+     */
+    private static long mask(int bits, boolean spread) {
+        long mask = 0;
+        for (int i = 0; i < bits; i++) {
+            int bit = spread ? (i % 4) * 16 + i / 4 : i;
+            mask |= 1L << bit;
+        }
+        return mask;
+    }
+
+    private static long randomMask(Random random, int bits) {
+        long mask = 0;
+        while (Long.bitCount(mask) < bits) {
+            mask |= 1L << random.nextInt(64);
+        }
+        return mask;
+    }
+}
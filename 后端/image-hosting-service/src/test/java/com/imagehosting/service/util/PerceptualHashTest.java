@@ -0,0 +1,111 @@
+package com.imagehosting.service.util;
+
+import net.coobird.thumbnailator.Thumbnails;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 感知哈希测试
+ */
+class PerceptualHashTest {
+
+    @Test
+    void stableUnderResize() throws IOException {
+        BufferedImage image = sample(false);
+        long hash = PerceptualHash.dHash(image);
+
+        assertThat(HammingIndex.distance(hash, PerceptualHash.dHash(Thumbnails.of(image).size(200, 150).asBufferedImage())))
+                .isLessThanOrEqualTo(4);
+        assertThat(HammingIndex.distance(hash, PerceptualHash.dHash(Thumbnails.of(image).size(64, 48).asBufferedImage())))
+                .isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void stableUnderReencode() throws IOException {
+        BufferedImage image = sample(false);
+        long hash = PerceptualHash.dHash(image);
+
+        assertThat(HammingIndex.distance(hash, PerceptualHash.dHash(reencodeJpeg(image, 0.5f)))).isLessThanOrEqualTo(4);
+        assertThat(PerceptualHash.dHash(reencodePng(image))).isEqualTo(hash);
+    }
+
+    @Test
+    void differentImagesAreFarApart() throws IOException {
+        long hash = PerceptualHash.dHash(sample(false));
+        long mirrored = PerceptualHash.dHash(sample(true));
+
+        assertThat(HammingIndex.distance(hash, mirrored)).isGreaterThan(16);
+    }
+
+    @Test
+    void transparentPixelsCompositeOnWhite() throws IOException {
+        BufferedImage transparent = new BufferedImage(90, 80, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage white = new BufferedImage(90, 80, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = white.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 90, 80);
+        g.dispose();
+
+        assertThat(PerceptualHash.dHash(transparent)).isEqualTo(PerceptualHash.dHash(white));
+    }
+
+    /**
+     * 水平渐变加几个色块，mirrored为左右翻转的版本
+     */
+    private static BufferedImage sample(boolean mirrored) {
+        BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.BLACK, 400, 0, Color.WHITE));
+        g.fillRect(0, 0, 400, 300);
+        g.setColor(Color.RED);
+        g.fillRect(40, 40, 120, 80);
+        g.setColor(Color.BLUE);
+        g.fillOval(220, 150, 140, 120);
+        g.dispose();
+        if (!mirrored) {
+            return image;
+        }
+        BufferedImage flipped = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 300; y++) {
+            for (int x = 0; x < 400; x++) {
+                flipped.setRGB(399 - x, y, image.getRGB(x, y));
+            }
+        }
+        return flipped;
+    }
+
+    private static BufferedImage reencodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static BufferedImage reencodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
@@ -0,0 +1,162 @@
+package com.imagehosting.service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 合并并发调用测试
+ */
+class SingleFlightTest {
+
+    private static final int WAITERS = 8;
+
+    private final SingleFlight<String, Object> flight = new SingleFlight<>();
+    private final AtomicInteger executions = new AtomicInteger();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Test
+    void concurrentCallersShareOneExecution() throws Exception {
+        Object value = new Object();
+        AtomicReferenceArray<Object> results = new AtomicReferenceArray<>(WAITERS + 1);
+
+        runConcurrently(() -> value, results);
+
+        assertThat(executions.get()).isEqualTo(1);
+        for (int i = 0; i <= WAITERS; i++) {
+            assertThat(results.get(i)).isSameAs(value);
+        }
+    }
+
+    @Test
+    void exceptionPropagatesToEveryWaiter() throws Exception {
+        IOException failure = new IOException("读取失败");
+        AtomicReferenceArray<Object> results = new AtomicReferenceArray<>(WAITERS + 1);
+
+        runConcurrently(() -> {
+            throw failure;
+        }, results);
+
+        assertThat(executions.get()).isEqualTo(1);
+        for (int i = 0; i <= WAITERS; i++) {
+            assertThat(results.get(i)).isSameAs(failure);
+        }
+    }
+
+    @Test
+    void runtimeExceptionPropagatesToEveryWaiter() throws Exception {
+        IllegalStateException failure = new IllegalStateException("处理失败");
+        AtomicReferenceArray<Object> results = new AtomicReferenceArray<>(WAITERS + 1);
+
+        runConcurrently(() -> {
+            throw failure;
+        }, results);
+
+        for (int i = 0; i <= WAITERS; i++) {
+            assertThat(results.get(i)).isSameAs(failure);
+        }
+    }
+
+    @Test
+    void keyIsClearedAfterCompletion() throws IOException {
+        assertThat(flight.execute("key", () -> executions.incrementAndGet())).isEqualTo(1);
+        // 结果不缓存，之后的调用重新执行
+        assertThat(flight.execute("key", () -> executions.incrementAndGet())).isEqualTo(2);
+    }
+
+    @Test
+    void keyIsClearedAfterFailure() throws IOException {
+        assertThatThrownBy(() -> flight.execute("key", () -> {
+            throw new IOException("读取失败");
+        })).isInstanceOf(IOException.class);
+
+        assertThat(flight.execute("key", () -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    void differentKeysDoNotWaitForEachOther() throws Exception {
+        Thread leader = new Thread(() -> {
+            try {
+                flight.execute("slow", () -> {
+                    started.countDown();
+                    return await(release);
+                });
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        leader.start();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // 其他键在慢调用结束前直接执行
+        assertThat(flight.execute("fast", () -> "fast")).isEqualTo("fast");
+
+        release.countDown();
+        leader.join(5000);
+    }
+
+    /**
+     * 一个线程先开始执行，其余线程在其执行期间以相同键调用，全部进入等待后再放行
+     *
+     * @param call    被合并的调用，在放行后执行
+     * @param results 各线程的结果或异常，下标0为先开始执行的线程
+     */
+    private void runConcurrently(SingleFlight.Call<Object> call, AtomicReferenceArray<Object> results)
+            throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i <= WAITERS; i++) {
+            int slot = i;
+            threads.add(new Thread(() -> {
+                try {
+                    results.set(slot, flight.execute("key", () -> {
+                        executions.incrementAndGet();
+                        started.countDown();
+                        await(release);
+                        return call.call();
+                    }));
+                } catch (IOException | RuntimeException e) {
+                    results.set(slot, e);
+                }
+            }));
+        }
+
+        threads.get(0).start();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        for (Thread thread : threads.subList(1, threads.size())) {
+            thread.start();
+        }
+        // 等待其余线程都阻塞在合并调用上
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        for (Thread thread : threads.subList(1, threads.size())) {
+            while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertThat(thread.getState()).isEqualTo(Thread.State.WAITING);
+        }
+
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+            assertThat(thread.isAlive()).isFalse();
+        }
+    }
+
+    private static Object await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.imagehosting;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.mybatis.spring.annotation.MapperScan;
 
@@ -10,6 +11,7 @@ import org.mybatis.spring.annotation.MapperScan;
  */
 @SpringBootApplication
 @EnableTransactionManagement
+@EnableScheduling
 @MapperScan("com.imagehosting.dao")
 public class ImageHostingApplication {
     public static void main(String[] args) {
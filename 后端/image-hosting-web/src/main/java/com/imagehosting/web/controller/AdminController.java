@@ -6,8 +6,11 @@ import com.imagehosting.model.dto.UserQueryDTO;
 import com.imagehosting.model.vo.AdminStatsVO;
 import com.imagehosting.model.vo.ImageVO;
 import com.imagehosting.model.vo.PageVO;
+import com.imagehosting.model.vo.SimilarImageVO;
+import com.imagehosting.model.vo.StorageMigrationVO;
 import com.imagehosting.model.vo.UserVO;
 import com.imagehosting.service.AdminService;
+import com.imagehosting.service.StorageMigrationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -15,6 +18,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * 管理员控制器
  */
@@ -25,6 +30,7 @@ import org.springframework.web.bind.annotation.*;
 public class AdminController {
 
     private final AdminService adminService;
+    private final StorageMigrationService storageMigrationService;
 
     /**
      * 获取管理员统计信息
@@ -117,6 +123,62 @@ public class AdminController {
         return Result.success();
     }
 
+    /**
+     * 查找相似图片
+     *
+     * @param id       图片ID
+     * @param distance 最大汉明距离（可选）
+     * @param global   是否在所有用户中查找
+     * @return 相似图片
+     */
+    @Operation(summary = "查找相似图片")
+    @GetMapping("/image/{id}/similar")
+    public Result<List<SimilarImageVO>> findSimilarImages(
+            @PathVariable("id") Long id,
+            @RequestParam(value = "distance", required = false) Integer distance,
+            @RequestParam(value = "global", defaultValue = "false") Boolean global) {
+        return Result.success(adminService.findSimilarImages(id, distance, global));
+    }
+
+    /**
+     * 查找近似重复的图片
+     *
+     * @param userId   用户ID（可选）
+     * @param distance 最大汉明距离（可选）
+     * @param limit    最多返回的分组数
+     * @return 分组列表
+     */
+    @Operation(summary = "查找近似重复的图片")
+    @GetMapping("/images/duplicates")
+    public Result<List<List<SimilarImageVO>>> findDuplicateImages(
+            @RequestParam(value = "userId", required = false) Long userId,
+            @RequestParam(value = "distance", required = false) Integer distance,
+            @RequestParam(value = "limit", defaultValue = "20") Integer limit) {
+        return Result.success(adminService.findDuplicateImages(userId, distance, limit));
+    }
+
+    /**
+     * 启动存储目录迁移
+     *
+     * @return 迁移进度
+     */
+    @Operation(summary = "启动存储目录迁移")
+    @PostMapping("/storage/migration")
+    public Result<StorageMigrationVO> startStorageMigration() {
+        return Result.success(storageMigrationService.startMigration());
+    }
+
+    /**
+     * 查询存储目录迁移进度
+     *
+     * @return 迁移进度
+     */
+    @Operation(summary = "查询存储目录迁移进度")
+    @GetMapping("/storage/migration")
+    public Result<StorageMigrationVO> getStorageMigrationProgress() {
+        return Result.success(storageMigrationService.getProgress());
+    }
+
     /**
      * 测试管理员权限
      *
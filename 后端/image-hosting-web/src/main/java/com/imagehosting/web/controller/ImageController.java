@@ -3,9 +3,14 @@ package com.imagehosting.web.controller;
 import com.imagehosting.common.exception.BusinessException;
 import com.imagehosting.common.result.Result;
 import com.imagehosting.model.dto.ImageQueryDTO;
+import com.imagehosting.model.dto.InstantUploadDTO;
+import com.imagehosting.model.dto.UploadInitDTO;
+import com.imagehosting.model.vo.BatchUploadResultVO;
 import com.imagehosting.model.vo.ImageUploadVO;
 import com.imagehosting.model.vo.ImageVO;
 import com.imagehosting.model.vo.PageVO;
+import com.imagehosting.model.vo.UploadSessionVO;
+import com.imagehosting.service.ChunkUploadService;
 import com.imagehosting.service.ImageService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -17,6 +22,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -33,6 +39,7 @@ import java.util.Map;
 public class ImageController {
 
     private final ImageService imageService;
+    private final ChunkUploadService chunkUploadService;
 
     /**
      * 上传图片
@@ -69,6 +76,94 @@ public class ImageController {
         }
     }
 
+    /**
+     * 秒传预检
+     *
+     * @param instantDTO 文件指纹
+     * @return 上传结果，内容不存在时data为null，客户端需正常上传
+     */
+    @Operation(summary = "秒传预检")
+    @PostMapping("/upload/instant")
+    public Result<ImageUploadVO> instantUpload(@RequestBody InstantUploadDTO instantDTO) {
+        return Result.success(imageService.instantUpload(instantDTO));
+    }
+
+    /**
+     * 批量上传图片
+     *
+     * @param files 图片文件列表
+     * @return 各文件上传结果
+     */
+    @Operation(summary = "批量上传图片")
+    @PostMapping("/upload/batch")
+    public Result<List<BatchUploadResultVO>> uploadBatch(@RequestParam("files") List<MultipartFile> files) {
+        return Result.success(imageService.uploadImages(files));
+    }
+
+    /**
+     * 创建分片上传会话
+     *
+     * @param initDTO 文件信息
+     * @return 上传会话
+     */
+    @Operation(summary = "创建分片上传会话")
+    @PostMapping("/upload/session")
+    public Result<UploadSessionVO> initUpload(@RequestBody UploadInitDTO initDTO) {
+        return Result.success(chunkUploadService.initUpload(initDTO));
+    }
+
+    /**
+     * 上传分片（请求体为分片原始数据）
+     *
+     * @param uploadId 上传会话ID
+     * @param index    分片序号
+     * @return 上传会话
+     */
+    @Operation(summary = "上传分片")
+    @PutMapping("/upload/session/{uploadId}/chunk/{index}")
+    public Result<UploadSessionVO> uploadChunk(@PathVariable("uploadId") String uploadId,
+                                               @PathVariable("index") Integer index,
+                                               HttpServletRequest request) throws IOException {
+        return Result.success(chunkUploadService.uploadChunk(uploadId, index, request.getInputStream()));
+    }
+
+    /**
+     * 查询分片上传进度
+     *
+     * @param uploadId 上传会话ID
+     * @return 上传会话
+     */
+    @Operation(summary = "查询分片上传进度")
+    @GetMapping("/upload/session/{uploadId}")
+    public Result<UploadSessionVO> getUploadStatus(@PathVariable("uploadId") String uploadId) {
+        return Result.success(chunkUploadService.getStatus(uploadId));
+    }
+
+    /**
+     * 完成分片上传
+     *
+     * @param uploadId 上传会话ID
+     * @return 上传结果
+     */
+    @Operation(summary = "完成分片上传")
+    @PostMapping("/upload/session/{uploadId}/complete")
+    public Result<ImageUploadVO> completeUpload(@PathVariable("uploadId") String uploadId) {
+        return Result.success(chunkUploadService.completeUpload(uploadId));
+    }
+
+    /**
+     * 取消分片上传
+     *
+     * @param uploadId 上传会话ID
+     * @return 取消结果
+     */
+    @Operation(summary = "取消分片上传")
+    @DeleteMapping("/upload/session/{uploadId}")
+    public Result<Void> abortUpload(@PathVariable("uploadId") String uploadId) {
+        chunkUploadService.abortUpload(uploadId);
+        return Result.success();
+    }
+
     /**
      * 获取图片列表
      *
@@ -0,0 +1,301 @@
+package com.imagehosting.web.controller;
+
+import com.imagehosting.common.exception.BusinessException;
+import com.imagehosting.common.result.ResultCode;
+import com.imagehosting.model.dto.ImageFileDTO;
+import com.imagehosting.model.dto.ImageTransformDTO;
+import com.imagehosting.service.ImageFileService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.UriUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片文件控制器
+ * <p>
+ * 直接输出本地存储中的文件，支持Range分段下载和条件请求；也可按URL参数即时生成缩放、转码后的图片。
+ * Tomcat支持sendfile时由容器将文件直接写入socket，否则通过FileChannel.transferTo输出；卷文件中的图片直接输出映射数据。
+ */
+@Tag(name = "图片文件接口")
+@RestController
+@RequestMapping("/image/file")
+@RequiredArgsConstructor
+@Slf4j
+public class ImageFileController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * 图片记录对应的文件路径不会被覆盖，可长期缓存
+     */
+    private static final String IMMUTABLE_CACHE_CONTROL =
+            CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable().getHeaderValue();
+
+    /**
+     * 其他文件（如旧的处理结果）每次使用前需验证
+     */
+    private static final String REVALIDATE_CACHE_CONTROL = CacheControl.noCache().getHeaderValue();
+
+    private final ImageFileService imageFileService;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * 使用sendfile的最小输出长度，较小的文件直接写出开销更低
+     */
+    @Value("${storage.local.sendfile-threshold:49152}")
+    private long sendfileThreshold;
+
+    /**
+     * 生成衍生图被拒绝时建议客户端重试的间隔（秒）
+     */
+    @Value("${admission.retry-after:5}")
+    private int retryAfter;
+
+    /**
+     * 获取图片文件
+     *
+     * @param request  请求
+     * @param response 响应
+     * @throws IOException IO异常
+     */
+    @Operation(summary = "获取图片文件")
+    @GetMapping("/**")
+    public void getFile(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ImageFileDTO file;
+        try {
+            file = imageFileService.getFile(extractPath(request));
+        } catch (FileNotFoundException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        try (Closeable lease = file.getLease()) {
+            serve(request, response, file);
+        }
+    }
+
+    /**
+     * 获取变换后的图片（如 /image/file/1?w=200&fmt=auto），结果作为衍生图保存，相同参数只生成一次
+     *
+     * @param id       图片ID
+     * @param width    宽度
+     * @param height   高度
+     * @param fit      适应方式（contain/cover/fill）
+     * @param quality  输出质量（1-100）
+     * @param format   输出格式，auto按Accept选择WebP/JPEG/PNG
+     * @param request  请求
+     * @param response 响应
+     * @throws IOException IO异常
+     */
+    @Operation(summary = "获取变换后的图片")
+    @GetMapping("/{id:\\d+}")
+    public void getTransformedFile(@PathVariable("id") Long id,
+                                   @RequestParam(value = "w", required = false) Integer width,
+                                   @RequestParam(value = "h", required = false) Integer height,
+                                   @RequestParam(value = "fit", required = false) String fit,
+                                   @RequestParam(value = "q", required = false) Integer quality,
+                                   @RequestParam(value = "fmt", required = false) String format,
+                                   HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ImageTransformDTO transform = ImageTransformDTO.builder()
+                .width(width)
+                .height(height)
+                .fit(fit)
+                .quality(quality)
+                .format(format)
+                .build();
+
+        ImageFileDTO file;
+        try {
+            file = imageFileService.getTransformedFile(id, transform, request.getHeader(HttpHeaders.ACCEPT));
+        } catch (FileNotFoundException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        } catch (BusinessException e) {
+            // 不在允许范围内的参数直接拒绝，不生成衍生图
+            if (e.getResultCode() == ResultCode.PARAM_ERROR) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
+            }
+            // 生成衍生图未获得准入许可
+            if (e.getResultCode() == ResultCode.SERVICE_UNAVAILABLE) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                return;
+            }
+            throw e;
+        }
+        if ("auto".equalsIgnoreCase(format)) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        try (Closeable lease = file.getLease()) {
+            serve(request, response, file);
+        }
+    }
+
+    /**
+     * 输出文件，处理条件请求和Range
+     */
+    private void serve(HttpServletRequest request, HttpServletResponse response, ImageFileDTO file) throws IOException {
+        String etag = file.getEtag() != null ? "\"" + file.getEtag() + "\"" : null;
+        response.setHeader(HttpHeaders.CACHE_CONTROL, etag != null ? IMMUTABLE_CACHE_CONTROL : REVALIDATE_CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // 禁止浏览器猜测内容类型，非位图文件只允许下载
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        if (file.isAttachment()) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().build().toString());
+        }
+
+        // 处理If-None-Match/If-Modified-Since，命中时返回304并写入ETag和Last-Modified
+        if (new ServletWebRequest(request, response).checkNotModified(etag, file.getLastModified())) {
+            return;
+        }
+
+        long length = file.getLength();
+        long start = 0;
+        long end = length - 1;
+        HttpRange range = resolveRange(request, etag, file.getLastModified());
+        if (range != null) {
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        long count = end - start + 1;
+        response.setContentType(file.getContentType());
+        response.setContentLengthLong(count);
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || count <= 0) {
+            return;
+        }
+        if (file.getBuffer() != null) {
+            write(response, file.getBuffer(), start, count);
+            return;
+        }
+        // sendfile在方法返回后才打开文件，占用中的文件直接输出
+        transfer(request, response, file.getFile(), start, count, file.getLease() == null);
+    }
+
+    /**
+     * 获取请求的文件路径（/image/file/之后的部分）
+     */
+    private String extractPath(HttpServletRequest request) {
+        String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String path = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        return UriUtils.decode(pathMatcher.extractPathWithinPattern(pattern, path), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 解析Range请求头
+     *
+     * @return 单个字节范围，不需要分段输出时返回null
+     */
+    private HttpRange resolveRange(HttpServletRequest request, String etag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !ifRangeMatches(request, etag, lastModified)) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            // 多段范围按完整文件输出，客户端均可正常处理
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            // 格式错误的Range忽略
+            return null;
+        }
+    }
+
+    /**
+     * 检查If-Range，文件已变化时应输出完整文件
+     */
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) == lastModified / 1000 * 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 输出内存中的文件数据
+     */
+    private void write(HttpServletResponse response, ByteBuffer buffer, long start, long count) throws IOException {
+        ByteBuffer data = buffer.duplicate();
+        data.position((int) start).limit((int) (start + count));
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        while (data.hasRemaining()) {
+            out.write(data);
+        }
+    }
+
+    /**
+     * 输出文件内容
+     */
+    private void transfer(HttpServletRequest request, HttpServletResponse response,
+                          File file, long start, long count, boolean sendfile) throws IOException {
+        if (sendfile && count >= sendfileThreshold && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 由Tomcat在响应提交后通过sendfile输出，结束位置不包含在内
+            request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+}
@@ -111,4 +111,16 @@ public class ImageProcessController {
             @RequestParam("format") String format) {
         return Result.success(imageProcessService.convertFormat(imageId, format));
     }
+
+    /**
+     * 生成响应式多尺寸图片
+     *
+     * @param imageId 图片ID
+     * @return srcset属性值
+     */
+    @Operation(summary = "生成响应式多尺寸图片")
+    @GetMapping("/srcset")
+    public Result<String> generateSrcset(@RequestParam("imageId") Long imageId) {
+        return Result.success(imageProcessService.generateSrcset(imageId));
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.imagehosting.web.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.imagehosting.common.result.Result;
+import com.imagehosting.common.result.ResultCode;
+import com.imagehosting.service.AdmissionService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 准入控制过滤器
+ * <p>
+ * 在请求体被解析之前检查上传与图片处理请求，超出限制时返回503和Retry-After。
+ * 位于安全过滤器链之后，已登录用户按用户ID限流，匿名请求按客户端地址限流。
+ */
+@Component
+@RequiredArgsConstructor
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private final AdmissionService admissionService;
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * 需要准入控制的路径（即时变换在生成衍生图时单独获取许可，命中缓存的读取不受限制）
+     */
+    @Value("${admission.paths:/image/upload/**,/image/process/**}")
+    private String[] paths;
+
+    /**
+     * 拒绝时建议客户端重试的间隔（秒）
+     */
+    @Value("${admission.retry-after:5}")
+    private int retryAfter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if ("OPTIONS".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String pattern : paths) {
+            if (pathMatcher.match(pattern, path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdmissionService.Permit permit = admissionService.tryAcquire(getKey(request), request.getContentLengthLong());
+        if (permit == null) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", String.valueOf(retryAfter));
+            response.setContentType("application/json;charset=UTF-8");
+            response.getWriter().write(objectMapper.writeValueAsString(Result.failed(ResultCode.SERVICE_UNAVAILABLE)));
+            return;
+        }
+
+        try (permit) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * 获取限流主体
+     */
+    private String getKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getPrincipal();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
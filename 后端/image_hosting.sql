@@ -30,22 +30,69 @@ CREATE TABLE IF NOT EXISTS `image` (
   `name` varchar(100) NOT NULL COMMENT '图片名称',
   `original_name` varchar(255) NOT NULL COMMENT '原始文件名',
   `path` varchar(255) NOT NULL COMMENT '存储路径',
+  `blob_id` bigint DEFAULT NULL COMMENT '图片内容ID',
   `url` varchar(255) NOT NULL COMMENT '访问URL',
   `md5` varchar(32) NOT NULL COMMENT 'MD5值',
   `size` bigint NOT NULL COMMENT '图片大小（字节）',
   `width` int DEFAULT NULL COMMENT '图片宽度',
   `height` int DEFAULT NULL COMMENT '图片高度',
+  `format` varchar(20) DEFAULT NULL COMMENT '图片格式',
+  `frame_count` int DEFAULT NULL COMMENT '帧数',
+  `orientation` tinyint DEFAULT NULL COMMENT 'EXIF方向（1-8）',
+  `color_profile` varchar(100) DEFAULT NULL COMMENT '颜色配置',
+  `phash` bigint DEFAULT NULL COMMENT '感知哈希（64位dHash）',
+  `blurhash` varchar(64) DEFAULT NULL COMMENT '占位图（BlurHash）',
   `mime_type` varchar(50) NOT NULL COMMENT '媒体类型',
   `access_count` bigint NOT NULL DEFAULT '0' COMMENT '访问次数',
+  `replication_state` tinyint DEFAULT NULL COMMENT '复制状态（0待复制，1已复制，2复制失败）',
+  `replication_attempts` int NOT NULL DEFAULT '0' COMMENT '复制尝试次数',
+  `next_replication_time` datetime DEFAULT NULL COMMENT '下次复制时间（失败后退避）',
   `deleted` tinyint NOT NULL DEFAULT '0' COMMENT '删除标志（0未删除，1已删除）',
   `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
   PRIMARY KEY (`id`),
   KEY `idx_user_id` (`user_id`),
   KEY `idx_md5` (`md5`),
+  KEY `idx_path` (`path`),
+  KEY `idx_blob_id` (`blob_id`),
+  KEY `idx_replication_state` (`replication_state`, `id`),
   KEY `idx_create_time` (`create_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='图片表';
 
+-- 图片内容表（按内容哈希全局去重，多条图片记录共享同一物理文件）
+CREATE TABLE IF NOT EXISTS `image_blob` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '内容ID',
+  `hash` char(64) NOT NULL COMMENT '内容哈希（SHA-256）',
+  `md5` varchar(32) NOT NULL COMMENT 'MD5值',
+  `path` varchar(255) NOT NULL COMMENT '存储路径',
+  `size` bigint NOT NULL COMMENT '文件大小（字节）',
+  `ref_count` int NOT NULL DEFAULT '0' COMMENT '引用计数',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_hash` (`hash`),
+  KEY `idx_path` (`path`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='图片内容表';
+
+-- 图片衍生图表
+CREATE TABLE IF NOT EXISTS `image_derivative` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '衍生图ID',
+  `image_id` bigint NOT NULL COMMENT '原图ID',
+  `operation` varchar(255) NOT NULL COMMENT '规范化的处理参数',
+  `path` varchar(255) NOT NULL COMMENT '存储路径',
+  `format` varchar(20) NOT NULL COMMENT '图片格式',
+  `size` bigint NOT NULL COMMENT '文件大小（字节）',
+  `width` int DEFAULT NULL COMMENT '图片宽度',
+  `height` int DEFAULT NULL COMMENT '图片高度',
+  `replication_state` tinyint DEFAULT NULL COMMENT '复制状态（0待复制，1已复制，2复制失败）',
+  `replication_attempts` int NOT NULL DEFAULT '0' COMMENT '复制尝试次数',
+  `next_replication_time` datetime DEFAULT NULL COMMENT '下次复制时间（失败后退避）',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_image_operation` (`image_id`, `operation`),
+  KEY `idx_replication_state` (`replication_state`, `id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='图片衍生图表';
+
 
 
 --管理员账号密码都是lst123
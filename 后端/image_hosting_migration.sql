@@ -0,0 +1,109 @@
+-- 已有数据库升级脚本
+-- 为旧版本创建的数据库补充新增的列、索引和表，已存在的跳过，可重复执行
+-- 新建数据库直接执行 image_hosting.sql 即可，无需执行本脚本
+
+USE image_hosting;
+
+DELIMITER $$
+
+-- 列不存在时添加
+DROP PROCEDURE IF EXISTS `migrate_add_column` $$
+CREATE PROCEDURE `migrate_add_column`(IN tbl VARCHAR(64), IN col VARCHAR(64), IN definition VARCHAR(500))
+BEGIN
+  IF NOT EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                 WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = tbl AND COLUMN_NAME = col) THEN
+    SET @ddl = CONCAT('ALTER TABLE `', tbl, '` ADD COLUMN `', col, '` ', definition);
+    PREPARE stmt FROM @ddl;
+    EXECUTE stmt;
+    DEALLOCATE PREPARE stmt;
+  END IF;
+END $$
+
+-- 索引不存在时添加
+DROP PROCEDURE IF EXISTS `migrate_add_index` $$
+CREATE PROCEDURE `migrate_add_index`(IN tbl VARCHAR(64), IN idx VARCHAR(64), IN definition VARCHAR(500))
+BEGIN
+  IF NOT EXISTS (SELECT 1 FROM information_schema.STATISTICS
+                 WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = tbl AND INDEX_NAME = idx) THEN
+    SET @ddl = CONCAT('ALTER TABLE `', tbl, '` ADD ', definition);
+    PREPARE stmt FROM @ddl;
+    EXECUTE stmt;
+    DEALLOCATE PREPARE stmt;
+  END IF;
+END $$
+
+DELIMITER ;
+
+-- 图片内容表（按内容哈希全局去重，多条图片记录共享同一物理文件）
+CREATE TABLE IF NOT EXISTS `image_blob` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '内容ID',
+  `hash` char(64) NOT NULL COMMENT '内容哈希（SHA-256）',
+  `md5` varchar(32) NOT NULL COMMENT 'MD5值',
+  `path` varchar(255) NOT NULL COMMENT '存储路径',
+  `size` bigint NOT NULL COMMENT '文件大小（字节）',
+  `ref_count` int NOT NULL DEFAULT '0' COMMENT '引用计数',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_hash` (`hash`),
+  KEY `idx_path` (`path`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='图片内容表';
+
+-- 图片衍生图表
+CREATE TABLE IF NOT EXISTS `image_derivative` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '衍生图ID',
+  `image_id` bigint NOT NULL COMMENT '原图ID',
+  `operation` varchar(255) NOT NULL COMMENT '规范化的处理参数',
+  `path` varchar(255) NOT NULL COMMENT '存储路径',
+  `format` varchar(20) NOT NULL COMMENT '图片格式',
+  `size` bigint NOT NULL COMMENT '文件大小（字节）',
+  `width` int DEFAULT NULL COMMENT '图片宽度',
+  `height` int DEFAULT NULL COMMENT '图片高度',
+  `replication_state` tinyint DEFAULT NULL COMMENT '复制状态（0待复制，1已复制，2复制失败）',
+  `replication_attempts` int NOT NULL DEFAULT '0' COMMENT '复制尝试次数',
+  `next_replication_time` datetime DEFAULT NULL COMMENT '下次复制时间（失败后退避）',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_image_operation` (`image_id`, `operation`),
+  KEY `idx_replication_state` (`replication_state`, `id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='图片衍生图表';
+
+-- 较早创建的图片内容表缺少路径索引（存储迁移按路径查找）
+CALL migrate_add_index('image_blob', 'idx_path', 'KEY `idx_path` (`path`)');
+
+-- 图片内容引用（旧记录为NULL，按原有路径访问）
+CALL migrate_add_column('image', 'blob_id', 'bigint DEFAULT NULL COMMENT ''图片内容ID'' AFTER `path`');
+
+-- 图片元数据
+CALL migrate_add_column('image', 'format', 'varchar(20) DEFAULT NULL COMMENT ''图片格式'' AFTER `height`');
+CALL migrate_add_column('image', 'frame_count', 'int DEFAULT NULL COMMENT ''帧数'' AFTER `format`');
+CALL migrate_add_column('image', 'orientation', 'tinyint DEFAULT NULL COMMENT ''EXIF方向（1-8）'' AFTER `frame_count`');
+CALL migrate_add_column('image', 'color_profile', 'varchar(100) DEFAULT NULL COMMENT ''颜色配置'' AFTER `orientation`');
+
+-- 感知哈希和占位图
+CALL migrate_add_column('image', 'phash', 'bigint DEFAULT NULL COMMENT ''感知哈希（64位dHash）'' AFTER `color_profile`');
+CALL migrate_add_column('image', 'blurhash', 'varchar(64) DEFAULT NULL COMMENT ''占位图（BlurHash）'' AFTER `phash`');
+
+-- 后台复制到OSS（旧记录为NULL，不需要复制）
+CALL migrate_add_column('image', 'replication_state',
+  'tinyint DEFAULT NULL COMMENT ''复制状态（0待复制，1已复制，2复制失败）'' AFTER `access_count`');
+CALL migrate_add_column('image', 'replication_attempts',
+  'int NOT NULL DEFAULT ''0'' COMMENT ''复制尝试次数'' AFTER `replication_state`');
+CALL migrate_add_column('image', 'next_replication_time',
+  'datetime DEFAULT NULL COMMENT ''下次复制时间（失败后退避）'' AFTER `replication_attempts`');
+
+-- 衍生图同样复制到OSS
+CALL migrate_add_column('image_derivative', 'replication_state',
+  'tinyint DEFAULT NULL COMMENT ''复制状态（0待复制，1已复制，2复制失败）'' AFTER `height`');
+CALL migrate_add_column('image_derivative', 'replication_attempts',
+  'int NOT NULL DEFAULT ''0'' COMMENT ''复制尝试次数'' AFTER `replication_state`');
+CALL migrate_add_column('image_derivative', 'next_replication_time',
+  'datetime DEFAULT NULL COMMENT ''下次复制时间（失败后退避）'' AFTER `replication_attempts`');
+
+CALL migrate_add_index('image', 'idx_path', 'KEY `idx_path` (`path`)');
+CALL migrate_add_index('image', 'idx_blob_id', 'KEY `idx_blob_id` (`blob_id`)');
+CALL migrate_add_index('image', 'idx_replication_state', 'KEY `idx_replication_state` (`replication_state`, `id`)');
+CALL migrate_add_index('image_derivative', 'idx_replication_state', 'KEY `idx_replication_state` (`replication_state`, `id`)');
+
+DROP PROCEDURE IF EXISTS `migrate_add_column`;
+DROP PROCEDURE IF EXISTS `migrate_add_index`;